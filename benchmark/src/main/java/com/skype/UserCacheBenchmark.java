@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.skype.connector.ConnectorException;
+
+/**
+ * Contention on the user cache of {@link Skype#getUser(String)}.
+ * The ids are picked at random from a pool which fits into the cache or is ten times larger,
+ * by 1 to 32 threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserCacheBenchmark {
+    @Param({ "100", "10000" })
+    public int idCount;
+
+    private Skype skype;
+    private String[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        System.setProperty("com.skype.connector.Connector.transport", "inmemory");
+        skype = new Skype("benchmark", null);
+        ids = new String[idCount];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = "friend" + i;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws ConnectorException {
+        skype.getConnector().dispose();
+    }
+
+    @Benchmark
+    public User getUser() {
+        return getRandomUser();
+    }
+
+    @Benchmark
+    @Threads(2)
+    public User getUser2Threads() {
+        return getRandomUser();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public User getUser4Threads() {
+        return getRandomUser();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public User getUser8Threads() {
+        return getRandomUser();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public User getUser16Threads() {
+        return getRandomUser();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public User getUser32Threads() {
+        return getRandomUser();
+    }
+
+    private User getRandomUser() {
+        return skype.getUser(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+}
@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing of a "SEARCH FRIENDS" reply with 5,000 ids by {@link Utils#convertToArray(String)}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UtilsBenchmark {
+    private static final int FRIEND_COUNT = 5000;
+
+    private String friends;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StringBuilder reply = new StringBuilder();
+        for (int i = 0; i < FRIEND_COUNT; i++) {
+            if (i > 0) {
+                reply.append(", ");
+            }
+            reply.append("friend").append(i);
+        }
+        friends = reply.toString();
+    }
+
+    @Benchmark
+    public String[] convertToArray() {
+        return Utils.convertToArray(friends);
+    }
+}
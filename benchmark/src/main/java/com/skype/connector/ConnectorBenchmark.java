@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.skype.connector.inmemory.InMemoryConnector;
+import com.skype.connector.inmemory.InMemorySkypeClient;
+
+/**
+ * Round trips of commands through a {@link Connector} to an in-memory client without latency,
+ * so only the cost of the connector itself is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConnectorBenchmark {
+    /** Number of friends of the in-memory client, each caller thread asks for another one. */
+    private static final int FRIEND_COUNT = 64;
+
+    private InMemoryConnector connector;
+    private final AtomicInteger nextCaller = new AtomicInteger();
+
+    /**
+     * The friend a caller thread asks for, so concurrent callers get different replies.
+     */
+    @State(Scope.Thread)
+    public static class Caller {
+        String command;
+        String responseHeader;
+
+        @Setup(Level.Trial)
+        public void setUp(final ConnectorBenchmark benchmark) {
+            String handle = "friend" + benchmark.nextCaller.getAndIncrement() % FRIEND_COUNT;
+            command = "GET USER " + handle + " FULLNAME";
+            responseHeader = "USER " + handle + " FULLNAME ";
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws ConnectorException {
+        InMemorySkypeClient client = InMemorySkypeClient.createPopulated("benchmark", FRIEND_COUNT);
+        client.setLatency(0, 0);
+        connector = new InMemoryConnector(null, client);
+        connector.connect();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws ConnectorException {
+        connector.dispose();
+        connector.getClient().dispose();
+    }
+
+    @Benchmark
+    public String execute(final Caller caller) throws ConnectorException {
+        return connector.execute(caller.command, caller.responseHeader);
+    }
+
+    @Benchmark
+    public String executeWithId(final Caller caller) throws ConnectorException {
+        return connector.executeWithId(caller.command, caller.responseHeader);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String executeWithId4Callers(final Caller caller) throws ConnectorException {
+        return connector.executeWithId(caller.command, caller.responseHeader);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public String executeWithId16Callers(final Caller caller) throws ConnectorException {
+        return connector.executeWithId(caller.command, caller.responseHeader);
+    }
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.skype.connector.Connector.DeliveryMode;
+import com.skype.connector.inmemory.InMemoryConnector;
+import com.skype.connector.inmemory.InMemorySkypeClient;
+
+/**
+ * Fan-out of received messages to many listeners.
+ * A batch of notifications is fired and the benchmark waits until every listener has seen the
+ * last one, so the time covers the delivery on the event threads, not only the publishing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventFanOutBenchmark {
+    /** Number of messages fired per benchmark invocation. */
+    private static final int BATCH_SIZE = 100;
+
+    @Param({ "1", "100", "10000" })
+    public int listenerCount;
+
+    @Param({ "SYNCHRONOUS", "ASYNCHRONOUS", "PARTITIONED" })
+    public DeliveryMode deliveryMode;
+
+    private InMemoryConnector connector;
+    private CountingListener[] listeners;
+    private int fired;
+
+    /**
+     * Counts the received messages.
+     */
+    static final class CountingListener extends AbstractConnectorListener {
+        volatile int count;
+
+        @Override
+        public void messageReceived(final ConnectorMessageEvent event) {
+            count++;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws ConnectorException {
+        InMemorySkypeClient client = new InMemorySkypeClient("benchmark");
+        connector = new InMemoryConnector(null, client);
+        connector.connect();
+        listeners = new CountingListener[listenerCount];
+        for (int i = 0; i < listeners.length; i++) {
+            listeners[i] = new CountingListener();
+            connector.addConnectorListener(listeners[i], false, deliveryMode);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws ConnectorException {
+        connector.dispose();
+        connector.getClient().dispose();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void fireMessageReceived() {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            connector.fireMessageReceived("USER friend1 ONLINESTATUS ONLINE");
+        }
+        fired += BATCH_SIZE;
+        for (CountingListener listener : listeners) {
+            while (listener.count < fired) {
+                Thread.yield();
+            }
+        }
+    }
+}
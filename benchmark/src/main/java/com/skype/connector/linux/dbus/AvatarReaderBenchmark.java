@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector.linux.dbus;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link AvatarReader#readAvatarToFile(String, String)} of random users of a synthetic dbb file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AvatarReaderBenchmark {
+    /** Size of the dbb file in megabytes. */
+    @Param({ "1", "16" })
+    public int fileSize;
+
+    private File home;
+    private AvatarReader reader;
+    private int userCount;
+    private String avatarPath;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        home = File.createTempFile("avatar-benchmark", "");
+        home.delete();
+        final File directory = new File(home, ".Skype" + File.separator + "benchmark");
+        directory.mkdirs();
+        userCount = DbbFiles.write(new File(directory, "user4096.dbb"), fileSize * 1024L * 1024L);
+        final String userHome = System.getProperty("user.home");
+        System.setProperty("user.home", home.getPath());
+        try {
+            reader = new AvatarReader("benchmark");
+        } finally {
+            System.setProperty("user.home", userHome);
+        }
+        avatarPath = new File(home, "avatar.jpg").getPath();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DbbFiles.delete(home);
+    }
+
+    @Benchmark
+    public void readAvatarToFile() {
+        reader.readAvatarToFile(DbbFiles.userId(ThreadLocalRandom.current().nextInt(userCount)), avatarPath);
+    }
+}
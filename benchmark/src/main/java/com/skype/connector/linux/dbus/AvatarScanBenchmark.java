@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector.linux.dbus;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Marker and user id scans of {@link ByteSearcher} and the indexing of {@link AvatarIndex}
+ * over a synthetic 64 MB dbb file, the size of a large roster.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AvatarScanBenchmark {
+    private static final long FILE_SIZE = 64L * 1024L * 1024L;
+
+    /** Shorter than 16 bytes, searched with the first/last byte filter. */
+    private static final ByteSearcher SHORT_MISSING_ID = new ByteSearcher(bytes("nobody.here"));
+    /** At least 16 bytes long, searched with Boyer-Moore-Horspool. */
+    private static final ByteSearcher LONG_MISSING_ID = new ByteSearcher(bytes("nobody.here.at.all.anywhere"));
+
+    private File directory;
+    private ByteBuffer buffer;
+    private String lastUserId;
+
+    private static byte[] bytes(final String s) {
+        try {
+            return s.getBytes("US-ASCII");
+        } catch(IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = File.createTempFile("avatar-scan-benchmark", "");
+        directory.delete();
+        directory.mkdirs();
+        final File file = new File(directory, "user65536.dbb");
+        lastUserId = DbbFiles.userId(DbbFiles.write(file, FILE_SIZE) - 1);
+        final RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+        } finally {
+            in.close();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DbbFiles.delete(directory);
+    }
+
+    @Benchmark
+    public int countBlocks() {
+        int count = 0;
+        final int end = buffer.limit();
+        int i = AvatarIndex.L33L_MARKER.indexOf(buffer, 0, end);
+        while(i >= 0) {
+            count++;
+            i = AvatarIndex.L33L_MARKER.indexOf(buffer, i + AvatarIndex.L33L_MARKER.length(), end);
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int searchShortMissingId() {
+        return SHORT_MISSING_ID.indexOf(buffer, 0, buffer.limit());
+    }
+
+    @Benchmark
+    public int searchLongMissingId() {
+        return LONG_MISSING_ID.indexOf(buffer, 0, buffer.limit());
+    }
+
+    /**
+     * Indexes the whole file, as on the first avatar lookup after the Skype client changed it.
+     */
+    @Benchmark
+    public ByteBuffer indexAndGetAvatar() throws IOException {
+        return new AvatarIndex(directory).getAvatar(lastUserId);
+    }
+}
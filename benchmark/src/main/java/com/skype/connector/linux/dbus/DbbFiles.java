@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector.linux.dbus;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+/**
+ * Writes synthetic dbb files shaped like the ones of the Skype client: "l33l" blocks with the
+ * user id, the full name, some record bytes and, for three of four users, a JPEG image.
+ */
+final class DbbFiles {
+    private DbbFiles() {
+    }
+
+    /**
+     * Gets the user id stored in a block.
+     * @param block the index of the block.
+     * @return the user id.
+     */
+    static String userId(final int block) {
+        return "user.name" + block;
+    }
+
+    /**
+     * Writes a dbb file.
+     * @param file the file to write.
+     * @param size the minimum size of the file in bytes.
+     * @return the number of blocks written.
+     * @throws IOException if the file could not be written.
+     */
+    static int write(final File file, final long size) throws IOException {
+        final Random random = new Random(1);
+        final OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            long written = 0;
+            int blocks = 0;
+            final ByteArrayOutputStream block = new ByteArrayOutputStream();
+            while(written < size) {
+                block.reset();
+                block.write(new byte[] { 'l', '3', '3', 'l', 1, 2, 3, 0x03, 0x10 });
+                block.write(userId(blocks).getBytes("US-ASCII"));
+                block.write(0);
+                block.write(new byte[] { 0x03, 0x14 });
+                block.write(("Full Name " + blocks).getBytes("US-ASCII"));
+                block.write(0);
+                for(int i = 0; i < 200; i++) {
+                    block.write(random.nextInt(32));
+                }
+                if(blocks % 4 != 0) {
+                    block.write(new byte[] { (byte)0xFF, (byte)0xD8 });
+                    final int length = 4000 + random.nextInt(12000);
+                    for(int i = 0; i < length; i++) {
+                        final int b = random.nextInt(256);
+                        block.write(b);
+                        if(b == 0xFF) {
+                            // stuffed like in JPEG entropy coded data
+                            block.write(0);
+                        }
+                    }
+                    block.write(new byte[] { (byte)0xFF, (byte)0xD9 });
+                }
+                block.write(new byte[8]);
+                block.writeTo(out);
+                written += block.size();
+                blocks++;
+            }
+            return blocks;
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Deletes a directory and the files in it.
+     * @param directory the directory.
+     */
+    static void delete(final File directory) {
+        final File[] files = directory.listFiles();
+        if(files != null) {
+            for(final File file: files) {
+                if(file.isDirectory()) {
+                    delete(file);
+                } else {
+                    file.delete();
+                }
+            }
+        }
+        directory.delete();
+    }
+}
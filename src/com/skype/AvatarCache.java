@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of the avatar images of users as JPEG bytes, keyed by Skype id.
+ * <p>
+ * The cache holds at most a given number of bytes and evicts the least
+ * recently used images first. Images larger than the whole budget are not
+ * cached. {@link Skype} removes the image of a user when the Skype client
+ * notifies a change of the user's AVATAR property.
+ * </p>
+ * @see Skype#setAvatarCache(AvatarCache)
+ * @see User#getAvatarBytes()
+ */
+public final class AvatarCache {
+    /** The maximum number of bytes of all cached images. */
+    private final long maxSize;
+    /** The images by id in access order. */
+    private final LinkedHashMap<String, byte[]> images = new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+    /** The number of bytes of all cached images. */
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Create a cache which holds the given number of bytes.
+     * @param maxSize the maximum number of bytes of all cached images.
+     */
+    public AvatarCache(long maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("The maximum size must not be negative.");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Return the cached image of a user.
+     * The returned array is shared, so it must not be modified.
+     * @param id the Skype id of the user.
+     * @return the JPEG bytes or null if the image is not cached.
+     */
+    public synchronized byte[] get(String id) {
+        byte[] image = images.get(id);
+        if (image == null) {
+            missCount++;
+        } else {
+            hitCount++;
+        }
+        return image;
+    }
+
+    /**
+     * Cache the image of a user, evicting the least recently used images if necessary.
+     * The array must not be modified afterwards.
+     * @param id the Skype id of the user.
+     * @param image the JPEG bytes.
+     */
+    public synchronized void put(String id, byte[] image) {
+        Utils.checkNotNull("id", id);
+        Utils.checkNotNull("image", image);
+        byte[] old = images.remove(id);
+        if (old != null) {
+            size -= old.length;
+        }
+        if (image.length > maxSize) {
+            return;
+        }
+        images.put(id, image);
+        size += image.length;
+        Iterator<Map.Entry<String, byte[]>> entries = images.entrySet().iterator();
+        while (size > maxSize) {
+            size -= entries.next().getValue().length;
+            entries.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Remove the cached image of a user, for example after it has changed.
+     * @param id the Skype id of the user.
+     */
+    public synchronized void invalidate(String id) {
+        byte[] old = images.remove(id);
+        if (old != null) {
+            size -= old.length;
+        }
+    }
+
+    /**
+     * Remove all cached images.
+     */
+    public synchronized void clear() {
+        images.clear();
+        size = 0;
+    }
+
+    /**
+     * Return the maximum number of bytes of all cached images.
+     * @return the budget in bytes.
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Return the number of bytes of all cached images.
+     * @return the size in bytes.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Return the number of images found in the cache.
+     * @return the hit count.
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Return the number of images not found in the cache.
+     * @return the miss count.
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Return the number of images removed to stay within the budget.
+     * @return the eviction count.
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+}
@@ -23,6 +23,7 @@
 package com.skype;
 
 import java.util.Date;
+import java.util.concurrent.Future;
 
 import com.skype.connector.Connector;
 import com.skype.connector.ConnectorException;
@@ -48,6 +49,13 @@ public final class Chat extends SkypeObject {
         DIALOG, LEGACY_DIALOG, MULTI_SUBSCRIBED, UNSUBSCRIBED;
     }
 
+    /** Converts the STATUS property. */
+    private static final PropertyFuture.Converter<Status> STATUS_CONVERTER = new PropertyFuture.Converter<Status>() {
+        Status convert(String value) {
+            return Status.valueOf(value);
+        }
+    };
+
     /**
      * ID of this CHAT object.
      */
@@ -93,6 +101,17 @@ public final class Chat extends SkypeObject {
         return id;
     }
 
+    /**
+     * Fetch several properties of this CHAT at once.
+     * All GET commands are pipelined, so this costs about one round trip instead of one per property.
+     * @param propertyNames the property names, like {@code "FRIENDLYNAME"}.
+     * @return the immutable snapshot of the property values.
+     * @throws SkypeException when the connection has gone bad or an ERROR message is received.
+     */
+    public PropertySnapshot fetch(String... propertyNames) throws SkypeException {
+        return updateCachedProperties(Utils.fetchProperties(connector, "CHAT", getId(), propertyNames));
+    }
+
     /**
      * Set the topic of this CHAT.
      * @param newValue The new topic.
@@ -104,6 +123,7 @@ public final class Chat extends SkypeObject {
             String responseHeader = "ALTER CHAT SETTOPIC";
             String response = connector.execute(command, responseHeader);
             Utils.checkError(response);
+            invalidateCachedProperty("TOPIC");
         } catch (ConnectorException e) {
             Utils.convertToSkypeException(e);
         }
@@ -241,6 +261,15 @@ public final class Chat extends SkypeObject {
         return Utils.parseUnixTime(getProperty("TIMESTAMP"));
     }
 
+    /**
+     * Return the timestamp of this CHAT without blocking.
+     * @return the future of the date of this CHAT.
+     * @throws SkypeException when the connection has gone bad.
+     */
+    public Future<Date> getTimeAsync() throws SkypeException {
+        return getPropertyAsync("TIMESTAMP", PropertyFuture.UNIX_TIME);
+    }
+
     /**
      * Return user who added the current user to chat.
      * @return User who added us.
@@ -264,6 +293,15 @@ public final class Chat extends SkypeObject {
         return Status.valueOf(Utils.getPropertyWithCommandId(connector, "CHAT", getId(), "STATUS"));
     }
 
+    /**
+     * Return the status of this CHAT without blocking.
+     * @return the future of the chat status.
+     * @throws SkypeException when the connection has gone bad.
+     */
+    public Future<Status> getStatusAsync() throws SkypeException {
+        return getPropertyAsync("STATUS", STATUS_CONVERTER);
+    }
+
     /**
      * Get the friendly name of this chat.
      * @return friendly name of this chat.
@@ -273,6 +311,15 @@ public final class Chat extends SkypeObject {
         return getProperty("FRIENDLYNAME");
     }
 
+    /**
+     * Get the friendly name of this chat without blocking.
+     * @return the future of the friendly name of this chat.
+     * @throws SkypeException when the connection has gone bad.
+     */
+    public Future<String> getWindowTitleAsync() throws SkypeException {
+        return getPropertyAsync("FRIENDLYNAME", PropertyFuture.STRING);
+    }
+
     /** 
      * Return all chatting members on this CHAT.
      * @return array of chatting users.
@@ -337,6 +384,26 @@ public final class Chat extends SkypeObject {
         return Boolean.parseBoolean(getProperty("BOOKMARKED"));
     }
 
+    /**
+     * Indicates if this chat has been bookmarked without blocking.
+     * @return the future of the bookmark flag.
+     * @throws SkypeException when the connection has gone bad.
+     */
+    public Future<Boolean> isBookmarkedAsync() throws SkypeException {
+        return getPropertyAsync("BOOKMARKED", PropertyFuture.BOOLEAN);
+    }
+
+    /**
+     * Return a property of this CHAT without blocking.
+     * @param name propertyname.
+     * @param converter the converter of the property value.
+     * @return the future of the property value.
+     * @throws SkypeException when the connection has gone bad.
+     */
+    private <T> Future<T> getPropertyAsync(String name, PropertyFuture.Converter<T> converter) throws SkypeException {
+        return Utils.getPropertyAsync(connector, "CHAT", getId(), name, converter);
+    }
+
     /**
      * Return a property of this CHAT.
      * @param name propertyname.
@@ -344,6 +411,6 @@ public final class Chat extends SkypeObject {
      * @throws SkypeException when the connection has gone bad or property ain't found.
      */
     private String getProperty(String name) throws SkypeException {
-        return Utils.getProperty(connector, "CHAT", getId(), name);
+        return getCachedProperty("CHAT", getId(), name);
     }
 }
@@ -23,6 +23,7 @@
 package com.skype;
 
 import java.util.Date;
+import java.util.concurrent.Future;
 
 import com.skype.connector.Connector;
 
@@ -77,6 +78,20 @@ public final class ChatMessage extends SkypeObject {
         USER_NOT_FOUND, USER_INCAPABLE, ADDER_MUST_BE_FRIEND, ADDED_MUST_BE_AUTHORIZED, UNSUBSCRIBE;
     }
 
+    /** Converts the TYPE property. */
+    private static final PropertyFuture.Converter<Type> TYPE_CONVERTER = new PropertyFuture.Converter<Type>() {
+        Type convert(String value) {
+            return Type.valueOf(value);
+        }
+    };
+
+    /** Converts the STATUS property. */
+    private static final PropertyFuture.Converter<Status> STATUS_CONVERTER = new PropertyFuture.Converter<Status>() {
+        Status convert(String value) {
+            return Status.valueOf(value);
+        }
+    };
+
     /**
      * ID of this CHATMESSAGE.
      */
@@ -123,6 +138,17 @@ public final class ChatMessage extends SkypeObject {
         return id;
     }
 
+    /**
+     * Fetch several properties of this CHATMESSAGE at once.
+     * All GET commands are pipelined, so this costs about one round trip instead of one per property.
+     * @param propertyNames the property names, like {@code "BODY"}.
+     * @return the immutable snapshot of the property values.
+     * @throws SkypeException when the connection has gone bad or an ERROR message is received.
+     */
+    public PropertySnapshot fetch(String... propertyNames) throws SkypeException {
+        return updateCachedProperties(Utils.fetchProperties(connector, "CHATMESSAGE", getId(), propertyNames));
+    }
+
     /**
      * Return time when message was sent (UNIX timestamp).
      * @return Date of this chatmessage.
@@ -132,6 +158,15 @@ public final class ChatMessage extends SkypeObject {
         return Utils.parseUnixTime(getProperty("TIMESTAMP"));
     }
 
+    /**
+     * Return time when message was sent (UNIX timestamp) without blocking.
+     * @return the future of the time of this chatmessage.
+     * @throws SkypeException when connection has gone bad.
+     */
+    public Future<Date> getTimeAsync() throws SkypeException {
+        return getPropertyAsync("TIMESTAMP", PropertyFuture.UNIX_TIME);
+    }
+
     /**
      * Return the User who sended this CHATMESSAGE.
      * @return User object of sender.
@@ -150,6 +185,15 @@ public final class ChatMessage extends SkypeObject {
         return getProperty("FROM_HANDLE");
     }
 
+    /**
+     * Return the handle of the user who has sent this CHATMESSAGE without blocking.
+     * @return the future of the handle.
+     * @throws SkypeException when connection has gone bad.
+     */
+    public Future<String> getSenderIdAsync() throws SkypeException {
+        return getPropertyAsync("FROM_HANDLE", PropertyFuture.STRING);
+    }
+
     /**
      * Return the displayname of the sender of this CHATMESSAGE.
      * @return a String with the displayname of the sender.
@@ -159,6 +203,15 @@ public final class ChatMessage extends SkypeObject {
         return getProperty("FROM_DISPNAME");
     }
 
+    /**
+     * Return the displayname of the sender of this CHATMESSAGE without blocking.
+     * @return the future of the displayname of the sender.
+     * @throws SkypeException when connection has gone bad.
+     */
+    public Future<String> getSenderDisplayNameAsync() throws SkypeException {
+        return getPropertyAsync("FROM_DISPNAME", PropertyFuture.STRING);
+    }
+
     /**
      * Get the type of this CHATMESSAGE.
      * @see Type
@@ -169,6 +222,15 @@ public final class ChatMessage extends SkypeObject {
         return Type.valueOf(getProperty("TYPE"));
     }
 
+    /**
+     * Get the type of this CHATMESSAGE without blocking.
+     * @return the future of the type of this chatmessage.
+     * @throws SkypeException when connection has gone bad.
+     */
+    public Future<Type> getTypeAsync() throws SkypeException {
+        return getPropertyAsync("TYPE", TYPE_CONVERTER);
+    }
+
     /**
      * Get the status of this CHATMESSAGE.
      * @see Status
@@ -179,6 +241,15 @@ public final class ChatMessage extends SkypeObject {
         return Status.valueOf(Utils.getPropertyWithCommandId(connector, "CHATMESSAGE", getId(), "STATUS"));
     }
 
+    /**
+     * Get the status of this CHATMESSAGE without blocking.
+     * @return the future of the status of this chatmessage.
+     * @throws SkypeException when connection has gone bad.
+     */
+    public Future<Status> getStatusAsync() throws SkypeException {
+        return getPropertyAsync("STATUS", STATUS_CONVERTER);
+    }
+
     /**
      * Get the leave reason.
      * @see LeaveReason
@@ -198,6 +269,15 @@ public final class ChatMessage extends SkypeObject {
         return getProperty("BODY");
     }
 
+    /**
+     * Get the content of this CHATMESSAGE without blocking.
+     * @return the future of the content of this chatmessage.
+     * @throws SkypeException when connection has gone bad.
+     */
+    public Future<String> getContentAsync() throws SkypeException {
+        return getPropertyAsync("BODY", PropertyFuture.STRING);
+    }
+
     /**
      * Sets the content of the chat message to the specified string.
      * @param name  the string that is to be this chat message's content
@@ -246,6 +326,17 @@ public final class ChatMessage extends SkypeObject {
         return users;
     }
 
+    /**
+     * Get CHATMESSAGE property without blocking.
+     * @param name of the property.
+     * @param converter the converter of the property value.
+     * @return the future of the property value.
+     * @throws SkypeException when connection has gone bad.
+     */
+    private <T> Future<T> getPropertyAsync(String name, PropertyFuture.Converter<T> converter) throws SkypeException {
+        return Utils.getPropertyAsync(connector, "CHATMESSAGE", getId(), name, converter);
+    }
+
     /**
      * Get CHATMESSAGE property.
      * @param name of the property.
@@ -253,10 +344,11 @@ public final class ChatMessage extends SkypeObject {
      * @throws SkypeException when connection has gone bad or property not found.
      */
     private String getProperty(String name) throws SkypeException {
-        return Utils.getProperty(connector, "CHATMESSAGE", getId(), name);
+        return getCachedProperty("CHATMESSAGE", getId(), name);
     }
 
     private void setProperty(String name, String value) throws SkypeException {
         Utils.setProperty(connector, "CHATMESSAGE", getId(), name, value);
+        invalidateCachedProperty(name);
     }
 }
@@ -23,6 +23,16 @@
  ******************************************************************************/
 package com.skype;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.skype.connector.AvatarCallback;
+import com.skype.connector.AvatarProvider;
 import com.skype.connector.Connector;
 import com.skype.connector.ConnectorException;
 
@@ -65,6 +75,79 @@ public final class ContactList {
         }
     }
 
+    /**
+     * Pass the avatars of all authorized users to a callback.
+     * If the connector has an {@link AvatarProvider}, all avatars are read in one go,
+     * else they are requested one by one like {@link User#getAvatarBytes()} does.
+     * @param callback receives the avatars in the calling thread.
+     * @throws SkypeException when the connection has gone bad.
+     * @see #exportAllAvatars(File)
+     */
+    public void forEachAvatar(AvatarCallback callback) throws SkypeException {
+        Utils.checkNotNull("callback", callback);
+        User[] users = getAllUsers();
+        AvatarProvider provider = connector.getAvatarProvider();
+        if (provider != null) {
+            List<String> ids = new ArrayList<String>(users.length);
+            for (User user : users) {
+                ids.add(user.getId());
+            }
+            try {
+                provider.forEachAvatar(ids, callback);
+            } catch (ConnectorException e) {
+                Utils.convertToSkypeException(e);
+            }
+        } else {
+            for (User user : users) {
+                byte[] image = user.getAvatarBytes();
+                if (image != null) {
+                    callback.avatarRead(user.getId(), ByteBuffer.wrap(image).asReadOnlyBuffer());
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the avatars of all authorized users to a directory, one "&lt;Skype id&gt;.jpg" file per user with an avatar.
+     * @param directory the directory, which is created if necessary.
+     * @return the number of written avatars.
+     * @throws SkypeException when the connection has gone bad or a file could not be written.
+     * @see #forEachAvatar(AvatarCallback)
+     */
+    public int exportAllAvatars(final File directory) throws SkypeException {
+        Utils.checkNotNull("directory", directory);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new SkypeException("The directory " + directory + " could not be created.");
+        }
+        final IOException[] failure = new IOException[1];
+        final int[] count = new int[1];
+        forEachAvatar(new AvatarCallback() {
+            public void avatarRead(String userId, ByteBuffer avatar) {
+                if (failure[0] != null) {
+                    return;
+                }
+                try {
+                    FileOutputStream out = new FileOutputStream(new File(directory, userId + ".jpg"));
+                    try {
+                        FileChannel channel = out.getChannel();
+                        while (avatar.hasRemaining()) {
+                            channel.write(avatar);
+                        }
+                    } finally {
+                        out.close();
+                    }
+                    count[0]++;
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            }
+        });
+        if (failure[0] != null) {
+            throw new SkypeException("Exporting the avatars failed.", failure[0]);
+        }
+        return count[0];
+    }
+
     /**
      * Get all users waiting for AUTHORIZATION.
      * @return array of users.
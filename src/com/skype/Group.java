@@ -109,6 +109,17 @@ public final class Group extends SkypeObject {
         return id;
     }
 
+    /**
+     * Fetch several properties of this GROUP at once.
+     * All GET commands are pipelined, so this costs about one round trip instead of one per property.
+     * @param propertyNames the property names, like {@code "DISPLAYNAME"}.
+     * @return the immutable snapshot of the property values.
+     * @throws SkypeException when the connection has gone bad or an ERROR message is received.
+     */
+    public PropertySnapshot fetch(String... propertyNames) throws SkypeException {
+        return updateCachedProperties(Utils.fetchProperties(connector, "GROUP", getId(), propertyNames));
+    }
+
     /**
      * Add User to this GROUP.
      * @param User to add.
@@ -248,7 +259,7 @@ public final class Group extends SkypeObject {
      * @throws SkypeException when the connection has gone bad.
      */
     private String getProperty(String name) throws SkypeException {
-        return Utils.getProperty(connector, "GROUP", getId(), name);
+        return getCachedProperty("GROUP", getId(), name);
     }
 
     /** 
@@ -259,6 +270,7 @@ public final class Group extends SkypeObject {
      */
     private void setProperty(String name, String newValue) throws SkypeException {
         Utils.setProperty(connector, "GROUP", getId(), name, newValue);
+        invalidateCachedProperty(name);
     }
 
     /**
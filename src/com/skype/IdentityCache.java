@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype;
+
+/**
+ * Holds the canonical Skype object of each ID, like the User of a Skype name.
+ * <p>
+ * An implementation must never hand out two instances for the same ID while
+ * the first one is still referenced, so that {@link SkypeObject#setData(String, Object)}
+ * and {@link SkypeObject#getData(String)} keep working on any instance of an ID.
+ * It may forget objects which are not referenced anymore.
+ * </p>
+ * @see WeakIdentityCache
+ * @see LruIdentityCache
+ * @see Skype#setChatMessageCache(IdentityCache)
+ */
+public interface IdentityCache<T> {
+    /**
+     * Creates the Skype object of an ID which is not cached.
+     */
+    interface Factory<T> {
+        /**
+         * Create a new Skype object.
+         * @param id the ID of the object.
+         * @return the new object.
+         */
+        T create(String id);
+    }
+
+    /**
+     * Return the cached object of an ID or create it if there is none.
+     * The factory is called at most once per ID as long as the object is cached.
+     * @param id the ID of the object.
+     * @param factory the factory to create a missing object.
+     * @return the canonical object.
+     */
+    T get(String id, Factory<T> factory);
+
+    /**
+     * Return the cached object of an ID without creating it.
+     * @param id the ID of the object.
+     * @return the object or null if it is not cached.
+     */
+    T getIfPresent(String id);
+
+    /**
+     * Return the number of cached objects.
+     * @return the number of objects.
+     */
+    int size();
+
+    /**
+     * Forget all cached objects.
+     */
+    void clear();
+
+    /**
+     * Return the number of lookups which found a cached object.
+     * @return the hit count.
+     */
+    long getHitCount();
+
+    /**
+     * Return the number of lookups which had to create an object.
+     * @return the miss count.
+     */
+    long getMissCount();
+
+    /**
+     * Return the number of objects the cache has dropped.
+     * @return the eviction count.
+     */
+    long getEvictionCount();
+}
@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Identity cache which keeps the most recently used objects even if the
+ * application does not reference them.
+ * <p>
+ * Objects which fall out of the recently used window stay cached as long
+ * as the application references them, so there is still only one instance per ID.
+ * </p>
+ * <p>
+ * The window approximates LRU with the CLOCK algorithm: a hit only marks the
+ * object as used, and the eviction gives marked objects a second chance. So
+ * hits take no lock and do not reorder anything.
+ * </p>
+ */
+public class LruIdentityCache<T> extends WeakIdentityCache<T> {
+    /** The number of objects kept without being referenced. */
+    private final int maxSize;
+    /** The recently used objects by ID. */
+    private final ConcurrentMap<String, Entry<T>> recentlyUsed = new ConcurrentHashMap<String, Entry<T>>();
+    /** The recently used objects in the order the clock hand visits them. */
+    private final Queue<Entry<T>> clock = new ConcurrentLinkedQueue<Entry<T>>();
+    /** The lock of the thread moving the clock hand. */
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    /**
+     * Create a cache which keeps the given number of recently used objects.
+     * @param maxSize the number of objects kept without being referenced.
+     */
+    public LruIdentityCache(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("The maximum size must not be negative.");
+        }
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    protected void accessed(String id, T object) {
+        Entry<T> entry = recentlyUsed.get(id);
+        if (entry != null && entry.object == object) {
+            // avoid writing to a shared cache line if it is marked already
+            if (!entry.used) {
+                entry.used = true;
+            }
+            return;
+        }
+        if (maxSize == 0) {
+            return;
+        }
+        Entry<T> newEntry = new Entry<T>(id, object);
+        boolean added = entry == null ? recentlyUsed.putIfAbsent(id, newEntry) == null : recentlyUsed.replace(id, entry, newEntry);
+        if (added) {
+            clock.offer(newEntry);
+            if (recentlyUsed.size() > maxSize) {
+                evict();
+            }
+        }
+    }
+
+    @Override
+    protected void cleared() {
+        evictionLock.lock();
+        try {
+            recentlyUsed.clear();
+            clock.clear();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Move the clock hand until the window fits the maximum size.
+     * Only one thread evicts at a time, the others do not wait for it.
+     */
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            while (recentlyUsed.size() > maxSize) {
+                Entry<T> entry = clock.poll();
+                if (entry == null) {
+                    break;
+                }
+                if (recentlyUsed.get(entry.id) != entry) {
+                    // replaced or cleared in the meantime
+                    continue;
+                }
+                if (entry.used) {
+                    entry.used = false;
+                    clock.offer(entry);
+                } else {
+                    recentlyUsed.remove(entry.id, entry);
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Strong reference to a recently used object.
+     */
+    private static final class Entry<T> {
+        private final String id;
+        private final T object;
+        /** The flag if the object has been used since the clock hand passed it. */
+        private volatile boolean used;
+
+        Entry(String id, T object) {
+            this.id = id;
+            this.object = object;
+        }
+    }
+}
@@ -31,7 +31,6 @@ import java.util.Date;
 import javax.imageio.ImageIO;
 
 import com.skype.connector.Connector;
-import com.skype.connector.ConnectorException;
 
 /**
  * The <code>Profile</code> class contains the current user's information.
@@ -115,6 +114,9 @@ public final class Profile {
 
     private final Connector connector;
 
+    /** The Skype id of the current user, fetched on first use. */
+    private volatile String cachedId;
+
     /**
      * Constructor.
      *
@@ -141,7 +143,6 @@ public final class Profile {
      */
     public void setStatus(final Status newValue) throws SkypeException {
         Utils.checkNotNull("newValue", newValue);
-        System.out.println("Setting new USERSTATUS to: " + newValue.toString());
         Utils.setProperty(connector, "USERSTATUS", newValue.toString());
     }
 
@@ -588,6 +589,7 @@ public final class Profile {
             newValueString = newValue.getAbsolutePath();
         }
         Utils.setProperty(connector, "AVATAR", "1", newValueString);
+        Utils.invalidateAvatar(connector, getCachedId());
     }
     
     /**
@@ -599,21 +601,33 @@ public final class Profile {
      * @see #setAvatarByFile(File)
      */
     public BufferedImage getAvatar() throws SkypeException {
-        try {
-            final File file = Utils.createTempraryFile("get_avator_", "jpg");
-            final String command = "GET AVATAR 1 " + file.getAbsolutePath();
-            final String responseHeader = "AVATAR 1 ";
-            final String response = connector.execute(command, responseHeader);
-            Utils.checkError(response);
-            final BufferedImage image = ImageIO.read(file);
-            file.delete();
-            return image;
-        } catch(ConnectorException e) {
-            Utils.convertToSkypeException(e);
-            return null;
-        } catch(IOException e) {
-            return null;
+        return Utils.decodeImage(getAvatarBytes());
+    }
+
+    /**
+     * Gets the avatar of the current user as JPEG bytes.
+     * The bytes are kept in the {@link AvatarCache} of the Skype instance, so repeated calls do not reach the Skype client.
+     * @return the JPEG bytes, which must not be modified, or null if there is no avatar.
+     * @throws SkypeException when the connection has gone bad or an ERROR message is received.
+     * @since Protocol 7
+     * @see #getAvatar()
+     */
+    public byte[] getAvatarBytes() throws SkypeException {
+        return Utils.getAvatar(connector, getCachedId(), "GET AVATAR 1", "AVATAR 1 ");
+    }
+
+    /**
+     * Gets the Skype id of the current user, which does not change while attached.
+     * @return the Skype id.
+     * @throws SkypeException when the connection has gone bad or an ERROR message is received.
+     */
+    private String getCachedId() throws SkypeException {
+        String id = cachedId;
+        if (id == null) {
+            id = getId();
+            cachedId = id;
         }
+        return id;
     }
 
     /**
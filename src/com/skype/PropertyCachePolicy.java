@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides how long property values of Skype objects are cached.
+ * <p>
+ * Cached values are updated by the notifications the Skype client pushes
+ * (like <code>USER echo123 ONLINESTATUS ONLINE</code>), the time to live only limits
+ * how long a value is trusted if a change is not pushed. Properties which never
+ * change, like the TIMESTAMP of a CHATMESSAGE, never expire.
+ * </p>
+ * @see Skype#setPropertyCachePolicy(PropertyCachePolicy)
+ */
+public class PropertyCachePolicy {
+    /** The time to live of properties which never expire. */
+    public static final long ETERNAL = Long.MAX_VALUE;
+    /** The time to live of properties which are not cached. */
+    public static final long NOT_CACHED = 0;
+
+    /** The default time to live of properties the Skype client pushes notifications for. */
+    private static final long NOTIFIED_TIME_TO_LIVE = 60 * 1000;
+
+    /** The time to live in milliseconds by "TYPE NAME". */
+    private final Map<String, Long> timeToLives = new ConcurrentHashMap<String, Long>();
+    /** The time to live in milliseconds of the properties without a specific one. */
+    private volatile long defaultTimeToLive = NOT_CACHED;
+    /** The flag if caching is enabled at all. */
+    private volatile boolean enabled = !Boolean.getBoolean("com.skype.PropertyCachePolicy.disabled");
+
+    /**
+     * Creates a policy which caches immutable properties forever and
+     * properties the Skype client pushes notifications for one minute.
+     */
+    public PropertyCachePolicy() {
+        setTimeToLive("CHATMESSAGE", ETERNAL, "TIMESTAMP", "FROM_HANDLE", "FROM_DISPNAME", "TYPE", "CHATNAME", "LEAVEREASON");
+        // edits are pushed as notifications
+        setTimeToLive("CHATMESSAGE", ETERNAL, "BODY");
+        setTimeToLive("CHAT", ETERNAL, "NAME", "TIMESTAMP", "ADDER");
+        setTimeToLive("USER", ETERNAL, "HANDLE");
+        setTimeToLive("USER", NOTIFIED_TIME_TO_LIVE, "FULLNAME", "DISPLAYNAME", "ONLINESTATUS", "MOOD_TEXT", "BUDDYSTATUS", "ISAUTHORIZED", "ISBLOCKED");
+        setTimeToLive("CHAT", NOTIFIED_TIME_TO_LIVE, "FRIENDLYNAME", "TOPIC", "BOOKMARKED");
+        setTimeToLive("GROUP", NOTIFIED_TIME_TO_LIVE, "DISPLAYNAME", "VISIBLE", "EXPANDED");
+    }
+
+    /**
+     * Sets the time to live of properties of a Skype object type.
+     * @param type the Skype object type, like USER
+     * @param timeToLive the time to live in milliseconds, {@link #ETERNAL} or {@link #NOT_CACHED}
+     * @param names the property names, like FULLNAME
+     * @throws IllegalArgumentException if the time to live is negative
+     */
+    public final void setTimeToLive(final String type, final long timeToLive, final String... names) {
+        Utils.checkNotNull("type", type);
+        if (timeToLive < 0) {
+            throw new IllegalArgumentException("The time to live must not be negative.");
+        }
+        for (String name : names) {
+            timeToLives.put(type + " " + name, timeToLive);
+        }
+    }
+
+    /**
+     * Sets the time to live of the properties without a specific one.
+     * @param timeToLive the time to live in milliseconds, {@link #ETERNAL} or {@link #NOT_CACHED}
+     * @throws IllegalArgumentException if the time to live is negative
+     */
+    public final void setDefaultTimeToLive(final long timeToLive) {
+        if (timeToLive < 0) {
+            throw new IllegalArgumentException("The time to live must not be negative.");
+        }
+        defaultTimeToLive = timeToLive;
+    }
+
+    /**
+     * Enables or disables caching at all.
+     * Caching can also be disabled by the <code>com.skype.PropertyCachePolicy.disabled</code> system property.
+     * @param on true to enable caching
+     */
+    public final void setEnabled(final boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * Indicates if caching is enabled at all.
+     * @return true if caching is enabled
+     */
+    public final boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the time to live of the specified property.
+     * @param type the Skype object type, like USER
+     * @param name the property name, like FULLNAME
+     * @return the time to live in milliseconds, {@link #ETERNAL} or {@link #NOT_CACHED}
+     */
+    public long getTimeToLive(final String type, final String name) {
+        if (!enabled) {
+            return NOT_CACHED;
+        }
+        final Long timeToLive = timeToLives.get(type + " " + name);
+        return timeToLive != null ? timeToLive : defaultTimeToLive;
+    }
+}
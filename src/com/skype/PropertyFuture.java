@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype;
+
+import java.util.Date;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.skype.connector.CommandFuture;
+import com.skype.connector.ConnectorException;
+
+/**
+ * Future of a Skype object property which converts the response of the
+ * underlying command into the property value when it is retrieved.
+ * A failed command or an ERROR reply is reported as an {@link ExecutionException}
+ * with a {@link SkypeException} as the cause.
+ * @param <T> the type of the property value
+ */
+final class PropertyFuture<T> implements Future<T> {
+    /**
+     * Converts a property value to the result of a future.
+     * @param <T> the type of the result
+     */
+    abstract static class Converter<T> {
+        /**
+         * Converts the property value.
+         * @param value the property value without the response header
+         * @return the converted value
+         * @throws SkypeException if the value can not be converted
+         */
+        abstract T convert(String value) throws SkypeException;
+    }
+
+    /** Returns the property value as it is. */
+    static final Converter<String> STRING = new Converter<String>() {
+        String convert(final String value) {
+            return value;
+        }
+    };
+
+    /** Converts a "TRUE" or "FALSE" property value. */
+    static final Converter<Boolean> BOOLEAN = new Converter<Boolean>() {
+        Boolean convert(final String value) {
+            return Boolean.valueOf(value);
+        }
+    };
+
+    /** Converts a UNIX timestamp property value. */
+    static final Converter<Date> UNIX_TIME = new Converter<Date>() {
+        Date convert(final String value) {
+            return Utils.parseUnixTime(value);
+        }
+    };
+
+    /** Ignores the property value, used for SET commands. */
+    static final Converter<Void> NONE = new Converter<Void>() {
+        Void convert(final String value) {
+            return null;
+        }
+    };
+
+    /** The future of the GET or SET command. */
+    private final CommandFuture commandFuture;
+    /** The response header to remove from the response. */
+    private final String responseHeader;
+    /** The converter of the property value. */
+    private final Converter<T> converter;
+
+    /**
+     * Constructor.
+     * @param newCommandFuture the future of the GET or SET command
+     * @param newResponseHeader the response header to remove from the response
+     * @param newConverter the converter of the property value
+     */
+    PropertyFuture(final CommandFuture newCommandFuture, final String newResponseHeader, final Converter<T> newConverter) {
+        commandFuture = newCommandFuture;
+        responseHeader = newResponseHeader;
+        converter = newConverter;
+    }
+
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+        return commandFuture.cancel(mayInterruptIfRunning);
+    }
+
+    public boolean isCancelled() {
+        return commandFuture.isCancelled();
+    }
+
+    public boolean isDone() {
+        return commandFuture.isDone();
+    }
+
+    public T get() throws InterruptedException, ExecutionException {
+        try {
+            return toResult(commandFuture.get());
+        } catch (ExecutionException e) {
+            throw toSkypeExecutionException(e);
+        }
+    }
+
+    public T get(final long timeout, final TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        try {
+            return toResult(commandFuture.get(timeout, unit));
+        } catch (ExecutionException e) {
+            throw toSkypeExecutionException(e);
+        }
+    }
+
+    private T toResult(final String response) throws ExecutionException {
+        try {
+            Utils.checkError(response);
+            if (response.length() < responseHeader.length()) {
+                return converter.convert(""); // disposed, actual response does not matter
+            }
+            return converter.convert(response.substring(responseHeader.length()));
+        } catch (SkypeException e) {
+            throw new ExecutionException(e);
+        }
+    }
+
+    /**
+     * Converts a failure of the underlying command to have a SkypeException as the cause.
+     * @param e the failure of the command
+     * @return the converted exception
+     */
+    private static ExecutionException toSkypeExecutionException(final ExecutionException e) {
+        if (e.getCause() instanceof ConnectorException) {
+            try {
+                Utils.convertToSkypeException((ConnectorException)e.getCause());
+            } catch (SkypeException converted) {
+                return new ExecutionException(converted);
+            }
+        }
+        return e;
+    }
+}
@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of properties of a Skype object fetched at once.
+ * @see User#fetch(String...)
+ * @see Chat#fetch(String...)
+ * @see ChatMessage#fetch(String...)
+ * @see Group#fetch(String...)
+ * @see Skype#fetchUsers(java.util.Collection, String...)
+ */
+public final class PropertySnapshot {
+    /** The type of the Skype object, like USER or CHATMESSAGE. */
+    private final String type;
+    /** The ID of the Skype object. */
+    private final String id;
+    /** The fetched property values by name. */
+    private final Map<String, String> values;
+
+    /**
+     * Constructor.
+     * @param newType the type of the Skype object
+     * @param newId the ID of the Skype object
+     * @param newValues the fetched property values by name, must not be modified afterwards
+     */
+    PropertySnapshot(final String newType, final String newId, final Map<String, String> newValues) {
+        type = newType;
+        id = newId;
+        values = Collections.unmodifiableMap(newValues);
+    }
+
+    /**
+     * Returns the type of the Skype object, like USER or CHATMESSAGE.
+     * @return the type
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Returns the ID of the Skype object.
+     * @return the ID
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Returns the names of the fetched properties.
+     * @return the property names
+     */
+    public Set<String> getPropertyNames() {
+        return values.keySet();
+    }
+
+    /**
+     * Indicates if the specified property has been fetched.
+     * @param name the property name, like FULLNAME
+     * @return true if the property is contained in this snapshot
+     */
+    public boolean contains(final String name) {
+        return values.containsKey(name);
+    }
+
+    /**
+     * Returns the value of the specified property.
+     * @param name the property name, like FULLNAME
+     * @return the property value
+     * @throws IllegalArgumentException if the property has not been fetched
+     */
+    public String getString(final String name) {
+        final String value = values.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("The " + name + " property has not been fetched.");
+        }
+        return value;
+    }
+
+    /**
+     * Returns the value of the specified "TRUE"/"FALSE" property.
+     * @param name the property name, like ISBLOCKED
+     * @return the property value
+     * @throws IllegalArgumentException if the property has not been fetched
+     */
+    public boolean getBoolean(final String name) {
+        return Boolean.parseBoolean(getString(name));
+    }
+
+    /**
+     * Returns the value of the specified numeric property.
+     * @param name the property name, like TIMEZONE
+     * @return the property value
+     * @throws IllegalArgumentException if the property has not been fetched
+     * @throws NumberFormatException if the property value is not a number
+     */
+    public int getInt(final String name) {
+        return Integer.parseInt(getString(name));
+    }
+
+    /**
+     * Returns the value of the specified UNIX timestamp property.
+     * @param name the property name, like TIMESTAMP
+     * @return the property value
+     * @throws IllegalArgumentException if the property has not been fetched
+     */
+    public Date getTime(final String name) {
+        return Utils.parseUnixTime(getString(name));
+    }
+
+    /**
+     * Returns the value of the specified enumerated property.
+     * @param enumType the enum of the property, like {@link User.Status}
+     * @param name the property name, like ONLINESTATUS
+     * @return the property value
+     * @throws IllegalArgumentException if the property has not been fetched or the value is not a constant of the enum
+     */
+    public <E extends Enum<E>> E getEnum(final Class<E> enumType, final String name) {
+        return Enum.valueOf(enumType, getString(name));
+    }
+
+    /**
+     * Provide the type, ID and values as string representation.
+     * @return the string representation
+     */
+    public String toString() {
+        return type + " " + id + " " + values;
+    }
+}
@@ -23,9 +23,10 @@
 package com.skype;
 
 import java.io.File;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.skype.connector.AbstractConnectorListener;
@@ -34,6 +35,8 @@ import com.skype.connector.Connector.Status;
 import com.skype.connector.ConnectorException;
 import com.skype.connector.ConnectorListener;
 import com.skype.connector.ConnectorMessageEvent;
+import com.skype.connector.Notification;
+import com.skype.connector.NotificationSubscriber;
 
 /**
  * Skype information model (not view) class of Skype4Java.
@@ -51,14 +54,33 @@ public class Skype {
     /** chatMessageListener lock. */
     private Object chatMessageListenerMutex = new Object();
     /** CHATMESSAGE listener. */
-    private ConnectorListener chatMessageListener;
+    private NotificationSubscriber chatMessageListener;
     /** Collection of listeners. */
     private List<ChatMessageListener> chatMessageListeners = new CopyOnWriteArrayList<ChatMessageListener>();
 
+    /** userListener lock. */
+    private Object userListenerMutex = new Object();
+    /** USER listener shared by all users with property change listeners. */
+    private NotificationSubscriber userListener;
+    /** The users with property change listeners by id. */
+    private final Map<String, User> watchedUsers = new ConcurrentHashMap<String, User>();
+
 	private Connector connector;
 
+    /** Decides how long property values of Skype objects are cached. */
+    private volatile PropertyCachePolicy propertyCachePolicy = new PropertyCachePolicy();
+    /** Holds the avatar images of users. */
+    private volatile AvatarCache avatarCache = new AvatarCache(Long.getLong("com.skype.Skype.avatarCacheSize", 4 * 1024 * 1024));
+    /** Updates the cached property values from the notifications of the Skype client. */
+    private final ConnectorListener propertyCacheListener = new AbstractConnectorListener() {
+        public void messageReceived(ConnectorMessageEvent event) {
+            updatePropertyCache(event.getNotification());
+        }
+    };
+
     public Skype(String user, String pass) {
     	connector = Connector.getInstance(this, user, pass);
+    	connector.addConnectorListener(propertyCacheListener, false);
 	}
     /**
      * Check if Skype client is installed on this computer.
@@ -123,6 +145,20 @@ public class Skype {
         return users;
     }
 
+    /**
+     * Fetch several properties of several users at once.
+     * All GET commands are pipelined, so this costs about one round trip instead of one per property and user.
+     * @param ids the Skype IDs of the users.
+     * @param propertyNames the property names, like {@code "FULLNAME"}.
+     * @return the immutable snapshots of the property values by Skype ID, in the order of the IDs,
+     *         without the users for which the Skype client replied with ERROR.
+     * @throws SkypeException when connection has gone bad.
+     * @see User#fetch(String...)
+     */
+    public Map<String, PropertySnapshot> fetchUsers(Collection<String> ids, String... propertyNames) throws SkypeException {
+        return Utils.fetchProperties(connector, "USER", ids, propertyNames);
+    }
+
     /**
      * Get the contactlist instance of this Skype session.
      * @return contactlist singleton.
@@ -257,6 +293,98 @@ public class Skype {
         Utils.executeWithErrorCheck(getConnector(),"CLEAR CHATHISTORY");
     }    
 
+    /**
+     * Set the policy which decides how long property values of Skype objects are cached.
+     * @param newValue the new policy.
+     * @see PropertyCachePolicy#setEnabled(boolean)
+     */
+    public void setPropertyCachePolicy(PropertyCachePolicy newValue) {
+        Utils.checkNotNull("newValue", newValue);
+        propertyCachePolicy = newValue;
+    }
+
+    /**
+     * Get the policy which decides how long property values of Skype objects are cached.
+     * @return the policy.
+     */
+    public PropertyCachePolicy getPropertyCachePolicy() {
+        return propertyCachePolicy;
+    }
+
+    /**
+     * Set the cache of the avatar images of users.
+     * @param newValue the new cache.
+     */
+    public void setAvatarCache(AvatarCache newValue) {
+        Utils.checkNotNull("newValue", newValue);
+        avatarCache = newValue;
+    }
+
+    /**
+     * Get the cache of the avatar images of users, for example to read its hit and miss counts.
+     * @return the cache.
+     */
+    public AvatarCache getAvatarCache() {
+        return avatarCache;
+    }
+
+    /**
+     * Update the cached property value of an existing Skype object from a notification
+     * like "USER echo123 ONLINESTATUS ONLINE".
+     * @param notification the received notification.
+     */
+    private void updatePropertyCache(Notification notification) {
+        CharSequence property = notification.getProperty();
+        if (property == null) {
+            return;
+        }
+        String type = getObjectType(notification);
+        if (type == null) {
+            return;
+        }
+        if ("USER".equals(type) && "AVATAR".contentEquals(property) && !isAvatarFileReply(notification.getValue())) {
+            avatarCache.invalidate(notification.getId().toString());
+        }
+        SkypeObject object = findObject(type, notification.getId().toString());
+        if (object != null) {
+            object.updateCachedProperty(type, property.toString(), notification.getValue().toString());
+        }
+    }
+
+    /**
+     * Check if an AVATAR value like "1 /tmp/avatar.jpg" is the reply to a "GET USER x AVATAR 1 path"
+     * command, which reports the file the avatar was written to rather than a changed avatar.
+     * The path may be empty, like in the "1 " reply of the Linux connector.
+     * @param value the value of the AVATAR notification.
+     * @return true if the value is an avatar index followed by a path.
+     */
+    private static boolean isAvatarFileReply(CharSequence value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == ' ') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return the type of the Skype objects with an identity cache a notification is about.
+     * @param notification the received notification.
+     * @return the type or null if the notification is about another type.
+     */
+    private static String getObjectType(Notification notification) {
+        if (notification.isType("USER")) {
+            return "USER";
+        } else if (notification.isType("CHATMESSAGE")) {
+            return "CHATMESSAGE";
+        } else if (notification.isType("CHAT")) {
+            return "CHAT";
+        } else if (notification.isType("GROUP")) {
+            return "GROUP";
+        }
+        return null;
+    }
+
     /**
      * Add a listener for CHATMESSAGE events received from the Skype API.
      * @param listener the Listener to add.
@@ -268,33 +396,27 @@ public class Skype {
         synchronized (chatMessageListenerMutex) {
             chatMessageListeners.add(listener);
             if (chatMessageListener == null) {
-                chatMessageListener = new AbstractConnectorListener() {
-                    public void messageReceived(ConnectorMessageEvent event) {
-                        String message = event.getMessage();
-                        if (message.startsWith("CHATMESSAGE ")) {
-                            String data = message.substring("CHATMESSAGE ".length());
-                            String id = data.substring(0, data.indexOf(' '));
-                            String propertyNameAndValue = data.substring(data.indexOf(' ') + 1);
-                            String propertyName = propertyNameAndValue.substring(0, propertyNameAndValue.indexOf(' '));
-                            if ("STATUS".equals(propertyName)) {
-                                String propertyValue = propertyNameAndValue.substring(propertyNameAndValue.indexOf(' ') + 1);
-                                ChatMessageListener[] listeners = chatMessageListeners.toArray(new ChatMessageListener[0]);
-                                ChatMessage chatMessage = getChatMessage(id);
-                                if ("SENT".equals(propertyValue)) {
-                                    for (ChatMessageListener listener : listeners) {
-                                            listener.chatMessageSent(chatMessage);
-                                    }
-                                } else if ("RECEIVED".equals(propertyValue)) {
-                                    for (ChatMessageListener listener : listeners) {
-                                            listener.chatMessageReceived(chatMessage);
-                                    }
-                                }
+                chatMessageListener = new NotificationSubscriber() {
+                    public void notificationReceived(Notification notification) {
+                        boolean sent = notification.isValue("SENT");
+                        if (!sent && !notification.isValue("RECEIVED")) {
+                            return;
+                        }
+                        ChatMessageListener[] listeners = chatMessageListeners.toArray(new ChatMessageListener[0]);
+                        ChatMessage chatMessage = getChatMessage(notification.getId().toString());
+                        if (sent) {
+                            for (ChatMessageListener listener : listeners) {
+                                    listener.chatMessageSent(chatMessage);
+                            }
+                        } else {
+                            for (ChatMessageListener listener : listeners) {
+                                    listener.chatMessageReceived(chatMessage);
                             }
                         }
                     }
                 };
                 try {
-                    connector.addConnectorListener(chatMessageListener);
+                    connector.addNotificationSubscriber("CHATMESSAGE", null, "STATUS", chatMessageListener);
                 } catch (ConnectorException e) {
                     Utils.convertToSkypeException(e);
                 }
@@ -312,17 +434,57 @@ public class Skype {
         Utils.checkNotNull("listener", listener);
         synchronized (chatMessageListenerMutex) {
             chatMessageListeners.remove(listener);
-            if (chatMessageListeners.isEmpty()) {
-                connector.removeConnectorListener(chatMessageListener);
+            if (chatMessageListeners.isEmpty() && chatMessageListener != null) {
+                connector.removeNotificationSubscriber("CHATMESSAGE", null, "STATUS", chatMessageListener);
                 chatMessageListener = null;
             }
         }
     }
 
+    /**
+     * Start firing property changes of a user from USER notifications.
+     * All users share one subscriber, which looks up the user of a notification by id,
+     * so the cost per notification does not depend on the number of watched users.
+     * @param user the user with property change listeners.
+     * @throws ConnectorException when the connector could not attach.
+     */
+    void watchUser(User user) throws ConnectorException {
+        watchedUsers.put(user.getId(), user);
+        synchronized (userListenerMutex) {
+            if (userListener == null) {
+                NotificationSubscriber subscriber = new NotificationSubscriber() {
+                    public void notificationReceived(Notification notification) {
+                        User user = watchedUsers.get(notification.getId().toString());
+                        if (user == null) {
+                            return;
+                        }
+                        if (notification.isProperty("ONLINESTATUS")) {
+                            user.firePropertyChanged(User.STATUS_PROPERTY, null, User.Status.valueOf(notification.getValue().toString()));
+                        } else if (notification.isProperty("MOOD_TEXT")) {
+                            user.firePropertyChanged(User.MOOD_TEXT_PROPERTY, null, notification.getValue().toString());
+                        }
+                    }
+                };
+                userListener = subscriber;
+                connector.addNotificationSubscriber("USER", null, "ONLINESTATUS", subscriber, false);
+                connector.addNotificationSubscriber("USER", null, "MOOD_TEXT", subscriber);
+            }
+        }
+    }
+
+    /**
+     * Stop firing property changes of a user.
+     * @param user the user without property change listeners.
+     */
+    void unwatchUser(User user) {
+        watchedUsers.remove(user.getId());
+    }
+
     public void removeAllListeners() {
         synchronized(chatMessageListenerMutex) {
             chatMessageListeners.clear();
         }
+        watchedUsers.clear();
     }
 
 	public void dispose() {
@@ -352,69 +514,156 @@ public class Skype {
 		return connector.connect();
 	}
 
-	private final Map<String, User> idToUsers = new HashMap<String, User>();
+	/** The factory of the User objects. */
+	private final IdentityCache.Factory<User> userFactory = new IdentityCache.Factory<User>() {
+		public User create(String id) {
+			return new User(connector, id);
+		}
+	};
+	private volatile IdentityCache<User> userCache = new LruIdentityCache<User>(Integer.getInteger("com.skype.Skype.userCacheSize", 1000));
     /**
      * Return User based on ID.
      * @param id ID of the User.
      * @return The user found.
      */
     public User getUser(final String anId) {
-    	synchronized (idToUsers) {
-    		User user = idToUsers.get(anId);
-    		if(user == null) {
-    			user = new User(connector, anId);
-    			idToUsers.put(anId, user);
-    		}
-    		return user;
-		}
+    	return userCache.get(anId, userFactory);
     }
 
-	private final Map<String, ChatMessage> idToChatMessages = new HashMap<String, ChatMessage>();
+	/** The factory of the ChatMessage objects. */
+	private final IdentityCache.Factory<ChatMessage> chatMessageFactory = new IdentityCache.Factory<ChatMessage>() {
+		public ChatMessage create(String id) {
+			return new ChatMessage(connector, id);
+		}
+	};
+	private volatile IdentityCache<ChatMessage> chatMessageCache = new LruIdentityCache<ChatMessage>(Integer.getInteger("com.skype.Skype.chatMessageCacheSize", 1000));
 	/**
 	 * @param string
 	 * @return
 	 */
 	public ChatMessage getChatMessage(final String anId) {
-		synchronized (idToChatMessages) {
-			ChatMessage chatMessage = idToChatMessages.get(anId);
-			if(chatMessage == null) {
-				chatMessage = new ChatMessage(connector, anId);
-				idToChatMessages.put(anId, chatMessage);
-			}
-			return chatMessage;
-		}
+		return chatMessageCache.get(anId, chatMessageFactory);
 	}
 
-	private final Map<String, Chat> idToChats = new HashMap<String, Chat>();
+	/** The factory of the Chat objects. */
+	private final IdentityCache.Factory<Chat> chatFactory = new IdentityCache.Factory<Chat>() {
+		public Chat create(String id) {
+			return new Chat(connector, id);
+		}
+	};
+	private volatile IdentityCache<Chat> chatCache = new LruIdentityCache<Chat>(Integer.getInteger("com.skype.Skype.chatCacheSize", 1000));
     /**
      * @param id
      * @return
      */
     public Chat getChat(final String anId) {
-    	synchronized (idToChats) {
-    		Chat chat = idToChats.get(anId);
-    		if(chat == null) {
-    			chat = new Chat(connector, anId);
-    			idToChats.put(anId, chat);
-    		}
-    		return chat;
-		}
+    	return chatCache.get(anId, chatFactory);
 	}
     
-	private final Map<String, Group> idToGroups = new HashMap<String, Group>();
+	/** The factory of the Group objects. */
+	private final IdentityCache.Factory<Group> groupFactory = new IdentityCache.Factory<Group>() {
+		public Group create(String id) {
+			return new Group(connector, id);
+		}
+	};
+	private volatile IdentityCache<Group> groupCache = new LruIdentityCache<Group>(Integer.getInteger("com.skype.Skype.groupCacheSize", 100));
 	/**
 	 * @param id
 	 * @return
 	 */
 	public Group getGroup(final String anId) {
-    	synchronized (idToGroups) {
-    		Group group = idToGroups.get(anId);
-    		if(group == null) {
-    			group = new Group(connector, anId);
-    			idToGroups.put(anId, group);
-    		}
-    		return group;
+		return groupCache.get(anId, groupFactory);
+	}
+
+	/**
+	 * Set the cache of the User objects.
+	 * Should be called before the first User is requested because objects of the old cache are not carried over.
+	 * @param newValue the new cache.
+	 */
+	public void setUserCache(IdentityCache<User> newValue) {
+		Utils.checkNotNull("newValue", newValue);
+		userCache = newValue;
+	}
+
+	/**
+	 * Return the cache of the User objects, for example to read its hit and miss counts.
+	 * @return the cache.
+	 */
+	public IdentityCache<User> getUserCache() {
+		return userCache;
+	}
+
+	/**
+	 * Set the cache of the ChatMessage objects.
+	 * Should be called before the first ChatMessage is requested because objects of the old cache are not carried over.
+	 * @param newValue the new cache.
+	 */
+	public void setChatMessageCache(IdentityCache<ChatMessage> newValue) {
+		Utils.checkNotNull("newValue", newValue);
+		chatMessageCache = newValue;
+	}
+
+	/**
+	 * Return the cache of the ChatMessage objects, for example to read its hit and miss counts.
+	 * @return the cache.
+	 */
+	public IdentityCache<ChatMessage> getChatMessageCache() {
+		return chatMessageCache;
+	}
+
+	/**
+	 * Set the cache of the Chat objects.
+	 * Should be called before the first Chat is requested because objects of the old cache are not carried over.
+	 * @param newValue the new cache.
+	 */
+	public void setChatCache(IdentityCache<Chat> newValue) {
+		Utils.checkNotNull("newValue", newValue);
+		chatCache = newValue;
+	}
+
+	/**
+	 * Return the cache of the Chat objects, for example to read its hit and miss counts.
+	 * @return the cache.
+	 */
+	public IdentityCache<Chat> getChatCache() {
+		return chatCache;
+	}
+
+	/**
+	 * Set the cache of the Group objects.
+	 * Should be called before the first Group is requested because objects of the old cache are not carried over.
+	 * @param newValue the new cache.
+	 */
+	public void setGroupCache(IdentityCache<Group> newValue) {
+		Utils.checkNotNull("newValue", newValue);
+		groupCache = newValue;
+	}
+
+	/**
+	 * Return the cache of the Group objects, for example to read its hit and miss counts.
+	 * @return the cache.
+	 */
+	public IdentityCache<Group> getGroupCache() {
+		return groupCache;
+	}
+
+	/**
+	 * Return an existing Skype object without creating it.
+	 * @param type the Skype object type.
+	 * @param anId the Skype object id.
+	 * @return the object or null if there is none for the id.
+	 */
+	private SkypeObject findObject(final String type, final String anId) {
+		if ("USER".equals(type)) {
+			return userCache.getIfPresent(anId);
+		} else if ("CHATMESSAGE".equals(type)) {
+			return chatMessageCache.getIfPresent(anId);
+		} else if ("CHAT".equals(type)) {
+			return chatCache.getIfPresent(anId);
+		} else if ("GROUP".equals(type)) {
+			return groupCache.getIfPresent(anId);
 		}
+		return null;
 	}
 	
 	public boolean isDisposed() {
@@ -24,6 +24,7 @@ package com.skype;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.skype.connector.Connector;
 
@@ -45,6 +46,17 @@ class SkypeObject {
      */
     private Map<String, Object> userDataMap = Collections.synchronizedMap(new HashMap<String, Object>());
 
+    /**
+     * Map of cached property values by property name.
+     */
+    private final Map<String, CachedProperty> propertyCache = new ConcurrentHashMap<String, CachedProperty>();
+
+    /**
+     * Counts the updates and removals of cached values, so a fetched value which
+     * may be older than a notification is not cached. Changed while holding the cache lock.
+     */
+    private volatile long propertyCacheVersion;
+
     protected final Connector connector;
     
     public SkypeObject(final Connector aConnector) {
@@ -73,6 +85,98 @@ class SkypeObject {
         userDataMap.put(name, userData);
     }
     
+    /**
+     * Get a property value of this object, from the cache if possible.
+     * @param type the Skype object type.
+     * @param id the Skype object id.
+     * @param name the property name.
+     * @return the property value.
+     * @throws SkypeException when connection to Skype client has gone bad or reply contains ERROR.
+     * @see PropertyCachePolicy
+     */
+    final String getCachedProperty(final String type, final String id, final String name) throws SkypeException {
+        final long timeToLive = getTimeToLive(type, name);
+        if (timeToLive == PropertyCachePolicy.NOT_CACHED) {
+            return Utils.getProperty(connector, type, id, name);
+        }
+        final long now = System.currentTimeMillis();
+        final CachedProperty cached = propertyCache.get(name);
+        if (cached != null && now < cached.expirationTime) {
+            return cached.value;
+        }
+        final long version = propertyCacheVersion;
+        final String value = Utils.getProperty(connector, type, id, name);
+        synchronized (propertyCache) {
+            // a notification received while the GET was pending may be newer than the reply
+            if (propertyCacheVersion == version) {
+                propertyCache.put(name, new CachedProperty(value, now, timeToLive));
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Updates the cached value of a property after a notification of the Skype client.
+     * @param type the Skype object type.
+     * @param name the property name.
+     * @param value the new property value.
+     */
+    final void updateCachedProperty(final String type, final String name, final String value) {
+        final long timeToLive = getTimeToLive(type, name);
+        synchronized (propertyCache) {
+            propertyCacheVersion++;
+            if (timeToLive == PropertyCachePolicy.NOT_CACHED) {
+                propertyCache.remove(name);
+            } else {
+                propertyCache.put(name, new CachedProperty(value, System.currentTimeMillis(), timeToLive));
+            }
+        }
+    }
+
+    /**
+     * Updates the cached values of the properties of a fetched snapshot.
+     * @param snapshot the fetched property values of this object.
+     * @return the snapshot.
+     */
+    final PropertySnapshot updateCachedProperties(final PropertySnapshot snapshot) {
+        for (String name : snapshot.getPropertyNames()) {
+            updateCachedProperty(snapshot.getType(), name, snapshot.getString(name));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Removes the cached value of a property, for example after it has been set.
+     * @param name the property name.
+     */
+    final void invalidateCachedProperty(final String name) {
+        synchronized (propertyCache) {
+            propertyCacheVersion++;
+            propertyCache.remove(name);
+        }
+    }
+
+    private long getTimeToLive(final String type, final String name) {
+        final Skype skype = connector.getSkype();
+        if (skype == null) {
+            return PropertyCachePolicy.NOT_CACHED;
+        }
+        return skype.getPropertyCachePolicy().getTimeToLive(type, name);
+    }
+
+    /**
+     * A cached property value.
+     */
+    private static final class CachedProperty {
+        private final String value;
+        private final long expirationTime;
+
+        CachedProperty(final String newValue, final long now, final long timeToLive) {
+            value = newValue;
+            expirationTime = Long.MAX_VALUE - now <= timeToLive ? Long.MAX_VALUE : now + timeToLive;
+        }
+    }
+
     /**
      * Copy the contents of another object to this.
      * @param base the Object to copy from.
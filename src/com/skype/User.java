@@ -24,22 +24,16 @@ package com.skype;
 import java.awt.image.BufferedImage;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
-import java.io.File;
-import java.io.IOException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.Future;
 
-import javax.imageio.ImageIO;
-
-import com.skype.connector.AbstractConnectorListener;
 import com.skype.connector.Connector;
 import com.skype.connector.ConnectorException;
-import com.skype.connector.ConnectorListener;
-import com.skype.connector.ConnectorMessageEvent;
 
 /**
  * The <code>User</code> class contains the skype user's information.
@@ -160,11 +154,17 @@ public class User extends SkypeObject {
         ADDED
     }
 
+    /** Converts the ONLINESTATUS property. */
+    private static final PropertyFuture.Converter<Status> STATUS_CONVERTER = new PropertyFuture.Converter<Status>() {
+        Status convert(String value) {
+            return Status.valueOf(value);
+        }
+    };
+
     /** ID of this User. */
     private String id;
     
     private Object propertyChangeListenerMutex = new Object();
-    private ConnectorListener propertyChangeListener;
     private PropertyChangeSupport listeners = new PropertyChangeSupport(this);
 
     /**
@@ -214,6 +214,17 @@ public class User extends SkypeObject {
         return id;
     }
 
+    /**
+     * Fetch several properties of this User at once.
+     * All GET commands are pipelined, so this costs about one round trip instead of one per property.
+     * @param propertyNames the property names, like {@code "FULLNAME"}.
+     * @return the immutable snapshot of the property values.
+     * @throws SkypeException when connection to Skype client has gone bad or an ERROR message is received.
+     */
+    public final PropertySnapshot fetch(String... propertyNames) throws SkypeException {
+        return updateCachedProperties(Utils.fetchProperties(connector, "USER", getId(), propertyNames));
+    }
+
     /**
      * Return full name of this User.
      * @return String with fullname.
@@ -223,6 +234,15 @@ public class User extends SkypeObject {
         return getProperty("FULLNAME");
     }
 
+    /**
+     * Return full name of this User without blocking.
+     * @return the future of the full name.
+     * @throws SkypeException when connection to Skype client has gone bad.
+     */
+    public final Future<String> getFullNameAsync() throws SkypeException {
+        return getPropertyAsync("FULLNAME", PropertyFuture.STRING);
+    }
+
     /**
      * Return the birthdate of this User.
      * @return Date of birthday.
@@ -269,6 +289,15 @@ public class User extends SkypeObject {
         return Status.valueOf(getProperty("ONLINESTATUS"));
     }
 
+    /**
+     * Return the online status of this User without blocking.
+     * @return the future of the online status.
+     * @throws SkypeException when connection to Skype client has gone bad.
+     */
+    public final Future<Status> getStatusAsync() throws SkypeException {
+        return getPropertyAsync("ONLINESTATUS", STATUS_CONVERTER);
+    }
+
 
     /**
      * Return last online time (UNIX timestamp).
@@ -453,6 +482,15 @@ public class User extends SkypeObject {
         return getProperty("MOOD_TEXT");
     }
 
+    /**
+     * Return the mood message of this user without blocking.
+     * @return the future of the mood message.
+     * @throws SkypeException when connection to Skype client has gone bad.
+     */
+    public final Future<String> getMoodMessageAsync() throws SkypeException {
+        return getPropertyAsync("MOOD_TEXT", PropertyFuture.STRING);
+    }
+
     /**
      * Gets the speed dial of this user.
      * @return the speed dial of this user.
@@ -492,6 +530,15 @@ public class User extends SkypeObject {
         return getProperty("DISPLAYNAME");
     }
 
+    /**
+     * Return the displayname of this User without blocking.
+     * @return the future of the displayname.
+     * @throws SkypeException when connection to Skype client has gone bad.
+     */
+    public final Future<String> getDisplayNameAsync() throws SkypeException {
+        return getPropertyAsync("DISPLAYNAME", PropertyFuture.STRING);
+    }
+
     /**
      * Check if this User has a Skype client that can do video chats.
      * @return true if User can do videochats.
@@ -516,6 +563,7 @@ public class User extends SkypeObject {
             String responseHeader = "USER" + " " + getId() + " " + "BUDDYSTATUS";
             String response = connector.execute(command, responseHeader);
             Utils.checkError(response);
+            invalidateCachedProperty("BUDDYSTATUS");
         } catch (ConnectorException e) {
             Utils.convertToSkypeException(e);
         }
@@ -586,23 +634,32 @@ public class User extends SkypeObject {
      * @since Protocol 7
      */
     public BufferedImage getAvatar() throws SkypeException {
-        try {
-            final File file = Utils.createTempraryFile("get_avator_", "jpg");
-            final String command = "GET USER " + getId() + " AVATAR 1 " + file.getAbsolutePath();
-            final String responseHeader = "USER " + getId() + " AVATAR 1 ";
-            final String response = connector.execute(command, responseHeader);
-            Utils.checkError(response);
-            final BufferedImage image = ImageIO.read(file);
-            file.delete();
-            return image;
-        } catch(ConnectorException e) {
-            Utils.convertToSkypeException(e);
-            return null;
-        } catch(IOException e) {
-            return null;
-        }
+        return Utils.decodeImage(getAvatarBytes());
+    }
+
+    /**
+     * Gets the avatar of this user as JPEG bytes.
+     * The bytes are kept in the {@link AvatarCache} of the Skype instance, so repeated calls do not reach the Skype client.
+     * @return the JPEG bytes, which must not be modified, or null if there is no avatar.
+     * @throws SkypeException when the connection has gone bad or an ERROR message is received.
+     * @since Protocol 7
+     * @see Skype#getAvatarCache()
+     */
+    public byte[] getAvatarBytes() throws SkypeException {
+        return Utils.getAvatar(connector, getId(), "GET USER " + getId() + " AVATAR 1", "USER " + getId() + " AVATAR 1 ");
     }
     
+    /**
+     * Method used by other methods to retrieve a property value from Skype client without blocking.
+     * @param name name of the property.
+     * @param converter the converter of the property value.
+     * @return the future of the property value.
+     * @throws SkypeException when connection to Skype client has gone bad.
+     */
+    private <T> Future<T> getPropertyAsync(String name, PropertyFuture.Converter<T> converter) throws SkypeException {
+        return Utils.getPropertyAsync(connector, "USER", getId(), name, converter);
+    }
+
     /**
      * Method used by other methods to retrieve a property value from Skype client.
      * @param name name of the property.
@@ -610,7 +667,7 @@ public class User extends SkypeObject {
      * @throws SkypeException when connection to Skype client has gone bad.
      */
     private String getProperty(String name) throws SkypeException {
-        return Utils.getProperty(connector, "USER", getId(), name);
+        return getCachedProperty("USER", getId(), name);
     }
 
     private void setProperty(String name, boolean newValue) throws SkypeException {
@@ -619,6 +676,7 @@ public class User extends SkypeObject {
     
     private void setProperty(String name, String newValue) throws SkypeException {
         Utils.setProperty(connector, "USER", getId(), name, newValue);
+        invalidateCachedProperty(name);
     }
 
     /**
@@ -646,7 +704,7 @@ public class User extends SkypeObject {
      * @throws SkypeException  when connection to Skype client has gone bad.
      */
     public final void setDisplayName(String newValue) throws SkypeException {
-        Utils.setProperty(connector, "USER", getId(), "DISPLAYNAME", newValue);
+        setProperty("DISPLAYNAME", newValue);
     }
 
     /**
@@ -684,7 +742,7 @@ public class User extends SkypeObject {
         }
     }
     
-    private void firePropertyChanged(String propertyName, Object oldValue, Object newValue) {
+    void firePropertyChanged(String propertyName, Object oldValue, Object newValue) {
         listeners.firePropertyChange(propertyName, oldValue, newValue);
     }
     
@@ -704,37 +762,13 @@ public class User extends SkypeObject {
      */
     public final void addPropertyChangeListener(PropertyChangeListener listener) throws SkypeException {
         synchronized (propertyChangeListenerMutex) {
-            if (propertyChangeListener == null) {
-                ConnectorListener connectorListener = new AbstractConnectorListener() {
-                    @Override
-                    public void messageReceived(ConnectorMessageEvent event) {
-                        String message = event.getMessage();
-                        if (message.startsWith("USER ")) {
-                            String data = message.substring("USER ".length());
-                            String skypeId = data.substring(0, data.indexOf(' '));
-                            if(!User.this.id.equals(skypeId)) {
-                            	return;
-                            }
-                            data = data.substring(data.indexOf(' ') + 1);
-                            String propertyName = data.substring(0, data.indexOf(' '));
-                            String propertyValue = data.substring(data.indexOf(' ') + 1);
-                            if (propertyName.equals("ONLINESTATUS")) {
-                            	connector.getSkype().getUser(skypeId).firePropertyChanged(STATUS_PROPERTY, null, Status.valueOf(propertyValue));
-                            } else if (propertyName.equals("MOOD_TEXT")) {
-                            	connector.getSkype().getUser(skypeId).firePropertyChanged(MOOD_TEXT_PROPERTY, null, propertyValue);
-                            }
-                        }
-                    }
-                };
-                try {
-                    connector.addConnectorListener(connectorListener);
-                    propertyChangeListener = connectorListener;
-                } catch(ConnectorException e) {
-                    Utils.convertToSkypeException(e);
-                }
+            listeners.addPropertyChangeListener(listener);
+            try {
+                connector.getSkype().watchUser(this);
+            } catch(ConnectorException e) {
+                Utils.convertToSkypeException(e);
             }
         }
-        listeners.addPropertyChangeListener(listener);
     }
     
     /**
@@ -746,7 +780,12 @@ public class User extends SkypeObject {
      * @see #addPropertyChangeListener(PropertyChangeListener)
      */
     public final void removePropertyChangeListener(PropertyChangeListener listener) {
-        listeners.removePropertyChangeListener(listener);
+        synchronized (propertyChangeListenerMutex) {
+            listeners.removePropertyChangeListener(listener);
+            if (listeners.getPropertyChangeListeners().length == 0) {
+                connector.getSkype().unwatchUser(this);
+            }
+        }
     }
     
     public final void removeAllPropertyChangeListener() {
@@ -21,12 +21,30 @@
  ******************************************************************************/
 package com.skype;
 
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.TimeZone;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
+import javax.imageio.ImageIO;
+
+import com.skype.connector.AvatarProvider;
 import com.skype.connector.Connector;
 import com.skype.connector.ConnectorException;
 
@@ -120,6 +138,119 @@ final class Utils {
         }
     }
 
+    /**
+     * Get a Skype object property based on a type, an id and a name without blocking.
+     * @param type the Skype object type.
+     * @param id the Skype object id.
+     * @param name the property name.
+     * @return the future of the property value.
+     * @throws SkypeException when connection to Skype client has gone bad.
+     */
+    static Future<String> getPropertyAsync(Connector connector, String type, String id, String name) throws SkypeException {
+        return getPropertyAsync(connector, type, id, name, PropertyFuture.STRING);
+    }
+
+    /**
+     * Get a Skype object property based on a type, an id and a name without blocking.
+     * @param type the Skype object type.
+     * @param id the Skype object id.
+     * @param name the property name.
+     * @param converter the converter of the property value.
+     * @return the future of the converted property value.
+     * @throws SkypeException when connection to Skype client has gone bad.
+     */
+    static <T> Future<T> getPropertyAsync(Connector connector, String type, String id, String name, PropertyFuture.Converter<T> converter) throws SkypeException {
+        try {
+            String command = "GET " + type + " " + id + " " + name;
+            String responseHeader = type + " " + id + " " + name + " ";
+            return new PropertyFuture<T>(connector.executeWithIdAsync(command, responseHeader), responseHeader, converter);
+        } catch (ConnectorException e) {
+            convertToSkypeException(e);
+            return null;
+        }
+    }
+
+    /**
+     * Get several properties of a Skype object at once.
+     * All GET commands are sent before the first response is waited for,
+     * so fetching costs about one round trip instead of one per property.
+     * @param type the Skype object type.
+     * @param id the Skype object id.
+     * @param names the property names.
+     * @return the snapshot of the property values.
+     * @throws SkypeException when connection to Skype client has gone bad or reply contains ERROR.
+     */
+    static PropertySnapshot fetchProperties(Connector connector, String type, String id, String... names) throws SkypeException {
+        return fetchProperties(connector, type, Collections.singletonList(id), names, false).get(id);
+    }
+
+    /**
+     * Get several properties of several Skype objects of the same type at once.
+     * All GET commands are sent before the first response is waited for.
+     * Objects for which a GET gets an ERROR reply, like unknown users, are left out.
+     * @param type the Skype object type.
+     * @param ids the Skype object ids.
+     * @param names the property names.
+     * @return the snapshots of the property values by id, in the order of the ids.
+     * @throws SkypeException when connection to Skype client has gone bad.
+     */
+    static Map<String, PropertySnapshot> fetchProperties(Connector connector, String type, Collection<String> ids, String... names) throws SkypeException {
+        return fetchProperties(connector, type, ids, names, true);
+    }
+
+    private static Map<String, PropertySnapshot> fetchProperties(Connector connector, String type, Collection<String> ids, String[] names, boolean skipFailed) throws SkypeException {
+        checkNotNull("ids", ids);
+        checkNotNull("names", names);
+        Map<String, List<Future<String>>> idToFutures = new LinkedHashMap<String, List<Future<String>>>();
+        for (String id : ids) {
+            List<Future<String>> futures = new ArrayList<Future<String>>(names.length);
+            for (String name : names) {
+                futures.add(getPropertyAsync(connector, type, id, name));
+            }
+            idToFutures.put(id, futures);
+        }
+        Map<String, PropertySnapshot> snapshots = new LinkedHashMap<String, PropertySnapshot>();
+        for (Map.Entry<String, List<Future<String>>> entry : idToFutures.entrySet()) {
+            Map<String, String> values = new LinkedHashMap<String, String>();
+            List<Future<String>> futures = entry.getValue();
+            boolean failed = false;
+            for (int i = 0; i < names.length; i++) {
+                try {
+                    values.put(names[i], getResult(futures.get(i)));
+                } catch (CommandFailedException e) {
+                    if (!skipFailed) {
+                        throw e;
+                    }
+                    failed = true;
+                }
+            }
+            if (!failed) {
+                snapshots.put(entry.getKey(), new PropertySnapshot(type, entry.getKey(), values));
+            }
+        }
+        return Collections.unmodifiableMap(snapshots);
+    }
+
+    /**
+     * Wait for the result of a property future.
+     * @param future the future of the property value.
+     * @return the property value.
+     * @throws SkypeException when connection to Skype client has gone bad or reply contains ERROR.
+     */
+    static <T> T getResult(Future<T> future) throws SkypeException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SkypeException("Waiting for the property was interrupted.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SkypeException) {
+                throw (SkypeException)e.getCause();
+            }
+            throw new SkypeException("Getting the property failed.", e.getCause());
+        }
+    }
+
     /**
      * Get a Skype object property based on a type and a name.
      * @param type the Skype object type.
@@ -180,6 +311,26 @@ final class Utils {
         }
     }
 
+    /**
+     * Set the value of a property of a Skype object without blocking.
+     * @param type the Skype object.
+     * @param id the id of the Skype object.
+     * @param name name of the property.
+     * @param value value to set to property to.
+     * @return the future which is done when the property has been set.
+     * @throws SkypeException when connection to Skype client has gone bad.
+     */
+    static Future<Void> setPropertyAsync(Connector connector, String type, String id, String name, String value) throws SkypeException {
+        try {
+            String command = "SET " + type + " " + id + " " + name + " " + value;
+            String responseHeader = type + " " + id + " " + name + " " + value;
+            return new PropertyFuture<Void>(connector.executeWithIdAsync(command, responseHeader), responseHeader, PropertyFuture.NONE);
+        } catch (ConnectorException e) {
+            convertToSkypeException(e);
+            return null;
+        }
+    }
+
     /**
      * Set the value of a property of a Skype object.
      * @param type the type of Skype object.
@@ -288,6 +439,115 @@ final class Utils {
         return new File(System.getProperty("java.io.tmpdir"), header + UUID.randomUUID().toString() + "." + extension);
     }
 
+    /**
+     * Get the avatar of a user from the avatar cache, else from the avatar provider of the connector,
+     * else from the Skype client.
+     * @param connector the connector to the Skype client.
+     * @param id the Skype id of the user, used as the cache key.
+     * @param command the command which makes the Skype client write the avatar to a file, without the file path.
+     * @param responseHeader the expected response header.
+     * @return the JPEG bytes, or null if there is no avatar.
+     * @throws SkypeException when connection to Skype client has gone bad or reply contains ERROR.
+     */
+    static byte[] getAvatar(Connector connector, String id, String command, String responseHeader) throws SkypeException {
+        AvatarCache cache = getAvatarCache(connector);
+        byte[] image = cache == null ? null : cache.get(id);
+        if (image != null) {
+            return image;
+        }
+        AvatarProvider provider = connector.getAvatarProvider();
+        if (provider != null) {
+            try {
+                image = toByteArray(provider.getAvatar(id));
+            } catch (ConnectorException e) {
+                convertToSkypeException(e);
+                return null;
+            }
+        } else {
+            image = readAvatarFile(connector, command, responseHeader);
+        }
+        if (image != null && cache != null) {
+            cache.put(id, image);
+        }
+        return image;
+    }
+
+    /**
+     * Let the Skype client write an avatar to a temporary file and read it.
+     */
+    private static byte[] readAvatarFile(Connector connector, String command, String responseHeader) throws SkypeException {
+        File file = createTempraryFile("get_avator_", "jpg");
+        try {
+            String response = connector.execute(command + " " + file.getAbsolutePath(), responseHeader);
+            checkError(response);
+            return readFile(file);
+        } catch (ConnectorException e) {
+            convertToSkypeException(e);
+            return null;
+        } catch (IOException e) {
+            return null;
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static byte[] toByteArray(ByteBuffer buffer) {
+        if (buffer == null) {
+            return null;
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Remove the avatar of a user from the avatar cache.
+     * @param connector the connector to the Skype client.
+     * @param id the Skype id of the user.
+     */
+    static void invalidateAvatar(Connector connector, String id) {
+        AvatarCache cache = getAvatarCache(connector);
+        if (cache != null) {
+            cache.invalidate(id);
+        }
+    }
+
+    private static AvatarCache getAvatarCache(Connector connector) {
+        Skype skype = connector.getSkype();
+        return skype == null ? null : skype.getAvatarCache();
+    }
+
+    /**
+     * Decode a JPEG image.
+     * @param image the JPEG bytes, may be null.
+     * @return the image or null if there are no bytes or they could not be decoded.
+     */
+    static BufferedImage decodeImage(byte[] image) {
+        if (image == null) {
+            return null;
+        }
+        try {
+            return ImageIO.read(new ByteArrayInputStream(image));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int)file.length());
+            byte[] buffer = new byte[8192];
+            int length;
+            while ((length = in.read(buffer)) != -1) {
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
     /**
      * Private constructor.
      * Methods should be used staticly.
@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Identity cache which holds its objects weakly.
+ * <p>
+ * An object stays cached as long as the application references it, and is
+ * dropped by the next cache miss after the garbage collector has collected it.
+ * </p>
+ * <p>
+ * Lookups of cached objects take no lock. A missing object is created under one
+ * of a fixed number of lock stripes, so it is created exactly once per ID.
+ * </p>
+ */
+public class WeakIdentityCache<T> implements IdentityCache<T> {
+    /** The number of locks used to create missing objects, a power of two. */
+    private static final int LOCK_STRIPES = 32;
+
+    /** The weak references to the cached objects by ID. */
+    private final ConcurrentMap<String, IdReference<T>> idToReferences = new ConcurrentHashMap<String, IdReference<T>>();
+    /** The locks used to create missing objects, selected by the hash of the ID. */
+    private final Object[] creationLocks = new Object[LOCK_STRIPES];
+    /** The queue of the references whose objects have been collected. */
+    private final ReferenceQueue<T> collectedReferences = new ReferenceQueue<T>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public WeakIdentityCache() {
+        for (int i = 0; i < creationLocks.length; i++) {
+            creationLocks[i] = new Object();
+        }
+    }
+
+    public final T get(String id, Factory<T> factory) {
+        Utils.checkNotNull("id", id);
+        Utils.checkNotNull("factory", factory);
+        T object = lookup(id);
+        if (object == null) {
+            synchronized (getCreationLock(id)) {
+                removeCollectedReferences();
+                object = lookup(id);
+                if (object == null) {
+                    missCount.incrementAndGet();
+                    object = factory.create(id);
+                    idToReferences.put(id, new IdReference<T>(id, object, collectedReferences));
+                    accessed(id, object);
+                    return object;
+                }
+            }
+        }
+        hitCount.incrementAndGet();
+        accessed(id, object);
+        return object;
+    }
+
+    public final T getIfPresent(String id) {
+        Utils.checkNotNull("id", id);
+        return lookup(id);
+    }
+
+    public final int size() {
+        removeCollectedReferences();
+        return idToReferences.size();
+    }
+
+    public final void clear() {
+        idToReferences.clear();
+        cleared();
+    }
+
+    public final long getHitCount() {
+        return hitCount.get();
+    }
+
+    public final long getMissCount() {
+        return missCount.get();
+    }
+
+    public final long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Called each time an object is returned by {@link #get(String, Factory)}.
+     * Subclasses can keep strong references to objects which should not be collected yet.
+     * This is called concurrently and without a lock, so it must be thread-safe and should be cheap.
+     * @param id the ID of the object.
+     * @param object the returned object.
+     */
+    protected void accessed(String id, T object) {
+    }
+
+    /**
+     * Called when the cache is cleared.
+     */
+    protected void cleared() {
+    }
+
+    /**
+     * Return the cached object of an ID.
+     * @param id the ID of the object.
+     * @return the object or null if it is not cached or has been collected.
+     */
+    private T lookup(String id) {
+        IdReference<T> reference = idToReferences.get(id);
+        return reference == null ? null : reference.get();
+    }
+
+    /**
+     * Return the lock used to create the object of an ID.
+     * @param id the ID of the object.
+     * @return the lock.
+     */
+    private Object getCreationLock(String id) {
+        int hash = id.hashCode();
+        hash ^= (hash >>> 16);
+        return creationLocks[hash & (LOCK_STRIPES - 1)];
+    }
+
+    /**
+     * Remove the references whose objects have been collected.
+     */
+    @SuppressWarnings("unchecked")
+    private void removeCollectedReferences() {
+        IdReference<T> reference;
+        while ((reference = (IdReference<T>)collectedReferences.poll()) != null) {
+            // the ID may have been mapped to a new object in the meantime
+            if (idToReferences.remove(reference.id, reference)) {
+                evictionCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Weak reference which remembers the ID of its object.
+     */
+    private static final class IdReference<T> extends WeakReference<T> {
+        private final String id;
+
+        IdReference(String id, T object, ReferenceQueue<T> queue) {
+            super(object, queue);
+            this.id = id;
+        }
+    }
+}
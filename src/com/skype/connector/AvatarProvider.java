@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+/**
+ * Reads avatar images directly, without sending commands to the Skype client.
+ * <p>
+ * A {@link Transport} which has access to the avatars, like the Linux one reading
+ * the Skype user database, implements this interface, and {@link Connector#getAvatarProvider()}
+ * hands it out. Callers fall back to the AVATAR commands when there is no provider.
+ * </p>
+ */
+public interface AvatarProvider {
+    /**
+     * Gets the avatar of a user.
+     * The buffer may be a view of a shared or memory-mapped region, so it should be consumed right away.
+     * @param userId the Skype id of the user
+     * @return the JPEG image, or null if the user has no avatar
+     * @throws ConnectorException if the avatar could not be read
+     */
+    ByteBuffer getAvatar(String userId) throws ConnectorException;
+
+    /**
+     * Reads the avatars of many users in one go, for example to export the whole contact list.
+     * The callback is called in the calling thread, once for every user with an avatar.
+     * @param userIds the Skype ids of the users
+     * @param callback receives the avatars
+     * @throws ConnectorException if the avatars could not be read
+     */
+    void forEachAvatar(Collection<String> userIds, AvatarCallback callback) throws ConnectorException;
+}
@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector;
+
+/**
+ * Callback for the completion of a {@link CommandFuture}.
+ * @see CommandFuture#addCallback(CommandCallback)
+ */
+public interface CommandCallback {
+    /**
+     * Called once the specified future is done.
+     * {@link CommandFuture#get()} will not block when called from this method.
+     * It is called by the thread which receives the responses of the Skype client, so it must
+     * not wait for another command; the response of that command could not be received meanwhile.
+     * @param future the completed future
+     */
+    void commandCompleted(CommandFuture future);
+}
@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The result of a command executed with {@link Connector#executeAsync(String, String[])}.
+ * <p>
+ * The future is completed by the thread which receives the response from the Skype client,
+ * so no thread is parked while the command is in flight. Use {@link #addCallback(CommandCallback)}
+ * to get notified instead of blocking in {@link #get()}.
+ * </p>
+ */
+public class CommandFuture implements Future<String> {
+    /** Released when this future is done. */
+    private final CountDownLatch doneLatch = new CountDownLatch(1);
+    /** The flag to make sure this future is completed only once. */
+    private final AtomicBoolean isDone = new AtomicBoolean();
+    /** The callbacks which have not been called yet. */
+    private final List<CommandCallback> callbacks = new CopyOnWriteArrayList<CommandCallback>();
+
+    /** The response if completed normally. */
+    private volatile String response;
+    /** The cause if completed exceptionally. */
+    private volatile ConnectorException failure;
+    /** The flag if this future has been cancelled. */
+    private volatile boolean isCancelled;
+
+    /**
+     * Only the connector creates futures.
+     */
+    CommandFuture() {
+    }
+
+    /**
+     * Creates a future which is already completed.
+     * @param response the response
+     * @return the completed future
+     */
+    static CommandFuture completed(final String response) {
+        final CommandFuture future = new CommandFuture();
+        future.complete(response);
+        return future;
+    }
+
+    /**
+     * Completes this future with the specified response.
+     * @param newResponse the response
+     * @return true if this call completed this future
+     */
+    boolean complete(final String newResponse) {
+        if (!isDone.compareAndSet(false, true)) {
+            return false;
+        }
+        response = newResponse;
+        finish();
+        return true;
+    }
+
+    /**
+     * Completes this future with the specified failure.
+     * @param cause the failure
+     * @return true if this call completed this future
+     */
+    boolean fail(final ConnectorException cause) {
+        if (!isDone.compareAndSet(false, true)) {
+            return false;
+        }
+        failure = cause;
+        finish();
+        return true;
+    }
+
+    /**
+     * Cancels this future.
+     * The command itself cannot be taken back from the Skype client, but its response is ignored.
+     * @param mayInterruptIfRunning ignored, no thread is executing the command
+     * @return true if this call cancelled this future
+     */
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+        if (!isDone.compareAndSet(false, true)) {
+            return false;
+        }
+        isCancelled = true;
+        finish();
+        return true;
+    }
+
+    /**
+     * Checks if this future has been completed with a failure.
+     * @return true if failed
+     */
+    final boolean isFailed() {
+        return failure != null;
+    }
+
+    /**
+     * Called once when this future is done, before the callbacks are called.
+     * The default implementation does nothing.
+     */
+    void done() {
+    }
+
+    private void finish() {
+        done();
+        doneLatch.countDown();
+        for (CommandCallback callback : callbacks) {
+            fireCommandCompleted(callback);
+        }
+    }
+
+    private void fireCommandCompleted(final CommandCallback callback) {
+        // remove first, so each callback is called exactly once
+        if (callbacks.remove(callback)) {
+            callback.commandCompleted(this);
+        }
+    }
+
+    /**
+     * Adds the specified callback which will be called once this future is done.
+     * If this future is already done, the callback is called immediately.
+     * @param callback the callback to be added
+     * @throws NullPointerException if the specified callback is null
+     */
+    public final void addCallback(final CommandCallback callback) {
+        ConnectorUtils.checkNotNull("callback", callback);
+        callbacks.add(callback);
+        if (isDone()) {
+            fireCommandCompleted(callback);
+        }
+    }
+
+    public final boolean isCancelled() {
+        return isCancelled;
+    }
+
+    public final boolean isDone() {
+        return doneLatch.getCount() == 0;
+    }
+
+    public final String get() throws InterruptedException, ExecutionException {
+        doneLatch.await();
+        return getResult();
+    }
+
+    public final String get(final long timeout, final TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!doneLatch.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return getResult();
+    }
+
+    private String getResult() throws ExecutionException {
+        if (isCancelled) {
+            throw new CancellationException();
+        }
+        if (failure != null) {
+            throw new ExecutionException(failure);
+        }
+        return response;
+    }
+}
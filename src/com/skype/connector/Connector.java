@@ -22,23 +22,24 @@
  ******************************************************************************/
 package com.skype.connector;
 
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.Callable;
+import java.util.ServiceLoader;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+
 import com.skype.Skype;
-import com.skype.connector.linux.dbus.LinuxDBusConnector;
+import com.skype.connector.journal.TrafficJournal;
 
 /**
  * Base class for all platform specific connectors.
@@ -62,15 +63,52 @@ public abstract class Connector {
          */
         PENDING_AUTHORIZATION, ATTACHED, REFUSED, NOT_AVAILABLE, API_AVAILABLE, NOT_RUNNING;
     }
+
+    /**
+     * Enumeration of the ways events are delivered to a listener.
+     */
+    public enum DeliveryMode {
+        /**
+         * SYNCHRONOUS - All events in order on one thread, shared with the other synchronous listeners.
+         * ASYNCHRONOUS - All events in order on one thread, shared with the other asynchronous listeners.
+         * PARTITIONED - Events in order per object (like a chat message or user) on several threads,
+         *               so events about different objects are handled in parallel.
+         */
+        SYNCHRONOUS, ASYNCHRONOUS, PARTITIONED;
+    }
+
+    /** The default number of lanes of the partitioned delivery. */
+    private static final int DEFAULT_PARTITIONED_LANE_COUNT = Integer.getInteger("com.skype.connector.Connector.partitionedLaneCount", Runtime.getRuntime().availableProcessors());
+    /** Numbers the default journals of the connectors in this JVM. */
+    private static final AtomicInteger JOURNAL_COUNT = new AtomicInteger();
     
     /**
      * Initializes a platform specific connection.
-     * This method will select a connector based on the os.name.
-     * Windows has two versions see useJNIConnector.
+     * The connector is created by the {@link TransportProvider} named by the system property
+     * <code>com.skype.connector.Connector.transport</code>, "dbus" by default, which
+     * creates a LinuxDBusConnector.
      * @return an initialized connection.
+     * @throws IllegalStateException if there is no transport provider with that name
      */
     public static synchronized Connector getInstance(final Skype skype, final String aUsername, final String aPassword) {
-        return new LinuxDBusConnector(skype, aUsername, aPassword);
+        String name = System.getProperty("com.skype.connector.Connector.transport", "dbus");
+        return getTransportProvider(name).createConnector(skype, aUsername, aPassword);
+    }
+
+    /**
+     * Finds a transport provider registered in <code>META-INF/services/com.skype.connector.TransportProvider</code>.
+     * @param name the name of the provider, like "dbus"
+     * @return the provider
+     * @throws IllegalStateException if there is no transport provider with that name
+     */
+    public static TransportProvider getTransportProvider(final String name) {
+        ConnectorUtils.checkNotNull("name", name);
+        for (TransportProvider provider : ServiceLoader.load(TransportProvider.class, Connector.class.getClassLoader())) {
+            if (provider.getName().equals(name)) {
+                return provider;
+            }
+        }
+        throw new IllegalStateException("There is no transport provider named " + name + ".");
     }
 
     /**
@@ -101,21 +139,43 @@ public abstract class Connector {
      */
     private boolean _isInitialized;
 
-    /** Asynchronous message sender */
-    private ExecutorService _asyncSender;
-    /** Synchronous message sender */
-    private ExecutorService _syncSender;
+    /** Subscribers of notifications of specific object types, objects and properties. */
+    private final NotificationDispatcher _notificationDispatcher = new NotificationDispatcher();
 
-    /** Collection of asynchronous event listeners for the connector. */
-    private final List<ConnectorListener> _asyncListeners = new CopyOnWriteArrayList<ConnectorListener>();
-    /** Collection of synchronous event listeners for the connector. */
-    private final List<ConnectorListener> _syncListeners = new CopyOnWriteArrayList<ConnectorListener>();
+    /** Delivers events to the asynchronous listeners and the notification subscribers. */
+    private final EventBus _asyncEventBus = new EventBus("AsyncSkypeMessageSender", _notificationDispatcher);
+    /** Delivers events to the synchronous listeners. */
+    private final EventBus _syncEventBus = new EventBus("SyncSkypeMessageSender", null);
+    /** Delivers events to the partitioned listeners. */
+    private final PartitionedEventBus _partitionedEventBus = new PartitionedEventBus("PartitionedSkypeMessageSender", DEFAULT_PARTITIONED_LANE_COUNT);
 
     /** Command counter, can be used to identify message and reply pairs. */
     private final AtomicInteger _commandCount = new AtomicInteger();
 
-    /** Command executor */
-    private ExecutorService _commandExecutor;
+    /** The kind of threads created by this connector. */
+    private volatile ExecutorStrategy _executorStrategy = ExecutorStrategy.getDefault();
+    /** The threads created by this connector. */
+    private final Set<Thread> _threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+
+    /** Receives the measurements of this connector. */
+    private volatile ConnectorMetrics _metrics = new InMemoryConnectorMetrics();
+    /** The name this connector is registered with at the platform MBean server, or null. */
+    private ObjectName _mbeanName;
+
+    /** Journals the traffic of this connector, or null. */
+    private volatile TrafficJournal _trafficJournal;
+    /** The journal opened from the system properties when initialized, closed when disposed. */
+    private TrafficJournal _defaultTrafficJournal;
+
+    /** Tracks the timeouts of the pending commands. */
+    private final TimeoutWheel _timeoutWheel = new TimeoutWheel(this);
+    /** The time the outstanding PING was sent in milliseconds, 0 if there is none. */
+    private volatile long _pingSentTime;
+    /** The time the last PONG was received in milliseconds. */
+    private volatile long _pongReceivedTime;
+
+    /** Hands over responses to the commands waiting for them. */
+    private final ResponseRouter _responseRouter = new ResponseRouter();
     
     /** The properties of this connector **/
     private final Map<String, String> properties = new ConcurrentHashMap<String, String>();
@@ -144,6 +204,15 @@ public abstract class Connector {
         return "skype";
     }
 
+    /**
+     * Gets the provider which reads avatar images without a command round trip.
+     * Should be overridden by connectors with direct access to the avatars.
+     * @return the provider, or null if avatars have to be requested by commands
+     */
+    public AvatarProvider getAvatarProvider() {
+        return null;
+    }
+
     /**
      * Sets the application name used to get the access grant of Skype API.
      * The specified name is what the User will see in the Skype API Allow/Deny dialog.
@@ -183,43 +252,17 @@ public abstract class Connector {
      * @param newStatus the new status
      */
     private void fireStatusChanged(final Status newStatus) {
-    	System.out.println("Set status to " + newStatus.toString() + " for skype instance: " + getSkype());
-        _syncSender.execute(new Runnable() {
-            public void run() {
-                // use listener array instead of list because of reverse iteration
-                fireStatusChanged(toConnectorListenerArray(_syncListeners), newStatus);
-            }
-        });
-        _asyncSender.execute(new Runnable() {
-            public void run() {
-                // use listener array instead of list because of reverse iteration
-                fireStatusChanged(toConnectorListenerArray(_asyncListeners), newStatus);
-            }
-        });
-    }
-
-    /**
-     * Converts the specified listener list to an listener array.
-     * @param listeners the listener list
-     * @return an listener array
-     */
-    private ConnectorListener[] toConnectorListenerArray(final List<ConnectorListener> listeners) {
-        return listeners.toArray(new ConnectorListener[0]);
-    }
-
-    /**
-     * Sends a status change event to the specified listeners.
-     * @param listeners the event listeners
-     * @param newStatus the new status
-     */
-    private void fireStatusChanged(final ConnectorListener[] listeners, final Status newStatus) {
+        TrafficJournal journal = _trafficJournal;
+        if (journal != null) {
+            journal.append(TrafficJournal.STATUS, newStatus.toString());
+        }
     	if(isDisposed()) {
     		return;
     	}
-        final ConnectorStatusEvent event = new ConnectorStatusEvent(this, newStatus);
-        for (int i = listeners.length - 1; 0 <= i; i--) {
-            listeners[i].statusChanged(event);
-        }
+        ConnectorStatusEvent event = new ConnectorStatusEvent(this, newStatus);
+        _syncEventBus.publish(event, EventBus.STATUS_CHANGED);
+        _asyncEventBus.publish(event, EventBus.STATUS_CHANGED);
+        _partitionedEventBus.publish(event);
     }
 
     /**
@@ -291,6 +334,199 @@ public abstract class Connector {
         return status;
     }
 
+    /**
+     * Sets the kind of threads this connector runs its event delivery, command timeouts
+     * and command writing on. Takes effect when the connector is initialized the next time.
+     * The default is PLATFORM or the value of the system property
+     * <code>com.skype.connector.Connector.executorStrategy</code>.
+     * @param newValue the new strategy
+     * @throws NullPointerException if the specified strategy is null
+     * @see #getExecutorStrategy()
+     */
+    public final void setExecutorStrategy(final ExecutorStrategy newValue) {
+        ConnectorUtils.checkNotNull("newValue", newValue);
+        _executorStrategy = newValue;
+    }
+
+    /**
+     * Gets the kind of threads this connector creates.
+     * @return the strategy
+     * @see #setExecutorStrategy(ExecutorStrategy)
+     */
+    public final ExecutorStrategy getExecutorStrategy() {
+        return _executorStrategy;
+    }
+
+    /**
+     * Sets the receiver of the measurements of this connector, like the command latencies.
+     * The default is an {@link InMemoryConnectorMetrics}.
+     * Should be set before connecting, the platform transport picks it up when initialized.
+     * @param newValue the new metrics
+     * @throws NullPointerException if the specified metrics is null
+     * @see #getMetrics()
+     */
+    public final void setMetrics(final ConnectorMetrics newValue) {
+        ConnectorUtils.checkNotNull("newValue", newValue);
+        _metrics = newValue;
+    }
+
+    /**
+     * Gets the receiver of the measurements of this connector.
+     * @return the metrics
+     * @see #setMetrics(ConnectorMetrics)
+     */
+    public final ConnectorMetrics getMetrics() {
+        return _metrics;
+    }
+
+    /**
+     * Sets the journal which receives the commands, notifications and status changes of this connector.
+     * The journal has to be started and closed by the caller.
+     * If the system property <code>com.skype.connector.Connector.journalDirectory</code> is set, a journal
+     * in that directory is used unless another one has been set before this connector is initialized.
+     * It is named after the application name and the number of the connector in this JVM, like "Skype4Java-1",
+     * so connectors sharing the directory do not write to the same segments.
+     * @param newValue the started journal, or null to stop journaling
+     * @see #getTrafficJournal()
+     */
+    public final void setTrafficJournal(final TrafficJournal newValue) {
+        _trafficJournal = newValue;
+    }
+
+    /**
+     * Gets the journal which receives the traffic of this connector.
+     * @return the journal, or null
+     * @see #setTrafficJournal(TrafficJournal)
+     */
+    public final TrafficJournal getTrafficJournal() {
+        return _trafficJournal;
+    }
+
+    /**
+     * Starts the journal configured by the system properties if no journal has been set.
+     * A journal which cannot be started is reported and not used.
+     */
+    private void startDefaultTrafficJournal() {
+        String directory = System.getProperty("com.skype.connector.Connector.journalDirectory");
+        if (directory == null || _trafficJournal != null) {
+            return;
+        }
+        final String name = getApplicationName().replaceAll("[^A-Za-z0-9._]", "_") + "-" + JOURNAL_COUNT.incrementAndGet();
+        TrafficJournal journal = new TrafficJournal(new File(directory), name);
+        journal.setThreadFactory(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                return Connector.this.newThread("SkypeTrafficJournal-" + name, r);
+            }
+        });
+        try {
+            journal.start();
+        } catch (IOException e) {
+            ConnectorUtils.reportError("The traffic journal in " + directory + " could not be started.", e);
+            return;
+        }
+        _defaultTrafficJournal = journal;
+        _trafficJournal = journal;
+    }
+
+    /**
+     * Registers a {@link ConnectorMonitorMBean} of this connector at the platform MBean server,
+     * so the metrics can be watched with JConsole. It is unregistered when this connector is disposed.
+     * @return the name of the MBean
+     * @throws ConnectorException if the registration failed
+     */
+    public final synchronized ObjectName registerMBean() throws ConnectorException {
+        if (_mbeanName == null) {
+            try {
+                ObjectName name = new ObjectName("com.skype.connector:type=" + getClass().getSimpleName() + ",id=" + Integer.toHexString(System.identityHashCode(this)));
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new ConnectorMonitor(this), name);
+                _mbeanName = name;
+            } catch (JMException e) {
+                throw new ConnectorException("The connector MBean could not be registered.", e);
+            }
+        }
+        return _mbeanName;
+    }
+
+    /**
+     * Unregisters the MBean registered by {@link #registerMBean()}.
+     */
+    private synchronized void unregisterMBean() {
+        if (_mbeanName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(_mbeanName);
+            } catch (JMException e) {
+                // already unregistered
+            }
+            _mbeanName = null;
+        }
+    }
+
+    /**
+     * Gets the number of commands waiting for their response.
+     * @return the number of pending commands
+     */
+    public final int getPendingCommandCount() {
+        return _responseRouter.getPendingCommandCount();
+    }
+
+    /**
+     * Gets the number of events waiting for delivery to the listeners of a delivery mode.
+     * @param deliveryMode the delivery mode
+     * @return the queue depth
+     */
+    public final int getEventQueueDepth(final DeliveryMode deliveryMode) {
+        ConnectorUtils.checkNotNull("deliveryMode", deliveryMode);
+        switch (deliveryMode) {
+            case SYNCHRONOUS:
+                return _syncEventBus.getQueueDepth();
+            case ASYNCHRONOUS:
+                return _asyncEventBus.getQueueDepth();
+            default:
+                return _partitionedEventBus.getQueueDepth();
+        }
+    }
+
+    /**
+     * Gets the number of live threads this connector has created.
+     * @return the number of threads
+     */
+    public final int getThreadCount() {
+        int count = 0;
+        for (Thread thread : _threads) {
+            if (thread.getState() == Thread.State.TERMINATED) {
+                _threads.remove(thread);
+            } else {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Estimates the number of operating system threads needed to run the live threads of this
+     * connector at once. Equal to {@link #getThreadCount()} for platform threads and
+     * at most the virtual thread scheduler parallelism for virtual threads. It is derived
+     * from the configuration, the carrier threads in use are not measured.
+     * @return the estimated number of carrier threads
+     * @see ExecutorStrategy#getEstimatedCarrierThreadCount(int)
+     */
+    public final int getEstimatedCarrierThreadCount() {
+        return _executorStrategy.getEstimatedCarrierThreadCount(getThreadCount());
+    }
+
+    /**
+     * Creates an unstarted daemon thread of the kind set by {@link #setExecutorStrategy(ExecutorStrategy)}.
+     * Platform specific connectors should create their threads with this method.
+     * @param name the name of the thread
+     * @param runnable the code the thread runs
+     * @return the thread
+     */
+    protected final Thread newThread(final String name, final Runnable runnable) {
+        Thread thread = _executorStrategy.newThread(name, runnable);
+        _threads.add(thread);
+        return thread;
+    }
+
     /**
      * Initializes this connector.
      * @throws ConnectorException if the initialization failed.
@@ -298,31 +534,12 @@ public abstract class Connector {
     protected final void initialize() throws ConnectorException {
         synchronized (_isInitializedMutex) {
             if (!_isInitialized) {
-                _asyncSender = Executors.newCachedThreadPool(new ThreadFactory() {
-                    private final AtomicInteger threadNumber = new AtomicInteger();
-
-                    public Thread newThread(Runnable r) {
-                        Thread thread = new Thread(r, "AsyncSkypeMessageSender-" + threadNumber.getAndIncrement());
-                        thread.setDaemon(true);
-                        return thread;
-                    }
-                });
-                _syncSender = Executors.newSingleThreadExecutor(new ThreadFactory() {
-                    public Thread newThread(Runnable r) {
-                        Thread thread = new Thread(r, "SyncSkypeMessageSender");
-                        thread.setDaemon(true);
-                        return thread;
-                    }
-                });
-                _commandExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
-                    private final AtomicInteger threadNumber = new AtomicInteger();
-
-                    public Thread newThread(Runnable r) {
-                        Thread thread = new Thread(r, "CommandExecutor-" + threadNumber.getAndIncrement());
-                        thread.setDaemon(true);
-                        return thread;
-                    }
-                });
+                _asyncEventBus.start(this);
+                _syncEventBus.start(this);
+                _partitionedEventBus.start(this);
+                _pingSentTime = 0;
+                _timeoutWheel.start();
+                startDefaultTrafficJournal();
 
                 initializeImpl();
 
@@ -375,13 +592,28 @@ public abstract class Connector {
             disposed = true;
             disposeImpl();
             setStatus(Status.NOT_RUNNING);
-            _commandExecutor.shutdown();
+            _timeoutWheel.stop();
+            unregisterMBean();
+            for (PendingCommand pendingCommand : _responseRouter.getPendingCommands()) {
+                pendingCommand.complete(""); // disposed, actual response does not matter
+            }
 
-            _syncSender.shutdown();
-            _asyncSender.shutdown();
+            _syncEventBus.stop();
+            _asyncEventBus.stop();
+            _partitionedEventBus.stop();
 
-            _syncListeners.clear();
-            _asyncListeners.clear();
+            _syncEventBus.clearListeners();
+            _asyncEventBus.clearListeners();
+            _partitionedEventBus.clearListeners();
+            _notificationDispatcher.clear();
+
+            if (_defaultTrafficJournal != null) {
+                if (_trafficJournal == _defaultTrafficJournal) {
+                    _trafficJournal = null;
+                }
+                _defaultTrafficJournal.close();
+                _defaultTrafficJournal = null;
+            }
 
             _isInitialized = false;
         }
@@ -432,9 +664,7 @@ public abstract class Connector {
     public final String executeWithId(final String command, final String responseHeader) throws ConnectorException {
         ConnectorUtils.checkNotNull("command", command);
         ConnectorUtils.checkNotNull("responseHeader", responseHeader);
-        final String header = "#" + _commandCount.getAndIncrement() + " ";
-        final String response = execute(header + command, new String[] { header + responseHeader, header + "ERROR " }, true);
-        return response.substring(header.length());
+        return execute(newPendingCommandWithId(command, responseHeader), true);
     }
 
     /**
@@ -503,22 +733,20 @@ public abstract class Connector {
      * @throws ConnectorException if executing the command failed
      */
     private String execute(final String command, final String[] responseHeaders, final boolean checkAttached, boolean withoutTimeout) throws ConnectorException {
-    	if(disposed) {
-    		return "";
-    	}
-    	
-    	final NotificationChecker checker = new NotificationChecker() {
-            public boolean isTarget(String message) {
-                for (String responseHeader : responseHeaders) {
-                    if (message.startsWith(responseHeader)) {
-                        return true;
-                    }
-                }
-                return false;
-            }
-        };
+        return execute(new PendingCommand(command, responseHeaders, false), checkAttached);
+    }
+
+    /**
+     * Executes the specified command and waits for the response.
+     * @param pendingCommand the command to execute
+     * @param checkAttached if true check if this connector is attached
+     * @return the response after execution
+     * @throws ConnectorException if executing the command failed
+     */
+    private String execute(final PendingCommand pendingCommand, final boolean checkAttached) throws ConnectorException {
+        final String command = pendingCommand.getCommand();
         try {
-            return execute(command, checker, checkAttached, true).get();
+            return executeAsync(pendingCommand, checkAttached).get();
         } catch(InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new ConnectorException("The '" + command + "' command was interrupted.", e);
@@ -535,73 +763,144 @@ public abstract class Connector {
     }
 
     /**
-     * Executes the specified command and gets the future using a command ID.
+     * Executes the specified command without blocking.
      * @param command the command to execute
-     * @param responseChecker the notification checker to detect the end
+     * @param responseHeader the response header to get the accurate response
+     * @return the future which is completed with the response
+     * @throws NullPointerException if the specified command or responseHeader is null
+     * @throws ConnectorException if this connector is not attached or trying to connect failed
+     * @see #execute(String, String)
+     */
+    public final CommandFuture executeAsync(final String command, final String responseHeader) throws ConnectorException {
+        ConnectorUtils.checkNotNull("command", command);
+        ConnectorUtils.checkNotNull("responseHeader", responseHeader);
+        return executeAsync(command, new String[] { responseHeader, "ERROR " });
+    }
+
+    /**
+     * Executes the specified command without blocking.
+     * @param command the command to execute
+     * @param responseHeaders the response headers to get the accurate response
+     * @return the future which is completed with the response
+     * @throws NullPointerException if the specified command or responseHeaders is null
+     * @throws ConnectorException if this connector is not attached or trying to connect failed
+     * @see #execute(String, String[])
+     */
+    public final CommandFuture executeAsync(final String command, final String[] responseHeaders) throws ConnectorException {
+        ConnectorUtils.checkNotNull("command", command);
+        ConnectorUtils.checkNotNull("responseHeaders", responseHeaders);
+        return executeAsync(new PendingCommand(command, responseHeaders, false), true);
+    }
+
+    /**
+     * Executes the specified command using a command ID without blocking.
+     * @param command the command to execute
+     * @param responseHeader the response header to get the accurate response
+     * @return the future which is completed with the response
+     * @throws NullPointerException if the specified command or responseHeader is null
+     * @throws ConnectorException if this connector is not attached or trying to connect failed
+     * @see #executeWithId(String, String)
+     */
+    public final CommandFuture executeWithIdAsync(final String command, final String responseHeader) throws ConnectorException {
+        ConnectorUtils.checkNotNull("command", command);
+        ConnectorUtils.checkNotNull("responseHeader", responseHeader);
+        return executeAsync(newPendingCommandWithId(command, responseHeader), true);
+    }
+
+    /**
+     * Creates a pending command with a new "#N" command ID.
+     * @param command the command to execute
+     * @param responseHeader the response header to get the accurate response
+     * @return the pending command
+     */
+    private PendingCommand newPendingCommandWithId(final String command, final String responseHeader) {
+        final String header = "#" + _commandCount.getAndIncrement() + " ";
+        return new PendingCommand(header + command, new String[] { header + responseHeader, header + "ERROR " }, true);
+    }
+
+    /**
+     * Sends the specified command and returns the future to wait for the response.
+     * The future is completed by the response router when the response is received,
+     * so no thread is blocked while the command is in flight.
+     * @param pendingCommand the command to execute
      * @param checkAttached if true check if this connector is attached
      * @return the future to wait for the end of the execution
-     * @throws NullPointerException if the specified command or responseChecker is null
-     * @throws ConnectorException if executing the command failed
+     * @throws ConnectorException if this connector is not attached or trying to connect failed
      */
-    private Future<String> execute(final String command, final NotificationChecker responseChecker, final boolean checkAttached, boolean withoutTimeout) throws ConnectorException {
+    private CommandFuture executeAsync(final PendingCommand pendingCommand, final boolean checkAttached) throws ConnectorException {
     	if(disposed) {
-    		return null;
+    		return CommandFuture.completed("");
     	}
-        ConnectorUtils.checkNotNull("command", command);
-        ConnectorUtils.checkNotNull("responseChecker", responseChecker);
-
         if (checkAttached) {
             assureAttached();
         }
-        
-        return _commandExecutor.submit(new Callable<String>() {
-            public String call() throws Exception {
-            	if(disposed) {
-            		return "";
-            	}
-                final BlockingQueue<String> responses = new LinkedBlockingQueue<String>();
-
-                ConnectorListener listener = new AbstractConnectorListener() {
-                    public void messageReceived(ConnectorMessageEvent event) {
-                        String message = event.getMessage();
-                        if (responseChecker.isTarget(message) || message.startsWith("PONG")) {
-                            responses.add(message);
-                        }
-                    }
-                };
-                addConnectorListener(listener, false);
-
-                fireMessageSent(command);
-                sendCommand(command);
-                try {
-                    boolean pinged = false;
-                    while (!disposed) {
-                        // to cancel getting responses, you must call Futrue#cancel(true)
-                        String response = responses.poll(getCommandTimeout(), TimeUnit.MILLISECONDS);
-                        if (response == null) {
-                            if (pinged) {
-                                setStatus(Status.NOT_RUNNING);
-                                throw new NotAttachedException(Status.NOT_RUNNING);
-                            } else {
-                                fireMessageSent("PING");
-                                sendCommand("PING");
-                                pinged = true;
-                                continue;
-                            }
-                        }
-                        if (response.startsWith("PONG")) {
-                            pinged = false;
-                            continue;
-                        } else {
-                            return response;
-                        }
-                    }
-                    return ""; // disposed, actual response does not matter
-                } finally {
-                    removeConnectorListener(listener);
-                }
+
+        final String command = pendingCommand.getCommand();
+        pendingCommand.setMetrics(_metrics);
+        _responseRouter.register(pendingCommand);
+        _timeoutWheel.schedule(pendingCommand, pendingCommand.getStartTime() + getCommandTimeout());
+        fireMessageSent(command);
+        sendCommand(command);
+        return pendingCommand;
+    }
+
+    /**
+     * Handles the commands whose timeout expired in the same tick of the timeout wheel.
+     * <p>
+     * A command expires when the Skype client has not shown a sign of life for the command
+     * timeout. Then one PING is sent for all expired commands. If no PONG is received until
+     * the next timeout the Skype client is assumed to be not running any more and all
+     * pending commands fail together.
+     * </p>
+     * @param expiredCommands the expired commands
+     */
+    final void commandsExpired(final List<PendingCommand> expiredCommands) {
+        if (disposed) {
+            for (PendingCommand pendingCommand : expiredCommands) {
+                pendingCommand.complete(""); // disposed, actual response does not matter
             }
-        });
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        final long timeout = getCommandTimeout();
+        final long pingSentTime = _pingSentTime;
+        if (pingSentTime != 0 && pingSentTime + timeout <= now) {
+            // the PING was not answered
+            _pingSentTime = 0;
+            setStatus(Status.NOT_RUNNING);
+            for (PendingCommand pendingCommand : _responseRouter.getPendingCommands()) {
+                pendingCommand.fail(new NotAttachedException(Status.NOT_RUNNING));
+            }
+            return;
+        }
+        boolean isPingNeeded = false;
+        for (PendingCommand pendingCommand : expiredCommands) {
+            _metrics.commandExpired();
+            final long lastActivityTime = Math.max(pendingCommand.getStartTime(), _pongReceivedTime);
+            if (now < lastActivityTime + timeout) {
+                // a PONG has been received in the meantime
+                _timeoutWheel.schedule(pendingCommand, lastActivityTime + timeout);
+            } else if (pingSentTime != 0) {
+                _timeoutWheel.schedule(pendingCommand, pingSentTime + timeout);
+            } else {
+                _timeoutWheel.schedule(pendingCommand, now + timeout);
+                isPingNeeded = true;
+            }
+        }
+        if (isPingNeeded) {
+            _pingSentTime = now;
+            _metrics.pingSent();
+            fireMessageSent("PING");
+            sendCommand("PING");
+        }
+    }
+
+    /**
+     * Records the answer of the Skype client to a PING.
+     */
+    private void pongReceived() {
+        _pongReceivedTime = System.currentTimeMillis();
+        _pingSentTime = 0;
     }
 
     /**
@@ -665,11 +964,31 @@ public abstract class Connector {
      * @see #removeConnectorListener(ConnectorListener)
      */
     public final void addConnectorListener(final ConnectorListener listener, final boolean checkAttached, final boolean isSynchronous) throws ConnectorException {
+        addConnectorListener(listener, checkAttached, isSynchronous ? DeliveryMode.SYNCHRONOUS : DeliveryMode.ASYNCHRONOUS);
+    }
+
+    /**
+     * Adds the specified listener to this connector.
+     * @param listener the listener to be added
+     * @param checkAttached if true checks if this connector is attached
+     * @param deliveryMode the way events are delivered to the listener
+     * @throws NullPointerException if the specified listener or delivery mode is null
+     * @throws ConnectorException if trying to connect failed
+     * @see #removeConnectorListener(ConnectorListener)
+     */
+    public final void addConnectorListener(final ConnectorListener listener, final boolean checkAttached, final DeliveryMode deliveryMode) throws ConnectorException {
         ConnectorUtils.checkNotNull("listener", listener);
-        if(isSynchronous) {
-            _syncListeners.add(listener);
-        } else {
-            _asyncListeners.add(listener);
+        ConnectorUtils.checkNotNull("deliveryMode", deliveryMode);
+        switch (deliveryMode) {
+            case SYNCHRONOUS:
+                _syncEventBus.addListener(listener);
+                break;
+            case ASYNCHRONOUS:
+                _asyncEventBus.addListener(listener);
+                break;
+            case PARTITIONED:
+                _partitionedEventBus.addListener(listener);
+                break;
         }
         if (checkAttached) {
             assureAttached();
@@ -684,55 +1003,118 @@ public abstract class Connector {
      */
     public final void removeConnectorListener(final ConnectorListener listener) {
         ConnectorUtils.checkNotNull("listener", listener);
-        _syncListeners.remove(listener);
-        _asyncListeners.remove(listener);
+        _syncEventBus.removeListener(listener);
+        _asyncEventBus.removeListener(listener);
+        _partitionedEventBus.removeListener(listener);
     }
 
     /**
-     * Fires a message received event.
-     * @param message the message that triggered the event
+     * Adds a subscriber for the notifications of an object type, an object or a property.
+     * Unlike a {@link ConnectorListener} the subscriber is only called for matching notifications,
+     * for example type "USER", id "echo123" and property "ONLINESTATUS" for
+     * "USER echo123 ONLINESTATUS ONLINE".
+     * The subscriber is called asynchronously.
+     * @param type the object type, like USER or CHATMESSAGE
+     * @param id the object id or null for all objects of the type
+     * @param property the property name or null for all properties
+     * @param subscriber the subscriber to be added
+     * @throws NullPointerException if the specified type or subscriber is null
+     * @throws ConnectorException if trying to connect failed
+     * @see #removeNotificationSubscriber(String, String, String, NotificationSubscriber)
      */
-    protected final void fireMessageReceived(final String message) {
-        fireMessageEvent(message, true);
+    public final void addNotificationSubscriber(final String type, final String id, final String property, final NotificationSubscriber subscriber) throws ConnectorException {
+        addNotificationSubscriber(type, id, property, subscriber, true);
     }
 
     /**
-     * Fires a message event.
+     * Adds a subscriber for the notifications of an object type, an object or a property.
+     * @param type the object type, like USER or CHATMESSAGE
+     * @param id the object id or null for all objects of the type
+     * @param property the property name or null for all properties
+     * @param subscriber the subscriber to be added
+     * @param checkAttached if true checks if this connector is attached
+     * @throws NullPointerException if the specified type or subscriber is null
+     * @throws ConnectorException if trying to connect failed
+     * @see #removeNotificationSubscriber(String, String, String, NotificationSubscriber)
+     */
+    public final void addNotificationSubscriber(final String type, final String id, final String property, final NotificationSubscriber subscriber, final boolean checkAttached) throws ConnectorException {
+        ConnectorUtils.checkNotNull("type", type);
+        ConnectorUtils.checkNotNull("subscriber", subscriber);
+        _notificationDispatcher.add(type, id, property, subscriber);
+        if (checkAttached) {
+            assureAttached();
+        }
+    }
+
+    /**
+     * Removes a subscriber added with the same type, id and property.
+     * @param type the object type
+     * @param id the object id or null
+     * @param property the property name or null
+     * @param subscriber the subscriber to be removed
+     * @throws NullPointerException if the specified type or subscriber is null
+     * @see #addNotificationSubscriber(String, String, String, NotificationSubscriber)
+     */
+    public final void removeNotificationSubscriber(final String type, final String id, final String property, final NotificationSubscriber subscriber) {
+        ConnectorUtils.checkNotNull("type", type);
+        ConnectorUtils.checkNotNull("subscriber", subscriber);
+        _notificationDispatcher.remove(type, id, property, subscriber);
+    }
+
+    /**
+     * Fails the pending command which was sent but could not be executed by the Skype client.
+     * Used by the connector implementations which find out about the failure after
+     * {@link #sendCommand(String)} has returned.
+     * @param command the command as it was sent
+     * @param cause the failure
+     */
+    protected final void fireCommandFailed(final String command, final ConnectorException cause) {
+        ConnectorUtils.checkNotNull("command", command);
+        ConnectorUtils.checkNotNull("cause", cause);
+        final PendingCommand pendingCommand = _responseRouter.getPendingCommand(command);
+        if (pendingCommand != null) {
+            pendingCommand.fail(cause);
+        }
+    }
+
+    /**
+     * Fires a message received event.
      * @param message the message that triggered the event
-     * @param isReceived the message is a received type or not
      */
-    private void fireMessageEvent(final String message, final boolean isReceived) {
+    protected final void fireMessageReceived(final String message) {
     	if(disposed) {
     		return;
     	}
         ConnectorUtils.checkNotNull("message", message);
-        _syncSender.execute(new Runnable() {
-            public void run() {
-                fireMessageEvent(toConnectorListenerArray(_syncListeners), message, isReceived);
-            }
-        });
-        _asyncSender.execute(new Runnable() {
-            public void run() {
-                fireMessageEvent(toConnectorListenerArray(_asyncListeners), message, isReceived);
-            }
-        });
+        _metrics.messageReceived();
+        if (message.startsWith("PONG")) {
+            pongReceived();
+        } else {
+            _responseRouter.route(message);
+        }
+        fireMessageEvent(message, true);
     }
 
     /**
      * Fires a message event.
-     * @param listenerList the event listener list
      * @param message the message that triggered the event
      * @param isReceived the message is a received type or not
      */
-    private void fireMessageEvent(final ConnectorListener[] listeners, final String message, final boolean isReceived) {
-        ConnectorMessageEvent event = new ConnectorMessageEvent(this, message);
-        for (int i = listeners.length - 1; 0 <= i; i--) {
-            if (isReceived) {
-                listeners[i].messageReceived(event);
-            } else {
-                listeners[i].messageSent(event);
-            }
+    private void fireMessageEvent(final String message, final boolean isReceived) {
+    	if(disposed) {
+    		return;
+    	}
+        ConnectorUtils.checkNotNull("message", message);
+        TrafficJournal journal = _trafficJournal;
+        if (journal != null) {
+            journal.append(isReceived ? TrafficJournal.RECEIVED : TrafficJournal.SENT, message);
         }
+        // parsed once and shared by all listeners and subscribers
+        ConnectorMessageEvent event = new ConnectorMessageEvent(this, new Notification(message));
+        byte kind = isReceived ? EventBus.MESSAGE_RECEIVED : EventBus.MESSAGE_SENT;
+        _syncEventBus.publish(event, kind);
+        _asyncEventBus.publish(event, kind);
+        _partitionedEventBus.publish(event, kind);
     }
 
     /**
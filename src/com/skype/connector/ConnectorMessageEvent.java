@@ -36,14 +36,20 @@ public final class ConnectorMessageEvent extends ConnectorEvent {
 	private final String message;
 
 	/**
-	 * Constructor with source (connector) and the message.
+	 * The parsed message, parsed again after deserialization.
+	 */
+	private transient volatile Notification notification;
+
+	/**
+	 * Constructor with source (connector) and the parsed message.
 	 * @param source Connector which threw the event.
-	 * @param newMessage The message sent or received.
+	 * @param newNotification The parsed message sent or received.
 	 */
-    ConnectorMessageEvent(Object source, String newMessage) {
+    ConnectorMessageEvent(Object source, Notification newNotification) {
         super(source);
-        assert newMessage != null;
-        this.message = newMessage;
+        assert newNotification != null;
+        this.message = newNotification.getMessage();
+        this.notification = newNotification;
     }
     
     /**
@@ -53,4 +59,18 @@ public final class ConnectorMessageEvent extends ConnectorEvent {
     public String getMessage() {
         return message;
     }
+
+    /**
+     * Get the message of this event parsed into type, id, property and value.
+     * The instance is shared by all listeners of the message.
+     * @return the parsed message.
+     */
+    public Notification getNotification() {
+        Notification result = notification;
+        if (result == null) {
+            result = new Notification(message);
+            notification = result;
+        }
+        return result;
+    }
 }
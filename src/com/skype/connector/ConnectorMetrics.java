@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector;
+
+/**
+ * Receives the measurements of a connector.
+ * <p>
+ * The methods are called on the hot paths of the connector, by many threads at once,
+ * so implementations must be thread-safe and should not block.
+ * </p>
+ * @see Connector#setMetrics(ConnectorMetrics)
+ * @see InMemoryConnectorMetrics
+ */
+public interface ConnectorMetrics {
+    /**
+     * Called when a command has been answered, has failed or has been cancelled.
+     * @param verb the command verb, like "GET USER", "SEARCH" or "ALTER CHAT"
+     * @param nanos the time from sending the command until the end in nanoseconds
+     * @param succeeded true if the command has been answered
+     */
+    void commandCompleted(String verb, long nanos, boolean succeeded);
+
+    /**
+     * Called when the transport has finished handing a command to the Skype client,
+     * like the reply of the DBus call on Linux.
+     * @param nanos the time from writing the command until the reply of the transport in nanoseconds
+     */
+    void transportCallCompleted(long nanos);
+
+    /**
+     * Called when the timeout of a pending command has expired.
+     */
+    void commandExpired();
+
+    /**
+     * Called when a PING has been sent to check if the Skype client is alive.
+     */
+    void pingSent();
+
+    /**
+     * Called when a message has been received from the Skype client.
+     */
+    void messageReceived();
+
+    /**
+     * Called when an event has been delivered to the listeners of one delivery mode.
+     * @param nanos the time the listeners took in nanoseconds
+     */
+    void eventDelivered(long nanos);
+}
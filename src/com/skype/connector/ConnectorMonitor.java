@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MBean exposing the state and metrics of a connector.
+ * @see Connector#registerMBean()
+ */
+public final class ConnectorMonitor implements ConnectorMonitorMBean {
+    /** The monitored connector. */
+    private final Connector connector;
+
+    /**
+     * Constructor.
+     * @param connector the monitored connector
+     */
+    public ConnectorMonitor(final Connector connector) {
+        ConnectorUtils.checkNotNull("connector", connector);
+        this.connector = connector;
+    }
+
+    /**
+     * Gets the in-memory metrics of the connector.
+     * @return the metrics or null if the connector uses other metrics
+     */
+    private InMemoryConnectorMetrics getMetrics() {
+        ConnectorMetrics metrics = connector.getMetrics();
+        return metrics instanceof InMemoryConnectorMetrics ? (InMemoryConnectorMetrics)metrics : null;
+    }
+
+    public String getStatus() {
+        return connector.getStatus().toString();
+    }
+
+    public int getPendingCommandCount() {
+        return connector.getPendingCommandCount();
+    }
+
+    public int getSyncEventQueueDepth() {
+        return connector.getEventQueueDepth(Connector.DeliveryMode.SYNCHRONOUS);
+    }
+
+    public int getAsyncEventQueueDepth() {
+        return connector.getEventQueueDepth(Connector.DeliveryMode.ASYNCHRONOUS);
+    }
+
+    public int getPartitionedEventQueueDepth() {
+        return connector.getEventQueueDepth(Connector.DeliveryMode.PARTITIONED);
+    }
+
+    public int getThreadCount() {
+        return connector.getThreadCount();
+    }
+
+    public int getEstimatedCarrierThreadCount() {
+        return connector.getEstimatedCarrierThreadCount();
+    }
+
+    public long getFailedCommandCount() {
+        InMemoryConnectorMetrics metrics = getMetrics();
+        return metrics == null ? 0 : metrics.getFailedCommandCount();
+    }
+
+    public long getExpiredCommandCount() {
+        InMemoryConnectorMetrics metrics = getMetrics();
+        return metrics == null ? 0 : metrics.getExpiredCommandCount();
+    }
+
+    public long getPingCount() {
+        InMemoryConnectorMetrics metrics = getMetrics();
+        return metrics == null ? 0 : metrics.getPingCount();
+    }
+
+    public long getReceivedMessageCount() {
+        InMemoryConnectorMetrics metrics = getMetrics();
+        return metrics == null ? 0 : metrics.getReceivedMessageCount();
+    }
+
+    public double getReceivedMessageRate() {
+        InMemoryConnectorMetrics metrics = getMetrics();
+        return metrics == null ? 0 : metrics.getReceivedMessageRate();
+    }
+
+    public String getTransportLatency() {
+        InMemoryConnectorMetrics metrics = getMetrics();
+        return metrics == null ? "" : metrics.getTransportLatency().toString();
+    }
+
+    public String getEventDeliveryTime() {
+        InMemoryConnectorMetrics metrics = getMetrics();
+        return metrics == null ? "" : metrics.getEventDeliveryTime().toString();
+    }
+
+    public String[] getCommandLatencies() {
+        InMemoryConnectorMetrics metrics = getMetrics();
+        if (metrics == null) {
+            return new String[0];
+        }
+        List<String> latencies = new ArrayList<String>();
+        for (Map.Entry<String, LatencyHistogram> entry : metrics.getCommandLatencies().entrySet()) {
+            latencies.add(entry.getKey() + ": " + entry.getValue());
+        }
+        return latencies.toArray(new String[latencies.size()]);
+    }
+
+    public double getCommandLatencyPercentile(final String verb, final double percentile) {
+        InMemoryConnectorMetrics metrics = getMetrics();
+        if (metrics == null || !metrics.getCommandLatencies().containsKey(verb)) {
+            return 0;
+        }
+        return metrics.getCommandLatency(verb).getPercentileMillis(percentile);
+    }
+
+    public void resetMetrics() {
+        InMemoryConnectorMetrics metrics = getMetrics();
+        if (metrics != null) {
+            metrics.reset();
+        }
+    }
+}
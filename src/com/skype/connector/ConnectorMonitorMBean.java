@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector;
+
+/**
+ * Management interface of a connector.
+ * The measurements are only available if the connector uses {@link InMemoryConnectorMetrics}.
+ * @see Connector#registerMBean()
+ */
+public interface ConnectorMonitorMBean {
+    String getStatus();
+
+    int getPendingCommandCount();
+
+    int getSyncEventQueueDepth();
+
+    int getAsyncEventQueueDepth();
+
+    int getPartitionedEventQueueDepth();
+
+    int getThreadCount();
+
+    int getEstimatedCarrierThreadCount();
+
+    long getFailedCommandCount();
+
+    long getExpiredCommandCount();
+
+    long getPingCount();
+
+    long getReceivedMessageCount();
+
+    double getReceivedMessageRate();
+
+    /**
+     * Gets the latency summary of the transport, like the DBus calls on Linux.
+     * @return the summary
+     */
+    String getTransportLatency();
+
+    /**
+     * Gets the summary of the time the listeners take per event.
+     * @return the summary
+     */
+    String getEventDeliveryTime();
+
+    /**
+     * Gets the latency summaries of all command verbs, one "VERB: summary" per element.
+     * @return the summaries
+     */
+    String[] getCommandLatencies();
+
+    /**
+     * Gets a latency percentile of a command verb.
+     * @param verb the verb, like "GET USER"
+     * @param percentile the percentile, like 99
+     * @return the upper bound of the percentile in milliseconds
+     */
+    double getCommandLatencyPercentile(String verb, double percentile);
+
+    /**
+     * Forgets all measurements.
+     */
+    void resetMetrics();
+}
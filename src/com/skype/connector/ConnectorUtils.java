@@ -39,7 +39,20 @@ public final class ConnectorUtils {
             throw new NullPointerException("The " + name + " must not be null.");
         }
     }
-    
+
+	/**
+	 * Report an error which the connector gets over, like a failing listener
+	 * or a journal which can not be written, on the standard error stream.
+	 * @param message What failed.
+	 * @param cause The error, may be null.
+	 */
+	public static void reportError(String message, Throwable cause) {
+	    System.err.println(message);
+	    if (cause != null) {
+	        cause.printStackTrace();
+	    }
+	}
+
 	/**
 	 * The methods of this class should be used staticly.
 	 * That is why the constructor is private.
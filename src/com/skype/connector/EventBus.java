@@ -0,0 +1,290 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Delivers the events of a connector to its listeners in order, on one worker thread.
+ * <p>
+ * Events are put into a ring buffer which grows instead of blocking the
+ * publisher, because a publisher may be the thread which delivers the response
+ * a listener is waiting for. The listeners are kept in an array which is only
+ * rebuilt when a listener is added or removed, so delivering an event allocates nothing.
+ * </p>
+ */
+final class EventBus {
+    /** The kind of a message received event. */
+    static final byte MESSAGE_RECEIVED = 0;
+    /** The kind of a message sent event. */
+    static final byte MESSAGE_SENT = 1;
+    /** The kind of a status changed event. */
+    static final byte STATUS_CHANGED = 2;
+
+    /** The initial capacity of the ring buffer, a power of two. */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** The empty listener array. */
+    private static final ConnectorListener[] NO_LISTENERS = new ConnectorListener[0];
+
+    /** The name of the worker thread. */
+    private final String threadName;
+    /** The dispatcher of received notifications or null. */
+    private final NotificationDispatcher notificationDispatcher;
+
+    /** The listeners, replaced when a listener is added or removed. */
+    private volatile ConnectorListener[] listeners = NO_LISTENERS;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    /** The queued events, from head in delivery order. */
+    private ConnectorEvent[] events = new ConnectorEvent[INITIAL_CAPACITY];
+    /** The kinds of the queued events. */
+    private byte[] kinds = new byte[INITIAL_CAPACITY];
+    private int head;
+    private int size;
+    /** The current worker thread or null if the bus is stopped. */
+    private Thread worker;
+    /** The connector of this bus, set when started. */
+    private volatile Connector connector;
+
+    /**
+     * Constructor.
+     * @param threadName the name of the worker thread
+     * @param notificationDispatcher the dispatcher to route received messages through before the listeners, or null
+     */
+    EventBus(final String threadName, final NotificationDispatcher notificationDispatcher) {
+        this.threadName = threadName;
+        this.notificationDispatcher = notificationDispatcher;
+    }
+
+    /**
+     * Adds a listener.
+     * @param listener the listener to be added
+     */
+    synchronized void addListener(final ConnectorListener listener) {
+        ConnectorListener[] newListeners = new ConnectorListener[listeners.length + 1];
+        System.arraycopy(listeners, 0, newListeners, 0, listeners.length);
+        newListeners[listeners.length] = listener;
+        listeners = newListeners;
+    }
+
+    /**
+     * Removes a listener.
+     * @param listener the listener to be removed
+     * @return true if the listener was added before
+     */
+    synchronized boolean removeListener(final ConnectorListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i].equals(listener)) {
+                ConnectorListener[] newListeners = new ConnectorListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, newListeners, 0, i);
+                System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+                listeners = newListeners;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes all listeners.
+     */
+    synchronized void clearListeners() {
+        listeners = NO_LISTENERS;
+    }
+
+    /**
+     * Starts the worker thread. Events published before are delivered, too.
+     * @param connector the connector creating the worker thread
+     */
+    void start(final Connector connector) {
+        lock.lock();
+        try {
+            if (worker == null) {
+                this.connector = connector;
+                worker = connector.newThread(threadName, new Runnable() {
+                    public void run() {
+                        deliverEvents();
+                    }
+                });
+                worker.start();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the worker thread after it has delivered the queued events.
+     * Waits for the worker to end unless called by the worker itself, so a following
+     * {@link #start(Connector)} never runs two workers on the queue.
+     */
+    void stop() {
+        Thread oldWorker;
+        lock.lock();
+        try {
+            oldWorker = worker;
+            worker = null;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (oldWorker != null && oldWorker != Thread.currentThread()) {
+            try {
+                oldWorker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of events waiting for delivery.
+     * @return the queue depth
+     */
+    int getQueueDepth() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues an event for delivery.
+     * @param event the event
+     * @param kind the kind of the event
+     */
+    void publish(final ConnectorEvent event, final byte kind) {
+        lock.lock();
+        try {
+            if (size == events.length) {
+                grow();
+            }
+            int tail = (head + size) & (events.length - 1);
+            events[tail] = event;
+            kinds[tail] = kind;
+            size++;
+            if (size == 1) {
+                notEmpty.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Doubles the ring buffer, keeping the order of the events.
+     */
+    private void grow() {
+        ConnectorEvent[] newEvents = new ConnectorEvent[events.length * 2];
+        byte[] newKinds = new byte[kinds.length * 2];
+        int firstPart = events.length - head;
+        System.arraycopy(events, head, newEvents, 0, firstPart);
+        System.arraycopy(events, 0, newEvents, firstPart, head);
+        System.arraycopy(kinds, head, newKinds, 0, firstPart);
+        System.arraycopy(kinds, 0, newKinds, firstPart, head);
+        events = newEvents;
+        kinds = newKinds;
+        head = 0;
+    }
+
+    /**
+     * The loop of the worker thread.
+     */
+    private void deliverEvents() {
+        Thread current = Thread.currentThread();
+        while (true) {
+            ConnectorEvent event;
+            byte kind;
+            lock.lock();
+            try {
+                while (size == 0) {
+                    if (worker != current) {
+                        return;
+                    }
+                    notEmpty.await();
+                }
+                event = events[head];
+                kind = kinds[head];
+                events[head] = null;
+                head = (head + 1) & (events.length - 1);
+                size--;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                long startTime = System.nanoTime();
+                deliver(event, kind);
+                connector.getMetrics().eventDelivered(System.nanoTime() - startTime);
+            } catch (RuntimeException e) {
+                // keep the worker alive for the following events
+                ConnectorUtils.reportError("A listener failed on a connector event.", e);
+            }
+        }
+    }
+
+    /**
+     * Delivers an event to the current listeners in reverse order of registration.
+     * @param event the event
+     * @param kind the kind of the event
+     */
+    private void deliver(final ConnectorEvent event, final byte kind) {
+        ConnectorListener[] listeners = this.listeners;
+        switch (kind) {
+            case MESSAGE_RECEIVED:
+                ConnectorMessageEvent received = (ConnectorMessageEvent)event;
+                if (notificationDispatcher != null) {
+                    try {
+                        notificationDispatcher.dispatch(received.getNotification());
+                    } catch (RuntimeException e) {
+                        // a failing subscriber must not keep the event from the listeners
+                        ConnectorUtils.reportError("A notification subscriber failed on '" + received.getMessage() + "'.", e);
+                    }
+                }
+                for (int i = listeners.length - 1; 0 <= i; i--) {
+                    listeners[i].messageReceived(received);
+                }
+                break;
+            case MESSAGE_SENT:
+                ConnectorMessageEvent sent = (ConnectorMessageEvent)event;
+                for (int i = listeners.length - 1; 0 <= i; i--) {
+                    listeners[i].messageSent(sent);
+                }
+                break;
+            case STATUS_CHANGED:
+                ConnectorStatusEvent statusChanged = (ConnectorStatusEvent)event;
+                for (int i = listeners.length - 1; 0 <= i; i--) {
+                    listeners[i].statusChanged(statusChanged);
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unknown event kind: " + kind);
+        }
+    }
+}
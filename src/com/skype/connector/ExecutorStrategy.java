@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector;
+
+import java.lang.reflect.Method;
+
+/**
+ * Enumeration of the kinds of threads a connector runs its event delivery,
+ * command timeouts and command writing on.
+ * @see Connector#setExecutorStrategy(ExecutorStrategy)
+ */
+public enum ExecutorStrategy {
+    /**
+     * PLATFORM - One operating system thread per connector thread.
+     */
+    PLATFORM {
+        @Override
+        Thread newThread(final String name, final Runnable runnable) {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+    },
+
+    /**
+     * VIRTUAL - One virtual thread per connector thread, multiplexed on a small pool of
+     * carrier threads. Needs a Java runtime with virtual threads (Java 21 or later);
+     * on older runtimes platform threads are used instead.
+     */
+    VIRTUAL {
+        @Override
+        Thread newThread(final String name, final Runnable runnable) {
+            if (!isAvailable()) {
+                return PLATFORM.newThread(name, runnable);
+            }
+            try {
+                // Thread.ofVirtual().name(name).unstarted(runnable), looked up reflectively to run on old runtimes
+                Object builder = ofVirtual.invoke(null);
+                builder = builderName.invoke(builder, name);
+                return (Thread)builderUnstarted.invoke(builder, runnable);
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not create a virtual thread.", e);
+            }
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return ofVirtual != null;
+        }
+
+        @Override
+        public int getEstimatedCarrierThreadCount(final int threadCount) {
+            if (!isAvailable()) {
+                return threadCount;
+            }
+            int parallelism = Integer.getInteger("jdk.virtualThreadScheduler.parallelism", Runtime.getRuntime().availableProcessors());
+            return Math.min(threadCount, parallelism);
+        }
+    };
+
+    /** Thread.ofVirtual() or null if the runtime has no virtual threads. */
+    private static final Method ofVirtual;
+    /** Thread.Builder.name(String). */
+    private static final Method builderName;
+    /** Thread.Builder.unstarted(Runnable). */
+    private static final Method builderUnstarted;
+
+    static {
+        Method ofVirtualMethod = null;
+        Method nameMethod = null;
+        Method unstartedMethod = null;
+        try {
+            ofVirtualMethod = Thread.class.getMethod("ofVirtual");
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            nameMethod = builderClass.getMethod("name", String.class);
+            unstartedMethod = builderClass.getMethod("unstarted", Runnable.class);
+        } catch (Exception e) {
+            ofVirtualMethod = null;
+        }
+        ofVirtual = ofVirtualMethod;
+        builderName = nameMethod;
+        builderUnstarted = unstartedMethod;
+    }
+
+    /**
+     * Creates an unstarted daemon thread.
+     * @param name the name of the thread
+     * @param runnable the code the thread runs
+     * @return the thread
+     */
+    abstract Thread newThread(String name, Runnable runnable);
+
+    /**
+     * Checks if the Java runtime supports this strategy.
+     * If not, platform threads are used.
+     * @return true if supported
+     */
+    public abstract boolean isAvailable();
+
+    /**
+     * Estimates the number of operating system threads needed to run the given number of threads at once.
+     * This is an upper bound derived from the configuration, not a measurement: for virtual threads it is
+     * the smaller of the thread count and the scheduler parallelism, however many carriers actually run.
+     * @param threadCount the number of live threads
+     * @return the estimated number of carrier threads
+     */
+    public int getEstimatedCarrierThreadCount(final int threadCount) {
+        return threadCount;
+    }
+
+    /**
+     * Gets the default strategy from the system property
+     * <code>com.skype.connector.Connector.executorStrategy</code>, PLATFORM if it is not set.
+     * An unknown value is reported on the standard error stream and PLATFORM is used,
+     * so a typo does not prevent creating connectors.
+     * @return the default strategy
+     */
+    static ExecutorStrategy getDefault() {
+        String name = System.getProperty("com.skype.connector.Connector.executorStrategy");
+        if (name == null) {
+            return PLATFORM;
+        }
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            ConnectorUtils.reportError("Unknown executor strategy '" + name + "' in com.skype.connector.Connector.executorStrategy, using PLATFORM.", null);
+            return PLATFORM;
+        }
+    }
+}
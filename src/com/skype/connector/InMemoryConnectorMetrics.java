@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connector metrics kept in memory, the default of a connector.
+ * @see Connector#registerMBean()
+ */
+public class InMemoryConnectorMetrics implements ConnectorMetrics {
+    /** The command latencies by verb. */
+    private final ConcurrentMap<String, LatencyHistogram> commandLatencies = new ConcurrentHashMap<String, LatencyHistogram>();
+    private final LatencyHistogram transportLatency = new LatencyHistogram();
+    private final LatencyHistogram eventDeliveryTime = new LatencyHistogram();
+    private final AtomicLong failedCommandCount = new AtomicLong();
+    private final AtomicLong expiredCommandCount = new AtomicLong();
+    private final AtomicLong pingCount = new AtomicLong();
+    private final AtomicLong receivedMessageCount = new AtomicLong();
+    /** The time the metrics were created or reset in milliseconds. */
+    private volatile long startTime = System.currentTimeMillis();
+
+    public void commandCompleted(final String verb, final long nanos, final boolean succeeded) {
+        getCommandLatency(verb).record(nanos);
+        if (!succeeded) {
+            failedCommandCount.incrementAndGet();
+        }
+    }
+
+    public void transportCallCompleted(final long nanos) {
+        transportLatency.record(nanos);
+    }
+
+    public void commandExpired() {
+        expiredCommandCount.incrementAndGet();
+    }
+
+    public void pingSent() {
+        pingCount.incrementAndGet();
+    }
+
+    public void messageReceived() {
+        receivedMessageCount.incrementAndGet();
+    }
+
+    public void eventDelivered(final long nanos) {
+        eventDeliveryTime.record(nanos);
+    }
+
+    /**
+     * Gets the latency histogram of a command verb, creating it if needed.
+     * @param verb the command verb, like "GET USER"
+     * @return the histogram
+     */
+    public LatencyHistogram getCommandLatency(final String verb) {
+        LatencyHistogram histogram = commandLatencies.get(verb);
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+            LatencyHistogram existing = commandLatencies.putIfAbsent(verb, histogram);
+            if (existing != null) {
+                histogram = existing;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Gets the latency histograms of all command verbs sent so far.
+     * @return the histograms sorted by verb
+     */
+    public Map<String, LatencyHistogram> getCommandLatencies() {
+        return Collections.unmodifiableMap(new TreeMap<String, LatencyHistogram>(commandLatencies));
+    }
+
+    /**
+     * Gets the latency of the transport, like the DBus calls on Linux.
+     * @return the histogram
+     */
+    public LatencyHistogram getTransportLatency() {
+        return transportLatency;
+    }
+
+    /**
+     * Gets the time the listeners take per event.
+     * @return the histogram
+     */
+    public LatencyHistogram getEventDeliveryTime() {
+        return eventDeliveryTime;
+    }
+
+    public long getFailedCommandCount() {
+        return failedCommandCount.get();
+    }
+
+    public long getExpiredCommandCount() {
+        return expiredCommandCount.get();
+    }
+
+    public long getPingCount() {
+        return pingCount.get();
+    }
+
+    public long getReceivedMessageCount() {
+        return receivedMessageCount.get();
+    }
+
+    /**
+     * Gets the average number of messages received per second since the metrics were created or reset.
+     * @return the rate
+     */
+    public double getReceivedMessageRate() {
+        long elapsed = Math.max(System.currentTimeMillis() - startTime, 1);
+        return receivedMessageCount.get() * 1000.0 / elapsed;
+    }
+
+    /**
+     * Forgets all measurements.
+     */
+    public void reset() {
+        commandLatencies.clear();
+        transportLatency.reset();
+        eventDeliveryTime.reset();
+        failedCommandCount.set(0);
+        expiredCommandCount.set(0);
+        pingCount.set(0);
+        receivedMessageCount.set(0);
+        startTime = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies.
+ * <p>
+ * Latencies are counted in buckets of powers of two microseconds, so percentiles
+ * are accurate to a factor of two, which is enough to tell a slow Skype client
+ * from a slow listener.
+ * </p>
+ */
+public final class LatencyHistogram {
+    /** The number of buckets, the last one counts everything from about 36 minutes. */
+    private static final int BUCKET_COUNT = 32;
+
+    /** The counts of the latencies by bucket; bucket i counts latencies below 2^i microseconds. */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records a latency.
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(final long nanos) {
+        long micros = Math.max(nanos / 1000, 0);
+        int bucket = Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKET_COUNT - 1);
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        long max;
+        while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+            // retry
+        }
+    }
+
+    /**
+     * Gets the number of recorded latencies.
+     * @return the count
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Gets the mean latency.
+     * @return the mean in milliseconds or 0 if nothing was recorded
+     */
+    public double getMeanMillis() {
+        long currentCount = count.get();
+        return currentCount == 0 ? 0 : totalNanos.get() / 1e6 / currentCount;
+    }
+
+    /**
+     * Gets the maximum latency.
+     * @return the maximum in milliseconds
+     */
+    public double getMaxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    /**
+     * Gets the upper bound of a percentile of the latencies.
+     * @param percentile the percentile, like 99 for the 99th percentile
+     * @return the upper bound in milliseconds or 0 if nothing was recorded
+     */
+    public double getPercentileMillis(final double percentile) {
+        if (percentile < 0 || 100 < percentile) {
+            throw new IllegalArgumentException("The percentile must be between 0 and 100.");
+        }
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long)Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0) {
+                return Math.min((1L << i) / 1e3, getMaxMillis());
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /**
+     * Forgets all recorded latencies.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount() + ", mean=" + getMeanMillis() + "ms, p50=" + getPercentileMillis(50) + "ms, p99=" + getPercentileMillis(99) + "ms, max=" + getMaxMillis() + "ms";
+    }
+}
@@ -0,0 +1,298 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector;
+
+/**
+ * Parsed view of a message received from the Skype client, like
+ * "USER echo123 ONLINESTATUS ONLINE" or "#12 CHATMESSAGE 34 STATUS RECEIVED".
+ * <p>
+ * The message is tokenized once into offsets of the command id, object type, object id,
+ * property and value. The tokens are returned as {@link CharSequence} slices of the message,
+ * and the <code>is...</code> and typed accessors work on the message directly, so
+ * inspecting a notification does not copy it. A notification is immutable and
+ * is shared by all listeners and subscribers of a message.
+ * </p>
+ */
+public final class Notification {
+    /** The raw message. */
+    private final String message;
+    /** The end of the command id ("#12") or -1 if the message is no response to a command with an id. */
+    private final int commandIdEnd;
+    private final int typeStart;
+    private final int typeEnd;
+    /** The start of the object id or -1 if there is none. */
+    private final int idStart;
+    private final int idEnd;
+    /** The start of the property name or -1 if there is none. */
+    private final int propertyStart;
+    private final int propertyEnd;
+    /** The start of the value or -1 if there is none. */
+    private final int valueStart;
+
+    /**
+     * Parses a message.
+     * @param message the message
+     * @throws NullPointerException if the specified message is null
+     */
+    public Notification(final String message) {
+        ConnectorUtils.checkNotNull("message", message);
+        this.message = message;
+        int start = 0;
+        if (message.startsWith("#")) {
+            int end = message.indexOf(' ');
+            commandIdEnd = end == -1 ? message.length() : end;
+            start = end == -1 ? message.length() : end + 1;
+        } else {
+            commandIdEnd = -1;
+        }
+        typeStart = start;
+        typeEnd = tokenEnd(start);
+        idStart = typeEnd < message.length() ? typeEnd + 1 : -1;
+        idEnd = idStart == -1 ? -1 : tokenEnd(idStart);
+        propertyStart = idStart != -1 && idEnd < message.length() ? idEnd + 1 : -1;
+        propertyEnd = propertyStart == -1 ? -1 : tokenEnd(propertyStart);
+        valueStart = propertyStart != -1 && propertyEnd < message.length() ? propertyEnd + 1 : -1;
+    }
+
+    private int tokenEnd(final int start) {
+        int end = message.indexOf(' ', start);
+        return end == -1 ? message.length() : end;
+    }
+
+    /**
+     * Gets the raw message.
+     * @return the message
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Checks if this is the response to a command sent with an id, like "#12 USER ...".
+     * @return true if the message starts with a command id
+     */
+    public boolean hasCommandId() {
+        return commandIdEnd != -1;
+    }
+
+    /**
+     * Gets the command id, like "#12".
+     * @return the command id or null if the message has none
+     */
+    public CharSequence getCommandId() {
+        return commandIdEnd == -1 ? null : slice(0, commandIdEnd);
+    }
+
+    /**
+     * Gets the object type, like USER. For messages without an object, like
+     * "USERSTATUS ONLINE", this is the first word.
+     * @return the type
+     */
+    public CharSequence getType() {
+        return slice(typeStart, typeEnd);
+    }
+
+    /**
+     * Checks the object type without copying it.
+     * @param type the expected type
+     * @return true if the type is the expected one
+     */
+    public boolean isType(final String type) {
+        return matches(typeStart, typeEnd, type);
+    }
+
+    /**
+     * Gets the object id, like echo123.
+     * @return the id or null if the message has none
+     */
+    public CharSequence getId() {
+        return idStart == -1 ? null : slice(idStart, idEnd);
+    }
+
+    /**
+     * Checks the object id without copying it.
+     * @param id the expected id
+     * @return true if the message has the expected id
+     */
+    public boolean isId(final String id) {
+        return idStart != -1 && matches(idStart, idEnd, id);
+    }
+
+    /**
+     * Gets the property name, like ONLINESTATUS.
+     * @return the property name or null if the message has none
+     */
+    public CharSequence getProperty() {
+        return propertyStart == -1 ? null : slice(propertyStart, propertyEnd);
+    }
+
+    /**
+     * Checks the property name without copying it.
+     * @param property the expected property name
+     * @return true if the message has the expected property
+     */
+    public boolean isProperty(final String property) {
+        return propertyStart != -1 && matches(propertyStart, propertyEnd, property);
+    }
+
+    /**
+     * Gets the property value, everything after the property name.
+     * @return the value or an empty sequence if the message has none
+     */
+    public CharSequence getValue() {
+        return valueStart == -1 ? "" : slice(valueStart, message.length());
+    }
+
+    /**
+     * Checks the property value without copying it.
+     * @param value the expected value
+     * @return true if the message has the expected value
+     */
+    public boolean isValue(final String value) {
+        return valueStart == -1 ? value.length() == 0 : matches(valueStart, message.length(), value);
+    }
+
+    /**
+     * Parses the property value as an int without copying it.
+     * @return the value
+     * @throws NumberFormatException if the value is no decimal int
+     */
+    public int getIntValue() {
+        long value = getLongValue();
+        if (value < Integer.MIN_VALUE || Integer.MAX_VALUE < value) {
+            throw new NumberFormatException("The value is out of the int range: " + getValue());
+        }
+        return (int)value;
+    }
+
+    /**
+     * Parses the property value as a long without copying it.
+     * @return the value
+     * @throws NumberFormatException if the value is no decimal long
+     */
+    public long getLongValue() {
+        int start = valueStart == -1 ? message.length() : valueStart;
+        int end = message.length();
+        boolean negative = start < end && message.charAt(start) == '-';
+        int i = negative ? start + 1 : start;
+        if (i == end) {
+            throw new NumberFormatException("The value is no long: " + getValue());
+        }
+        // accumulate negatively like Long.parseLong to cover Long.MIN_VALUE
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = message.charAt(i) - '0';
+            if (digit < 0 || 9 < digit) {
+                throw new NumberFormatException("The value is no long: " + getValue());
+            }
+            if (result < limit / 10 || result * 10 < limit + digit) {
+                throw new NumberFormatException("The value is out of the long range: " + getValue());
+            }
+            result = result * 10 - digit;
+        }
+        if (!negative) {
+            result = -result;
+        }
+        return result;
+    }
+
+    /**
+     * Parses the property value as a boolean, "TRUE" is true and everything else false.
+     * @return the value
+     */
+    public boolean getBooleanValue() {
+        return isValue("TRUE");
+    }
+
+    /**
+     * Computes a hash of the object type and id without copying them. All messages
+     * about the same object, like "CHATMESSAGE 34 STATUS SENDING" and
+     * "CHATMESSAGE 34 STATUS SENT", have the same hash.
+     * @return the hash
+     */
+    int getObjectHash() {
+        int end = idStart == -1 ? typeEnd : idEnd;
+        int hash = 0;
+        for (int i = typeStart; i < end; i++) {
+            hash = 31 * hash + message.charAt(i);
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the raw message.
+     * @return the message
+     */
+    @Override
+    public String toString() {
+        return message;
+    }
+
+    private boolean matches(final int start, final int end, final String token) {
+        return end - start == token.length() && message.regionMatches(start, token, 0, token.length());
+    }
+
+    private CharSequence slice(final int start, final int end) {
+        return new Slice(message, start, end);
+    }
+
+    /**
+     * Read-only character sequence backed by a region of the message.
+     * {@link #toString()} copies the region.
+     */
+    private static final class Slice implements CharSequence {
+        private final String message;
+        private final int start;
+        private final int end;
+
+        Slice(final String message, final int start, final int end) {
+            this.message = message;
+            this.start = start;
+            this.end = end;
+        }
+
+        public int length() {
+            return end - start;
+        }
+
+        public char charAt(final int index) {
+            if (index < 0 || length() <= index) {
+                throw new IndexOutOfBoundsException("index: " + index);
+            }
+            return message.charAt(start + index);
+        }
+
+        public CharSequence subSequence(final int from, final int to) {
+            if (from < 0 || to > length() || from > to) {
+                throw new IndexOutOfBoundsException("from: " + from + ", to: " + to);
+            }
+            return new Slice(message, start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            return message.substring(start, end);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Routes notifications like "USER echo123 ONLINESTATUS ONLINE" to the subscribers
+ * of their object type, object id and property.
+ * <p>
+ * The subscribers are kept in a trie of type, id and property, where a null id
+ * or property matches any value. A notification is tokenized once and only visits
+ * the branches of its own tokens, comparing the tokens in place, so the cost does not grow with the number of
+ * subscribers of other objects. Lookups take no lock; modifications are synchronized
+ * and replace the subscriber arrays.
+ * </p>
+ */
+final class NotificationDispatcher {
+    /** The empty subscriber array. */
+    private static final NotificationSubscriber[] NO_SUBSCRIBERS = new NotificationSubscriber[0];
+
+    /** The subscriptions by object type. */
+    private final ConcurrentMap<String, IdNode> typeToNodes = new ConcurrentHashMap<String, IdNode>();
+
+    /**
+     * Adds a subscriber.
+     * @param type the object type
+     * @param id the object id or null for all objects
+     * @param property the property name or null for all properties
+     * @param subscriber the subscriber to be added
+     */
+    synchronized void add(final String type, final String id, final String property, final NotificationSubscriber subscriber) {
+        IdNode idNode = typeToNodes.get(type);
+        if (idNode == null) {
+            idNode = new IdNode();
+            typeToNodes.put(type, idNode);
+        }
+        PropertyNode propertyNode = idNode.any;
+        if (id != null) {
+            propertyNode = idNode.ids.get(id);
+            if (propertyNode == null) {
+                propertyNode = new PropertyNode();
+                idNode.ids.put(id, propertyNode);
+            }
+        }
+        if (property == null) {
+            propertyNode.any = append(propertyNode.any, subscriber);
+        } else {
+            NotificationSubscriber[] subscribers = propertyNode.properties.get(property);
+            propertyNode.properties.put(property, append(subscribers == null ? NO_SUBSCRIBERS : subscribers, subscriber));
+        }
+    }
+
+    /**
+     * Removes a subscriber added with the same type, id and property.
+     * Empty branches of the trie are removed with it.
+     * @param type the object type
+     * @param id the object id or null for all objects
+     * @param property the property name or null for all properties
+     * @param subscriber the subscriber to be removed
+     */
+    synchronized void remove(final String type, final String id, final String property, final NotificationSubscriber subscriber) {
+        IdNode idNode = typeToNodes.get(type);
+        if (idNode == null) {
+            return;
+        }
+        PropertyNode propertyNode = id == null ? idNode.any : idNode.ids.get(id);
+        if (propertyNode == null) {
+            return;
+        }
+        if (property == null) {
+            propertyNode.any = remove(propertyNode.any, subscriber);
+        } else {
+            NotificationSubscriber[] subscribers = propertyNode.properties.get(property);
+            if (subscribers == null) {
+                return;
+            }
+            subscribers = remove(subscribers, subscriber);
+            if (subscribers.length == 0) {
+                propertyNode.properties.remove(property);
+            } else {
+                propertyNode.properties.put(property, subscribers);
+            }
+        }
+        if (id != null && propertyNode.isEmpty()) {
+            idNode.ids.remove(id);
+        }
+        if (idNode.isEmpty()) {
+            typeToNodes.remove(type);
+        }
+    }
+
+    /**
+     * Removes all subscribers.
+     */
+    synchronized void clear() {
+        typeToNodes.clear();
+    }
+
+    /**
+     * Routes a received message to the matching subscribers.
+     * Responses to commands with an id ("#1 USER ...") are not notifications and are ignored.
+     * @param notification the received message
+     */
+    void dispatch(final Notification notification) {
+        if (typeToNodes.isEmpty() || notification.hasCommandId()) {
+            return;
+        }
+        IdNode idNode = find(typeToNodes, notification.getType());
+        if (idNode == null) {
+            return;
+        }
+        dispatch(idNode.any, notification);
+        CharSequence id = notification.getId();
+        if (id != null && !idNode.ids.isEmpty()) {
+            PropertyNode propertyNode = idNode.ids.get(id.toString());
+            if (propertyNode != null) {
+                dispatch(propertyNode, notification);
+            }
+        }
+    }
+
+    /**
+     * Calls the subscribers of a property node matching the property.
+     */
+    private static void dispatch(final PropertyNode propertyNode, final Notification notification) {
+        fire(propertyNode.any, notification);
+        CharSequence property = notification.getProperty();
+        if (property != null && !propertyNode.properties.isEmpty()) {
+            NotificationSubscriber[] subscribers = find(propertyNode.properties, property);
+            if (subscribers != null) {
+                fire(subscribers, notification);
+            }
+        }
+    }
+
+    /**
+     * Finds the value of a token in a map with few keys, like the object types or the
+     * subscribed properties of an object, without copying the token.
+     */
+    private static <V> V find(final Map<String, V> map, final CharSequence token) {
+        for (Map.Entry<String, V> entry : map.entrySet()) {
+            if (contentEquals(entry.getKey(), token)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static boolean contentEquals(final String key, final CharSequence token) {
+        if (key.length() != token.length()) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (key.charAt(i) != token.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void fire(final NotificationSubscriber[] subscribers, final Notification notification) {
+        for (NotificationSubscriber subscriber : subscribers) {
+            subscriber.notificationReceived(notification);
+        }
+    }
+
+    private static NotificationSubscriber[] append(final NotificationSubscriber[] subscribers, final NotificationSubscriber subscriber) {
+        NotificationSubscriber[] result = new NotificationSubscriber[subscribers.length + 1];
+        System.arraycopy(subscribers, 0, result, 0, subscribers.length);
+        result[subscribers.length] = subscriber;
+        return result;
+    }
+
+    private static NotificationSubscriber[] remove(final NotificationSubscriber[] subscribers, final NotificationSubscriber subscriber) {
+        for (int i = 0; i < subscribers.length; i++) {
+            if (subscribers[i] == subscriber) {
+                NotificationSubscriber[] result = new NotificationSubscriber[subscribers.length - 1];
+                System.arraycopy(subscribers, 0, result, 0, i);
+                System.arraycopy(subscribers, i + 1, result, i, subscribers.length - i - 1);
+                return result;
+            }
+        }
+        return subscribers;
+    }
+
+    /**
+     * The subscriptions of one object type.
+     */
+    private static final class IdNode {
+        /** The subscriptions for all objects of the type. */
+        private final PropertyNode any = new PropertyNode();
+        /** The subscriptions by object id. */
+        private final ConcurrentMap<String, PropertyNode> ids = new ConcurrentHashMap<String, PropertyNode>();
+
+        private boolean isEmpty() {
+            return any.isEmpty() && ids.isEmpty();
+        }
+    }
+
+    /**
+     * The subscriptions of one object or of all objects of a type.
+     */
+    private static final class PropertyNode {
+        /** The subscribers of all properties. */
+        private volatile NotificationSubscriber[] any = NO_SUBSCRIBERS;
+        /** The subscribers by property name. */
+        private final ConcurrentMap<String, NotificationSubscriber[]> properties = new ConcurrentHashMap<String, NotificationSubscriber[]>();
+
+        private boolean isEmpty() {
+            return any.length == 0 && properties.isEmpty();
+        }
+    }
+}
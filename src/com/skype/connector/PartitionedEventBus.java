@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector;
+
+/**
+ * Delivers the events of a connector on several serial lanes.
+ * <p>
+ * A message event is put on the lane selected by the hash of its object type and id,
+ * so the messages about one chat message, chat or user are delivered in order, while
+ * the messages about different objects are delivered in parallel. Status events are
+ * delivered on the first lane.
+ * </p>
+ */
+final class PartitionedEventBus {
+    /** The lanes, each with its own worker thread and a copy of the listeners. */
+    private final EventBus[] lanes;
+    /** The number of listeners. */
+    private volatile int listenerCount;
+
+    /**
+     * Constructor.
+     * @param threadName the prefix of the names of the worker threads
+     * @param laneCount the number of lanes
+     */
+    PartitionedEventBus(final String threadName, final int laneCount) {
+        if (laneCount <= 0) {
+            throw new IllegalArgumentException("The lane count must be more than 0.");
+        }
+        lanes = new EventBus[laneCount];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new EventBus(threadName + "-" + i, null);
+        }
+    }
+
+    /**
+     * Gets the number of lanes.
+     * @return the number of lanes
+     */
+    int getLaneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * Gets the number of events waiting for delivery on all lanes.
+     * @return the queue depth
+     */
+    int getQueueDepth() {
+        int depth = 0;
+        for (EventBus lane : lanes) {
+            depth += lane.getQueueDepth();
+        }
+        return depth;
+    }
+
+    synchronized void addListener(final ConnectorListener listener) {
+        for (EventBus lane : lanes) {
+            lane.addListener(listener);
+        }
+        listenerCount++;
+    }
+
+    synchronized void removeListener(final ConnectorListener listener) {
+        boolean removed = false;
+        for (EventBus lane : lanes) {
+            removed |= lane.removeListener(listener);
+        }
+        if (removed) {
+            listenerCount--;
+        }
+    }
+
+    synchronized void clearListeners() {
+        for (EventBus lane : lanes) {
+            lane.clearListeners();
+        }
+        listenerCount = 0;
+    }
+
+    void start(final Connector connector) {
+        for (EventBus lane : lanes) {
+            lane.start(connector);
+        }
+    }
+
+    void stop() {
+        for (EventBus lane : lanes) {
+            lane.stop();
+        }
+    }
+
+    /**
+     * Queues a message event on the lane of its object.
+     * Nothing is queued if there is no listener.
+     * @param event the event
+     * @param kind the kind of the event
+     */
+    void publish(final ConnectorMessageEvent event, final byte kind) {
+        if (listenerCount == 0) {
+            return;
+        }
+        int hash = event.getNotification().getObjectHash();
+        hash ^= (hash >>> 16);
+        lanes[(hash & Integer.MAX_VALUE) % lanes.length].publish(event, kind);
+    }
+
+    /**
+     * Queues a status event on the first lane.
+     * Nothing is queued if there is no listener.
+     * @param event the event
+     */
+    void publish(final ConnectorStatusEvent event) {
+        if (listenerCount == 0) {
+            return;
+        }
+        lanes[0].publish(event, EventBus.STATUS_CHANGED);
+    }
+}
@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector;
+
+import java.util.Set;
+
+/**
+ * A command which has been sent to the Skype client and is waiting for its response.
+ * Instances are registered with the {@link ResponseRouter} which completes them
+ * directly, without going through the connector listeners.
+ */
+final class PendingCommand extends CommandFuture {
+    /** The command that was sent. */
+    private final String command;
+    /** The response headers that terminate this command. */
+    private final String[] responseHeaders;
+    /** The "#N" command ID or null if the command was sent without an ID. */
+    private final String commandId;
+    /** If true the "#N " command ID is removed from the response. */
+    private final boolean stripCommandId;
+
+    /** The router this command is registered with. */
+    private volatile ResponseRouter router;
+    /** The time the command was created in milliseconds. */
+    private final long startTime = System.currentTimeMillis();
+    /** The time the command was created in nanoseconds, to measure its latency. */
+    private final long startNanos = System.nanoTime();
+    /** Receives the latency of this command, or null. */
+    private volatile ConnectorMetrics metrics;
+    /** The wheel tracking the timeout of this command. */
+    private volatile TimeoutWheel timeoutWheel;
+    /** The bucket of the timeout wheel this command is in, or null. */
+    private volatile Set<PendingCommand> timeoutBucket;
+    /** The time this command expires in milliseconds. */
+    private volatile long deadline;
+    /** The number of wheel rounds left until the deadline, only used by the wheel thread. */
+    private long remainingRounds;
+
+    /**
+     * Constructor.
+     * @param newCommand the command that was sent
+     * @param newResponseHeaders the response headers to get the accurate response
+     * @param newStripCommandId if true the "#N " command ID is removed from the response
+     */
+    PendingCommand(final String newCommand, final String[] newResponseHeaders, final boolean newStripCommandId) {
+        command = newCommand;
+        responseHeaders = newResponseHeaders;
+        commandId = toCommandId(newCommand);
+        stripCommandId = newStripCommandId && commandId != null;
+    }
+
+    /**
+     * Extracts the "#N" command ID from the specified message.
+     * @param message the command or response
+     * @return the command ID or null if the message does not start with one
+     */
+    static String toCommandId(final String message) {
+        if (message.length() == 0 || message.charAt(0) != '#') {
+            return null;
+        }
+        final int end = message.indexOf(' ');
+        return end == -1 ? message : message.substring(0, end);
+    }
+
+    String getCommand() {
+        return command;
+    }
+
+    String[] getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    String getCommandId() {
+        return commandId;
+    }
+
+    /**
+     * Checks if the specified message is a response to this command.
+     * @param message the received message
+     * @return true if the message starts with one of the response headers
+     */
+    boolean isResponse(final String message) {
+        for (String responseHeader : responseHeaders) {
+            if (message.startsWith(responseHeader)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Completes this command with a routed response.
+     * @param message the response
+     */
+    void deliver(final String message) {
+        complete(stripCommandId ? message.substring(commandId.length() + 1) : message);
+    }
+
+    /**
+     * Gets the verb of the command for metrics, like "GET USER", "ALTER CHAT" or "SEARCH".
+     * @return the verb
+     */
+    String getVerb() {
+        int start = commandId == null ? 0 : commandId.length() + 1;
+        int end = command.indexOf(' ', start);
+        if (end == -1) {
+            return command.substring(Math.min(start, command.length()));
+        }
+        if (command.startsWith("GET ", start) || command.startsWith("SET ", start) || command.startsWith("ALTER ", start)) {
+            int objectEnd = command.indexOf(' ', end + 1);
+            end = objectEnd == -1 ? command.length() : objectEnd;
+        }
+        return command.substring(start, end);
+    }
+
+    void setMetrics(final ConnectorMetrics newMetrics) {
+        metrics = newMetrics;
+    }
+
+    long getStartTime() {
+        return startTime;
+    }
+
+    long getDeadline() {
+        return deadline;
+    }
+
+    void setDeadline(final long newDeadline) {
+        deadline = newDeadline;
+    }
+
+    long getRemainingRounds() {
+        return remainingRounds;
+    }
+
+    void setRemainingRounds(final long newRemainingRounds) {
+        remainingRounds = newRemainingRounds;
+    }
+
+    Set<PendingCommand> getTimeoutBucket() {
+        return timeoutBucket;
+    }
+
+    void setTimeoutBucket(final Set<PendingCommand> newTimeoutBucket) {
+        timeoutBucket = newTimeoutBucket;
+    }
+
+    void setTimeoutWheel(final TimeoutWheel newTimeoutWheel) {
+        timeoutWheel = newTimeoutWheel;
+    }
+
+    void setRouter(final ResponseRouter newRouter) {
+        router = newRouter;
+    }
+
+    void done() {
+        final ResponseRouter registeredRouter = router;
+        if (registeredRouter != null) {
+            registeredRouter.unregister(this);
+        }
+        final TimeoutWheel wheel = timeoutWheel;
+        if (wheel != null) {
+            wheel.cancel(this);
+        }
+        final ConnectorMetrics currentMetrics = metrics;
+        if (currentMetrics != null) {
+            currentMetrics.commandCompleted(getVerb(), System.nanoTime() - startNanos, !isFailed() && !isCancelled());
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Routes responses to the commands waiting for them and completes their futures.
+ * <p>
+ * Commands sent with a "#N" command ID are looked up by that ID, all other
+ * commands by their response headers. Response headers have to end at a token
+ * boundary of the response (like "USER echo123 FULLNAME " or "ALTER CHAT LEAVE"),
+ * so a received message is only looked up by the prefixes ending at its spaces.
+ * </p>
+ */
+final class ResponseRouter {
+    /** Pending commands by their "#N" command ID. */
+    private final Map<String, PendingCommand> idToCommand = new ConcurrentHashMap<String, PendingCommand>();
+    /** Pending commands without a command ID by their response headers, guarded by itself for modifications. */
+    private final Map<String, Set<PendingCommand>> headerToCommands = new ConcurrentHashMap<String, Set<PendingCommand>>();
+    /** All pending commands. */
+    private final Set<PendingCommand> commands = newConcurrentSet();
+    /** The length of the longest response header ever registered, guarded by headerToCommands for modifications. */
+    private volatile int maxHeaderLength;
+
+    /**
+     * Registers a command before it is sent.
+     * @param command the command waiting for a response
+     */
+    void register(final PendingCommand command) {
+        command.setRouter(this);
+        commands.add(command);
+        final String commandId = command.getCommandId();
+        if (commandId != null) {
+            idToCommand.put(commandId, command);
+            return;
+        }
+        synchronized (headerToCommands) {
+            for (String responseHeader : command.getResponseHeaders()) {
+                Set<PendingCommand> bucket = headerToCommands.get(responseHeader);
+                if (bucket == null) {
+                    bucket = newConcurrentSet();
+                    headerToCommands.put(responseHeader, bucket);
+                }
+                bucket.add(command);
+                maxHeaderLength = Math.max(maxHeaderLength, responseHeader.length());
+            }
+        }
+    }
+
+    /**
+     * Unregisters a command after it has been finished.
+     * @param command the command that does not wait any longer
+     */
+    void unregister(final PendingCommand command) {
+        commands.remove(command);
+        final String commandId = command.getCommandId();
+        if (commandId != null) {
+            idToCommand.remove(commandId);
+            return;
+        }
+        synchronized (headerToCommands) {
+            for (String responseHeader : command.getResponseHeaders()) {
+                final Set<PendingCommand> bucket = headerToCommands.get(responseHeader);
+                if (bucket != null && bucket.remove(command) && bucket.isEmpty()) {
+                    headerToCommands.remove(responseHeader);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of commands currently waiting for a response.
+     * @return the number of pending commands
+     */
+    int getPendingCommandCount() {
+        return commands.size();
+    }
+
+    /**
+     * Gets the commands currently waiting for a response.
+     * @return the pending commands
+     */
+    Collection<PendingCommand> getPendingCommands() {
+        return new ArrayList<PendingCommand>(commands);
+    }
+
+    /**
+     * Gets the pending command which was sent as the specified command.
+     * @param command the command as it was sent, including its command ID if any
+     * @return the pending command, or null if there is none
+     */
+    PendingCommand getPendingCommand(final String command) {
+        final String commandId = PendingCommand.toCommandId(command);
+        if (commandId != null) {
+            final PendingCommand pendingCommand = idToCommand.get(commandId);
+            return pendingCommand != null && pendingCommand.getCommand().equals(command) ? pendingCommand : null;
+        }
+        for (PendingCommand pendingCommand : commands) {
+            if (pendingCommand.getCommand().equals(command)) {
+                return pendingCommand;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Hands over the specified message to the commands waiting for it.
+     * @param message the received message
+     * @return true if at least one command received the message
+     */
+    boolean route(final String message) {
+        final String commandId = PendingCommand.toCommandId(message);
+        if (commandId != null) {
+            final PendingCommand command = idToCommand.get(commandId);
+            if (command != null && command.isResponse(message)) {
+                command.deliver(message);
+                return true;
+            }
+            return false;
+        }
+        if (headerToCommands.isEmpty()) {
+            return false;
+        }
+        boolean routed = false;
+        final int limit = Math.min(message.length(), maxHeaderLength);
+        for (int i = message.indexOf(' '); i != -1 && i <= limit; i = message.indexOf(' ', i + 1)) {
+            routed |= route(message, message.substring(0, i));
+            routed |= route(message, message.substring(0, i + 1));
+        }
+        if (message.length() <= limit) {
+            routed |= route(message, message);
+        }
+        return routed;
+    }
+
+    /**
+     * Hands over the specified message to the commands waiting for the specified response header.
+     * @param message the received message
+     * @param responseHeader the candidate response header
+     * @return true if at least one command received the message
+     */
+    private boolean route(final String message, final String responseHeader) {
+        final Set<PendingCommand> bucket = headerToCommands.get(responseHeader);
+        if (bucket == null || bucket.isEmpty()) {
+            return false;
+        }
+        for (PendingCommand command : bucket) {
+            command.deliver(message);
+        }
+        return true;
+    }
+
+    private static Set<PendingCommand> newConcurrentSet() {
+        return Collections.newSetFromMap(new ConcurrentHashMap<PendingCommand, Boolean>());
+    }
+}
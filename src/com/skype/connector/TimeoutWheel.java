@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Hashed timing wheel tracking the deadlines of all pending commands of a connector.
+ * <p>
+ * The wheel has a fixed number of buckets, each covering one tick. A command is put
+ * into the bucket of its deadline with the number of full wheel rounds left, so
+ * scheduling and cancelling take constant time regardless of the number of pending
+ * commands. One thread advances the wheel every tick and hands all commands whose
+ * deadline has passed in that tick to the connector at once.
+ * </p>
+ */
+final class TimeoutWheel {
+    /** The duration of a tick in milliseconds. */
+    private static final long TICK_MILLIS = 100;
+    /** The number of buckets, a power of two. */
+    private static final int WHEEL_SIZE = 512;
+
+    /** The connector to notify about expired commands. */
+    private final Connector connector;
+    /** The buckets with the commands expiring in their tick. */
+    private final List<Set<PendingCommand>> buckets = new ArrayList<Set<PendingCommand>>(WHEEL_SIZE);
+    /** The commands scheduled since the last tick, put into the buckets by the wheel thread. */
+    private final Queue<PendingCommand> scheduledCommands = new ConcurrentLinkedQueue<PendingCommand>();
+
+    /** The time the wheel was started in milliseconds. */
+    private volatile long startTime;
+    /** The number of ticks processed, only accessed by the wheel thread. */
+    private long tick;
+    /** The wheel thread or null if the wheel is stopped. */
+    private volatile Thread worker;
+
+    /**
+     * Constructor.
+     * @param connector the connector to notify about expired commands
+     */
+    TimeoutWheel(final Connector connector) {
+        this.connector = connector;
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            buckets.add(Collections.newSetFromMap(new ConcurrentHashMap<PendingCommand, Boolean>()));
+        }
+    }
+
+    /**
+     * Starts the wheel thread.
+     */
+    synchronized void start() {
+        if (worker == null) {
+            startTime = System.currentTimeMillis();
+            tick = 0;
+            worker = connector.newThread("CommandTimeoutChecker", new Runnable() {
+                public void run() {
+                    advance();
+                }
+            });
+            worker.start();
+        }
+    }
+
+    /**
+     * Stops the wheel thread and forgets all scheduled commands.
+     */
+    synchronized void stop() {
+        Thread stopped = worker;
+        worker = null;
+        if (stopped != null) {
+            stopped.interrupt();
+        }
+        scheduledCommands.clear();
+        for (Set<PendingCommand> bucket : buckets) {
+            bucket.clear();
+        }
+    }
+
+    /**
+     * Schedules the timeout of a command, replacing an earlier one.
+     * @param pendingCommand the command
+     * @param deadline the time the command expires in milliseconds
+     */
+    void schedule(final PendingCommand pendingCommand, final long deadline) {
+        cancel(pendingCommand);
+        pendingCommand.setDeadline(deadline);
+        pendingCommand.setTimeoutWheel(this);
+        scheduledCommands.offer(pendingCommand);
+    }
+
+    /**
+     * Removes the timeout of a command.
+     * @param pendingCommand the command
+     */
+    void cancel(final PendingCommand pendingCommand) {
+        Set<PendingCommand> bucket = pendingCommand.getTimeoutBucket();
+        if (bucket != null) {
+            bucket.remove(pendingCommand);
+            pendingCommand.setTimeoutBucket(null);
+        }
+    }
+
+    /**
+     * The loop of the wheel thread.
+     */
+    private void advance() {
+        Thread current = Thread.currentThread();
+        while (worker == current) {
+            long sleepTime = startTime + (tick + 1) * TICK_MILLIS - System.currentTimeMillis();
+            if (sleepTime > 0) {
+                try {
+                    Thread.sleep(sleepTime);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            transferScheduledCommands();
+            List<PendingCommand> expired = expireBucket();
+            tick++;
+            if (!expired.isEmpty()) {
+                try {
+                    connector.commandsExpired(expired);
+                } catch (RuntimeException e) {
+                    ConnectorUtils.reportError("Expiring timed out commands failed.", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Puts the commands scheduled since the last tick into their buckets.
+     */
+    private void transferScheduledCommands() {
+        PendingCommand pendingCommand;
+        while ((pendingCommand = scheduledCommands.poll()) != null) {
+            if (pendingCommand.isDone()) {
+                continue;
+            }
+            long deadlineTick = Math.max((pendingCommand.getDeadline() - startTime) / TICK_MILLIS, tick);
+            pendingCommand.setRemainingRounds((deadlineTick - tick) / WHEEL_SIZE);
+            Set<PendingCommand> bucket = buckets.get((int)(deadlineTick & (WHEEL_SIZE - 1)));
+            pendingCommand.setTimeoutBucket(bucket);
+            bucket.add(pendingCommand);
+        }
+    }
+
+    /**
+     * Removes the commands expiring in the current tick from its bucket.
+     * @return the expired commands
+     */
+    private List<PendingCommand> expireBucket() {
+        List<PendingCommand> expired = new ArrayList<PendingCommand>();
+        Set<PendingCommand> bucket = buckets.get((int)(tick & (WHEEL_SIZE - 1)));
+        for (Iterator<PendingCommand> i = bucket.iterator(); i.hasNext();) {
+            PendingCommand pendingCommand = i.next();
+            if (pendingCommand.isDone()) {
+                i.remove();
+            } else if (pendingCommand.getRemainingRounds() > 0) {
+                pendingCommand.setRemainingRounds(pendingCommand.getRemainingRounds() - 1);
+            } else {
+                i.remove();
+                pendingCommand.setTimeoutBucket(null);
+                expired.add(pendingCommand);
+            }
+        }
+        return expired;
+    }
+}
@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The channel between a {@link TransportConnector} and a Skype client, like DBus on Linux.
+ * <p>
+ * A transport only moves strings: commands are handed to {@link #send(String)}, replies and
+ * notifications are passed to the {@link TransportListener} given to {@link #open(TransportListener, ThreadFactory, ConnectorMetrics)}
+ * in the order the Skype client sent them. Attaching, command IDs and timeouts are handled by the connector.
+ * </p>
+ * @see TransportProvider
+ */
+public interface Transport {
+    /**
+     * Opens the channel to the Skype client.
+     * @param listener receives the replies and notifications of the Skype client
+     * @param threadFactory creates the threads of the transport, which may rename them
+     * @param metrics receives the duration of the transport calls
+     * @throws ConnectorException if the channel could not be opened
+     */
+    void open(TransportListener listener, ThreadFactory threadFactory, ConnectorMetrics metrics) throws ConnectorException;
+
+    /**
+     * Checks if the Skype client is running.
+     * @return true if the Skype client is running
+     * @throws ConnectorException if checking failed
+     */
+    boolean isRunning() throws ConnectorException;
+
+    /**
+     * Gets the absolute path of the Skype client.
+     * @return the path, or null if unknown
+     */
+    String getInstalledPath();
+
+    /**
+     * Sends a command to the Skype client without waiting for the reply.
+     * @param command the command, optionally prefixed with a "#N" command ID
+     */
+    void send(String command);
+
+    /**
+     * Closes the channel and stops the threads of the transport.
+     * @throws ConnectorException if closing failed
+     */
+    void close() throws ConnectorException;
+}
@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.skype.Skype;
+
+/**
+ * Connector talking to the Skype client through a {@link Transport}.
+ * The transport is opened when this connector is initialized and closed when it is disposed.
+ */
+public class TransportConnector extends Connector {
+    private final Transport transport;
+    /** Receives the replies to the attach request while connecting, null otherwise. */
+    private volatile BlockingQueue<String> attachReplies;
+    /** The failure of the attach request, if it could not be sent. */
+    private volatile ConnectorException attachFailure;
+    private final AtomicInteger threadNumber = new AtomicInteger();
+
+    private final TransportListener listener = new TransportListener() {
+        public void notificationReceived(String notification) {
+            BlockingQueue<String> replies = attachReplies;
+            if (replies != null && ("OK".equals(notification) || "CONNSTATUS OFFLINE".equals(notification) || "ERROR 68".equals(notification))) {
+                replies.offer(notification);
+            }
+            fireMessageReceived(notification);
+        }
+
+        public void commandFailed(String command, ConnectorException cause) {
+            BlockingQueue<String> replies = attachReplies;
+            if (replies != null && command.startsWith("NAME ")) {
+                attachFailure = cause;
+                replies.offer("");
+            }
+            fireCommandFailed(command, cause);
+        }
+
+        public void transportClosed() {
+            setStatus(Status.NOT_RUNNING);
+        }
+    };
+
+    /**
+     * Constructor.
+     * @param skype the Skype instance using this connector
+     * @param transport the unopened transport
+     */
+    public TransportConnector(final Skype skype, final Transport transport) {
+        super(skype);
+        ConnectorUtils.checkNotNull("transport", transport);
+        this.transport = transport;
+    }
+
+    /**
+     * Gets the transport of this connector.
+     * @return the transport
+     */
+    public final Transport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Gets the absolute path of Skype.
+     * @return the path, or null if unknown
+     */
+    public String getInstalledPath() {
+        return transport.getInstalledPath();
+    }
+
+    public boolean isRunning() throws ConnectorException {
+        return transport.isRunning();
+    }
+
+    /**
+     * Gets the transport as avatar provider if it implements {@link AvatarProvider}.
+     * @return the provider, or null
+     */
+    public AvatarProvider getAvatarProvider() {
+        return transport instanceof AvatarProvider ? (AvatarProvider)transport : null;
+    }
+
+    /**
+     * Opens the transport.
+     */
+    protected void initializeImpl() throws ConnectorException {
+        transport.open(listener, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                return TransportConnector.this.newThread("SkypeTransport-" + threadNumber.incrementAndGet(), r);
+            }
+        }, getMetrics());
+    }
+
+    /**
+     * Attaches to the Skype client by sending the application name.
+     * 
+     * @param timeout the maximum time in milliseconds to connect.
+     * @return Status the status after connecting.
+     * @throws ConnectorException when connection can not be established.
+     */
+    protected Status connect(int timeout) throws ConnectorException {
+        if (!transport.isRunning()) {
+            setStatus(Status.NOT_RUNNING);
+            return getStatus();
+        }
+        try {
+            final BlockingQueue<String> queue = new LinkedBlockingQueue<String>();
+            attachFailure = null;
+            attachReplies = queue;
+            String result;
+            try {
+                setStatus(Status.PENDING_AUTHORIZATION);
+                transport.send("NAME " + getApplicationName());
+                result = queue.take();
+            } finally {
+                attachReplies = null;
+            }
+            final ConnectorException failure = attachFailure;
+            if (failure != null) {
+                setStatus(Status.NOT_AVAILABLE);
+                throw new ConnectorException("Trying to connect failed.", failure);
+            }
+            if ("OK".equals(result)) {
+                setStatus(Status.ATTACHED);
+            } else if ("ERROR 68".equals(result)) {
+                setStatus(Status.REFUSED);
+            } else {
+                setStatus(Status.NOT_AVAILABLE);
+            }
+            return getStatus();
+        } catch (InterruptedException e) {
+            throw new ConnectorException("Trying to connect was interrupted.", e);
+        }
+    }
+
+    /**
+     * Sends a command to the Skype client.
+     * 
+     * @param command The command to send.
+     */
+    protected void sendCommand(final String command) {
+        if (isDisposed()) {
+            return;
+        }
+        transport.send(command);
+    }
+
+    /**
+     * Closes the transport.
+     */
+    protected void disposeImpl() throws ConnectorException {
+        transport.close();
+    }
+}
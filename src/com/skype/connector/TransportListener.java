@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector;
+
+/**
+ * Receives what a {@link Transport} gets from the Skype client.
+ */
+public interface TransportListener {
+    /**
+     * Called for every reply and notification of the Skype client, in order.
+     * @param notification the reply or notification
+     */
+    void notificationReceived(String notification);
+
+    /**
+     * Called when a command handed to {@link Transport#send(String)} could not be delivered
+     * to the Skype client or got no reply from it, so no response will arrive.
+     * @param command the command as it was sent
+     * @param cause the failure
+     */
+    void commandFailed(String command, ConnectorException cause);
+
+    /**
+     * Called when the Skype client has terminated.
+     */
+    void transportClosed();
+}
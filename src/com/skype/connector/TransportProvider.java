@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector;
+
+import com.skype.Skype;
+
+/**
+ * Creates the {@link Transport}s of one kind and the connectors using them.
+ * <p>
+ * Providers are found with {@link java.util.ServiceLoader}, so an implementation is registered by
+ * listing it in <code>META-INF/services/com.skype.connector.TransportProvider</code>.
+ * {@link Connector#getInstance(com.skype.Skype, String, String)} returns the connector created by the
+ * provider named by the system property <code>com.skype.connector.Connector.transport</code>, "dbus" by default.
+ * </p>
+ */
+public interface TransportProvider {
+    /**
+     * Gets the name used to select this provider, like "dbus".
+     * @return the name
+     */
+    String getName();
+
+    /**
+     * Creates an unopened transport.
+     * @param username the Skype user to log in, or null
+     * @param password the password of the Skype user, or null
+     * @return the transport
+     */
+    Transport createTransport(String username, String password);
+
+    /**
+     * Creates a connector using a new transport of this provider.
+     * Providers return a subclass of {@link TransportConnector} if their transport has
+     * settings of its own, like the in-flight window of DBus.
+     * @param skype the Skype instance using the connector
+     * @param username the Skype user to log in, or null
+     * @param password the password of the Skype user, or null
+     * @return the connector
+     */
+    TransportConnector createConnector(Skype skype, String username, String password);
+}
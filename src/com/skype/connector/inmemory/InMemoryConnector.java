@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector.inmemory;
+
+import com.skype.Skype;
+import com.skype.connector.TransportConnector;
+
+/**
+ * Connector talking to an {@link InMemorySkypeClient} instead of a Skype client.
+ * <p>
+ * {@link com.skype.connector.Connector#getInstance(Skype, String, String)} returns a connector
+ * to an in-memory client with a generated contact list if the system property
+ * <code>com.skype.connector.Connector.transport</code> is "inmemory".
+ * </p>
+ * @see InMemoryTransport
+ */
+public final class InMemoryConnector extends TransportConnector {
+
+    /**
+     * Constructor.
+     * @param skype the Skype instance using this connector
+     * @param client the in-memory client to talk to
+     */
+    public InMemoryConnector(final Skype skype, final InMemorySkypeClient client) {
+        super(skype, new InMemoryTransport(client));
+    }
+
+    /**
+     * Gets the in-memory client to script the contact list, latency and errors.
+     * @return the client
+     */
+    public InMemorySkypeClient getClient() {
+        return ((InMemoryTransport) getTransport()).getClient();
+    }
+}
@@ -0,0 +1,926 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector.inmemory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.Skype.API;
+import com.Skype.Client;
+import com.skype.connector.ConnectorUtils;
+
+/**
+ * In-process stand-in for the Skype client which answers the Skype API from an
+ * in-memory model of users, chats, chat messages and groups.
+ * <p>
+ * Replies are returned by {@link #Invoke(String)} like the DBus API does,
+ * notifications are sent to the registered {@link Client}s by a delivery thread.
+ * Latency, jitter and errors can be injected and a generator can produce a
+ * steady stream of incoming chat messages and presence changes, so the whole
+ * stack from {@link com.skype.Skype} down can be load tested without a Skype client.
+ * </p>
+ * @see InMemoryConnector
+ */
+public final class InMemorySkypeClient implements API {
+    /** The error reply used when no other error is given. */
+    public static final String DEFAULT_ERROR = "ERROR 9 Command failed";
+
+    private static final String[] ONLINE_STATUSES = { "ONLINE", "AWAY", "DND", "NA", "OFFLINE" };
+
+    /** The handle of the logged in user. */
+    private final String currentUserHandle;
+
+    /** The properties of the users by handle. */
+    private final ConcurrentMap<String, ConcurrentMap<String, String>> users = new ConcurrentHashMap<String, ConcurrentMap<String, String>>();
+    /** The properties of the chats by name. */
+    private final ConcurrentMap<String, ConcurrentMap<String, String>> chats = new ConcurrentHashMap<String, ConcurrentMap<String, String>>();
+    /** The properties of the chat messages by id. */
+    private final ConcurrentMap<String, ConcurrentMap<String, String>> chatMessages = new ConcurrentHashMap<String, ConcurrentMap<String, String>>();
+    /** The properties of the groups by id. */
+    private final ConcurrentMap<String, ConcurrentMap<String, String>> groups = new ConcurrentHashMap<String, ConcurrentMap<String, String>>();
+    /** Global values like CURRENTUSERHANDLE or USERSTATUS. */
+    private final ConcurrentMap<String, String> globals = new ConcurrentHashMap<String, String>();
+    /** The chat message ids in creation order, used to evict the oldest messages. */
+    private final ConcurrentLinkedQueue<String> chatMessageIds = new ConcurrentLinkedQueue<String>();
+    private final AtomicInteger chatMessageCount = new AtomicInteger();
+    private final AtomicInteger nextObjectId = new AtomicInteger(1000);
+
+    private final List<Client> clients = new CopyOnWriteArrayList<Client>();
+    private final DelayQueue<Delivery> deliveries = new DelayQueue<Delivery>();
+    /** Due time of the last queued notification, keeps notifications in order despite jitter. */
+    private long lastDeliveryTime;
+    private final Object deliveryMutex = new Object();
+
+    private volatile int maxChatMessages = 100000;
+    private volatile long latencyNanos;
+    private volatile long jitterNanos;
+    private volatile double errorRate;
+    private volatile String error = DEFAULT_ERROR;
+    private final Map<String, String> failingCommands = new ConcurrentHashMap<String, String>();
+    private volatile boolean dropPongs;
+    private volatile String attachReply = "OK";
+    private final AtomicLong droppedPongCount = new AtomicLong();
+    private final AtomicLong injectedErrorCount = new AtomicLong();
+
+    /** Creates the delivery and generator threads. */
+    private volatile ThreadFactory threadFactory = new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "InMemorySkypeClient-" + currentUserHandle);
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+    private Thread deliveryThread;
+    private Thread generatorThread;
+    private volatile boolean disposed;
+
+    /**
+     * Creates a client with an empty contact list.
+     * @param currentUserHandle the handle of the logged in user
+     */
+    public InMemorySkypeClient(final String currentUserHandle) {
+        ConnectorUtils.checkNotNull("currentUserHandle", currentUserHandle);
+        this.currentUserHandle = currentUserHandle;
+        globals.put("CURRENTUSERHANDLE", currentUserHandle);
+        globals.put("USERSTATUS", "ONLINE");
+        globals.put("CONNSTATUS", "ONLINE");
+        globals.put("SKYPEVERSION", "2.2.0.35");
+        globals.put("PROFILE FULLNAME", currentUserHandle);
+        globals.put("PROFILE MOOD_TEXT", "");
+        addUser(currentUserHandle, currentUserHandle, "ONLINE", false);
+    }
+
+    /**
+     * Creates a client with a contact list of generated friends, chats and groups for load tests.
+     * Friend i is called "friend" + i and has a dialog chat with the current user.
+     * @param currentUserHandle the handle of the logged in user
+     * @param friendCount the number of friends
+     * @return the new client
+     */
+    public static InMemorySkypeClient createPopulated(final String currentUserHandle, final int friendCount) {
+        InMemorySkypeClient client = new InMemorySkypeClient(currentUserHandle);
+        String groupId = client.addGroup("CUSTOM_GROUP", "Friends");
+        for (int i = 0; i < friendCount; i++) {
+            String handle = "friend" + i;
+            client.addFriend(handle, "Friend " + i);
+            client.addChat(handle);
+            client.addUserToGroup(groupId, handle);
+        }
+        return client;
+    }
+
+    /**
+     * Sets the thread factory used for the delivery and generator threads.
+     * @param newThreadFactory the thread factory
+     */
+    public void setThreadFactory(final ThreadFactory newThreadFactory) {
+        ConnectorUtils.checkNotNull("newThreadFactory", newThreadFactory);
+        threadFactory = newThreadFactory;
+    }
+
+    /**
+     * Gets the handle of the logged in user.
+     * @return the handle
+     */
+    public String getCurrentUserHandle() {
+        return currentUserHandle;
+    }
+
+    /**
+     * Sets the latency added to every reply and notification.
+     * @param latency the base latency in milliseconds
+     * @param jitter the maximum random latency in milliseconds added to the base latency
+     */
+    public void setLatency(final double latency, final double jitter) {
+        if (latency < 0 || jitter < 0) {
+            throw new IllegalArgumentException("The latency and the jitter must not be negative.");
+        }
+        latencyNanos = (long) (latency * 1000000);
+        jitterNanos = (long) (jitter * 1000000);
+    }
+
+    /**
+     * Makes a random share of the commands fail.
+     * PINGs and the attach request never fail randomly.
+     * @param rate the share of failing commands, between 0 and 1
+     * @param errorReply the reply of the failing commands, for example "ERROR 9 Command failed"
+     */
+    public void setErrorRate(final double rate, final String errorReply) {
+        if (rate < 0 || rate > 1) {
+            throw new IllegalArgumentException("The error rate must be between 0 and 1.");
+        }
+        if (errorReply == null || !errorReply.startsWith("ERROR ")) {
+            throw new IllegalArgumentException("The error reply must start with \"ERROR \".");
+        }
+        error = errorReply;
+        errorRate = rate;
+    }
+
+    /**
+     * Makes every command starting with the given prefix fail.
+     * @param commandPrefix the prefix of the commands without command ID, for example "GET CHAT "
+     * @param errorReply the reply of the failing commands
+     */
+    public void failCommands(final String commandPrefix, final String errorReply) {
+        if (errorReply == null || !errorReply.startsWith("ERROR ")) {
+            throw new IllegalArgumentException("The error reply must start with \"ERROR \".");
+        }
+        failingCommands.put(commandPrefix, errorReply);
+    }
+
+    /**
+     * Removes all failures added by {@link #failCommands(String, String)}.
+     */
+    public void clearFailingCommands() {
+        failingCommands.clear();
+    }
+
+    /**
+     * Sets if PINGs are left unanswered, which makes a connector believe Skype hangs.
+     * @param on true to drop the PONGs
+     */
+    public void setDropPongs(final boolean on) {
+        dropPongs = on;
+    }
+
+    /**
+     * Sets the reply to the NAME command which attaches an application.
+     * @param reply "OK" to accept, "ERROR 68" to refuse, "CONNSTATUS OFFLINE" if not logged in
+     */
+    public void setAttachReply(final String reply) {
+        ConnectorUtils.checkNotNull("reply", reply);
+        attachReply = reply;
+    }
+
+    /**
+     * Sets how many chat messages are kept before the oldest ones are removed.
+     * @param newMaxChatMessages the maximum number of chat messages
+     */
+    public void setMaxChatMessages(final int newMaxChatMessages) {
+        if (newMaxChatMessages < 1) {
+            throw new IllegalArgumentException("At least one chat message must be kept.");
+        }
+        maxChatMessages = newMaxChatMessages;
+    }
+
+    /**
+     * Gets the number of PINGs which were left unanswered.
+     * @return the number of dropped PONGs
+     */
+    public long getDroppedPongCount() {
+        return droppedPongCount.get();
+    }
+
+    /**
+     * Gets the number of commands which were failed by error injection.
+     * @return the number of injected errors
+     */
+    public long getInjectedErrorCount() {
+        return injectedErrorCount.get();
+    }
+
+    /**
+     * Gets the number of notifications waiting for their delivery.
+     * @return the number of queued notifications
+     */
+    public int getPendingNotificationCount() {
+        return deliveries.size();
+    }
+
+    /**
+     * Adds a receiver of the notifications.
+     * @param client the receiver
+     */
+    public void addClient(final Client client) {
+        ConnectorUtils.checkNotNull("client", client);
+        synchronized (deliveryMutex) {
+            if (disposed) {
+                throw new IllegalStateException("The client has been disposed.");
+            }
+            if (deliveryThread == null) {
+                deliveryThread = threadFactory.newThread(new Runnable() {
+                    public void run() {
+                        deliver();
+                    }
+                });
+                deliveryThread.start();
+            }
+        }
+        clients.add(client);
+    }
+
+    /**
+     * Removes a receiver of the notifications.
+     * @param client the receiver
+     */
+    public void removeClient(final Client client) {
+        clients.remove(client);
+    }
+
+    /**
+     * Stops the delivery and generator threads and drops the queued notifications.
+     */
+    public void dispose() {
+        Thread delivery;
+        synchronized (deliveryMutex) {
+            disposed = true;
+            delivery = deliveryThread;
+            deliveryThread = null;
+        }
+        stopNotificationGenerator();
+        if (delivery != null) {
+            delivery.interrupt();
+        }
+        deliveries.clear();
+        clients.clear();
+    }
+
+    /**
+     * Adds a user who is not a friend of the current user.
+     * @param handle the Skype handle
+     * @param fullName the full name
+     * @param onlineStatus the online status, for example "ONLINE"
+     * @param friend true if the user is on the contact list
+     */
+    public void addUser(final String handle, final String fullName, final String onlineStatus, final boolean friend) {
+        ConcurrentMap<String, String> user = getOrCreateUser(handle);
+        user.put("FULLNAME", fullName);
+        user.put("DISPLAYNAME", "");
+        user.put("ONLINESTATUS", onlineStatus);
+        user.put("BUDDYSTATUS", friend ? "3" : "1");
+    }
+
+    /**
+     * Adds an online friend to the contact list.
+     * @param handle the Skype handle
+     * @param fullName the full name
+     */
+    public void addFriend(final String handle, final String fullName) {
+        addUser(handle, fullName, "ONLINE", true);
+    }
+
+    /**
+     * Adds a chat between the current user and the given members.
+     * A chat with one member is a dialog.
+     * @param memberHandles the handles of the other members
+     * @return the name of the chat
+     */
+    public String addChat(final String... memberHandles) {
+        if (memberHandles.length == 0) {
+            throw new IllegalArgumentException("A chat needs at least one other member.");
+        }
+        StringBuilder members = new StringBuilder(currentUserHandle);
+        for (String handle : memberHandles) {
+            getOrCreateUser(handle);
+            members.append(' ').append(handle);
+        }
+        String name = "#" + currentUserHandle + "/$" + memberHandles[0] + ";" + Integer.toHexString(nextObjectId.getAndIncrement());
+        ConcurrentMap<String, String> chat = new ConcurrentHashMap<String, String>();
+        chat.put("NAME", name);
+        chat.put("TIMESTAMP", Long.toString(System.currentTimeMillis() / 1000));
+        chat.put("ADDER", "");
+        chat.put("STATUS", memberHandles.length == 1 ? "DIALOG" : "MULTI_SUBSCRIBED");
+        chat.put("POSTERS", "");
+        chat.put("MEMBERS", members.toString());
+        chat.put("ACTIVEMEMBERS", members.toString());
+        chat.put("TOPIC", "");
+        chat.put("FRIENDLYNAME", memberHandles.length == 1 ? memberHandles[0] : name);
+        chat.put("BOOKMARKED", "FALSE");
+        chats.put(name, chat);
+        return name;
+    }
+
+    /**
+     * Adds a group.
+     * @param type the group type, for example "CUSTOM_GROUP"
+     * @param displayName the name of the group
+     * @return the id of the group
+     */
+    public String addGroup(final String type, final String displayName) {
+        String id = Integer.toString(nextObjectId.getAndIncrement());
+        ConcurrentMap<String, String> group = new ConcurrentHashMap<String, String>();
+        group.put("TYPE", type);
+        group.put("DISPLAYNAME", displayName);
+        group.put("USERS", "");
+        group.put("NROFUSERS", "0");
+        group.put("VISIBLE", "TRUE");
+        group.put("EXPANDED", "TRUE");
+        groups.put(id, group);
+        return id;
+    }
+
+    /**
+     * Adds a user to a group.
+     * @param groupId the id of the group
+     * @param handle the handle of the user
+     */
+    public void addUserToGroup(final String groupId, final String handle) {
+        ConcurrentMap<String, String> group = groups.get(groupId);
+        if (group == null) {
+            throw new IllegalArgumentException("Unknown group " + groupId);
+        }
+        synchronized (group) {
+            String members = group.get("USERS");
+            group.put("USERS", members.length() == 0 ? handle : members + ", " + handle);
+            group.put("NROFUSERS", Integer.toString(Integer.parseInt(group.get("NROFUSERS")) + 1));
+        }
+    }
+
+    /**
+     * Changes a property of a user and notifies the clients, like Skype does for presence and mood changes.
+     * @param handle the handle of the user
+     * @param property the property, for example "ONLINESTATUS"
+     * @param value the new value
+     */
+    public void setUserProperty(final String handle, final String property, final String value) {
+        getOrCreateUser(handle).put(property, value);
+        notify("USER " + handle + " " + property + " " + value);
+    }
+
+    /**
+     * Receives a chat message from another user and notifies the clients.
+     * @param chatName the name of the chat
+     * @param fromHandle the handle of the sender
+     * @param body the message text
+     * @return the id of the new chat message
+     */
+    public String receiveChatMessage(final String chatName, final String fromHandle, final String body) {
+        if (!chats.containsKey(chatName)) {
+            throw new IllegalArgumentException("Unknown chat " + chatName);
+        }
+        String id = createChatMessage(chatName, fromHandle, body, "RECEIVED");
+        notify("CHATMESSAGE " + id + " STATUS RECEIVED");
+        return id;
+    }
+
+    /**
+     * Sends a notification to the clients after the configured latency.
+     * @param notification the notification
+     */
+    public void notify(final String notification) {
+        long delay = nextDelay();
+        synchronized (deliveryMutex) {
+            if (disposed) {
+                return;
+            }
+            long deliveryTime = Math.max(System.nanoTime() + delay, lastDeliveryTime + 1);
+            lastDeliveryTime = deliveryTime;
+            deliveries.put(new Delivery(notification, deliveryTime));
+        }
+    }
+
+    /**
+     * Starts generating notifications at a steady rate.
+     * Every notification is a received chat message in a random chat, or a
+     * presence change of a random friend with the given probability.
+     * A running generator is replaced.
+     * @param notificationsPerSecond the rate
+     * @param presenceChangeRatio the share of presence changes, between 0 and 1
+     */
+    public void startNotificationGenerator(final int notificationsPerSecond, final double presenceChangeRatio) {
+        if (notificationsPerSecond < 1) {
+            throw new IllegalArgumentException("The rate must be at least 1 notification per second.");
+        }
+        if (presenceChangeRatio < 0 || presenceChangeRatio > 1) {
+            throw new IllegalArgumentException("The presence change ratio must be between 0 and 1.");
+        }
+        stopNotificationGenerator();
+        final Thread generator = threadFactory.newThread(new Runnable() {
+            public void run() {
+                generateNotifications(notificationsPerSecond, presenceChangeRatio);
+            }
+        });
+        synchronized (deliveryMutex) {
+            if (disposed) {
+                return;
+            }
+            generatorThread = generator;
+        }
+        generator.start();
+    }
+
+    /**
+     * Stops generating notifications.
+     */
+    public void stopNotificationGenerator() {
+        Thread generator;
+        synchronized (deliveryMutex) {
+            generator = generatorThread;
+            generatorThread = null;
+        }
+        if (generator != null) {
+            generator.interrupt();
+            try {
+                generator.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public boolean isRemote() {
+        return false;
+    }
+
+    /**
+     * Answers a Skype API command.
+     * Blocks for the configured latency.
+     * @param command the command, optionally prefixed with a "#N" command ID
+     * @return the reply, or null if the reply is dropped
+     */
+    public String Invoke(final String command) {
+        sleep(nextDelay());
+        String commandId = "";
+        String body = command;
+        if (command.startsWith("#")) {
+            int space = command.indexOf(' ');
+            if (space < 0) {
+                return "ERROR 2 Unknown command";
+            }
+            commandId = command.substring(0, space + 1);
+            body = command.substring(space + 1);
+        }
+        String reply = answer(body);
+        if (reply == null) {
+            return null;
+        }
+        return commandId + reply;
+    }
+
+    private String answer(final String command) {
+        if ("PING".equals(command)) {
+            if (dropPongs) {
+                droppedPongCount.incrementAndGet();
+                return null;
+            }
+            return "PONG";
+        }
+        if (command.startsWith("NAME ")) {
+            return attachReply;
+        }
+        if (!failingCommands.isEmpty()) {
+            for (Map.Entry<String, String> entry : failingCommands.entrySet()) {
+                if (command.startsWith(entry.getKey())) {
+                    injectedErrorCount.incrementAndGet();
+                    return entry.getValue();
+                }
+            }
+        }
+        double rate = errorRate;
+        if (rate > 0 && random().nextDouble() < rate) {
+            injectedErrorCount.incrementAndGet();
+            return error;
+        }
+
+        String[] words = command.split(" ", 4);
+        String verb = words[0];
+        if ("GET".equals(verb)) {
+            return get(command.substring(4));
+        } else if ("SET".equals(verb)) {
+            return set(command.substring(4));
+        } else if ("SEARCH".equals(verb)) {
+            return search(words);
+        } else if ("CHATMESSAGE".equals(verb) && words.length >= 3) {
+            return sendChatMessage(words[1], command.substring(verb.length() + words[1].length() + 2));
+        } else if ("CHAT".equals(verb) && words.length >= 3 && "CREATE".equals(words[1])) {
+            return createChat(command.substring("CHAT CREATE ".length()));
+        } else if ("ALTER".equals(verb) && words.length >= 4) {
+            return alter(words[1], words[2], words[3]);
+        } else if ("CREATE".equals(verb) && words.length >= 3 && "GROUP".equals(words[1])) {
+            String id = addGroup("CUSTOM_GROUP", command.substring("CREATE GROUP ".length()));
+            return "GROUP " + id + " TYPE CUSTOM_GROUP";
+        } else if ("DELETE".equals(verb) && words.length == 3 && "GROUP".equals(words[1])) {
+            if (groups.remove(words[2]) == null) {
+                return "ERROR 86 Invalid group id";
+            }
+            return "DELETED GROUP " + words[2];
+        } else if ("PROTOCOL".equals(verb) && words.length == 2) {
+            try {
+                return "PROTOCOL " + Math.min(Integer.parseInt(words[1]), 8);
+            } catch (NumberFormatException e) {
+                return "ERROR 3 Unknown protocol";
+            }
+        }
+        return "ERROR 2 Unknown command";
+    }
+
+    private String get(final String what) {
+        String[] words = what.split(" ", 3);
+        ConcurrentMap<String, ConcurrentMap<String, String>> objects = getObjects(words[0]);
+        if (objects == null || words.length < 3) {
+            String value = globals.get(what);
+            if (value == null) {
+                return "ERROR 7 GET: invalid WHAT";
+            }
+            return what + " " + value;
+        }
+        String id = words[1];
+        String property = words[2];
+        ConcurrentMap<String, String> object = objects == users ? getOrCreateUser(id) : objects.get(id);
+        if (object == null) {
+            return getInvalidIdError(words[0]);
+        }
+        String value;
+        if (objects == chats && ("CHATMESSAGES".equals(property) || "RECENTCHATMESSAGES".equals(property))) {
+            value = getChatMessageIds(id);
+        } else {
+            value = object.get(property);
+        }
+        return words[0] + " " + id + " " + property + " " + (value == null ? "" : value);
+    }
+
+    private String set(final String what) {
+        String[] words = what.split(" ", 4);
+        ConcurrentMap<String, ConcurrentMap<String, String>> objects = getObjects(words[0]);
+        if (objects == null || words.length < 4) {
+            String key = null;
+            for (String global : globals.keySet()) {
+                if (what.startsWith(global + " ") && (key == null || global.length() > key.length())) {
+                    key = global;
+                }
+            }
+            if (key == null) {
+                int space = what.indexOf(' ');
+                if (space < 0) {
+                    return "ERROR 8 SET: invalid WHAT";
+                }
+                key = what.substring(0, space);
+            }
+            globals.put(key, what.substring(key.length() + 1));
+            return what;
+        }
+        ConcurrentMap<String, String> object = objects == users ? getOrCreateUser(words[1]) : objects.get(words[1]);
+        if (object == null) {
+            return getInvalidIdError(words[0]);
+        }
+        object.put(words[2], words[3]);
+        return what;
+    }
+
+    private String search(final String[] words) {
+        String what = words.length > 1 ? words[1] : "";
+        StringBuilder result = new StringBuilder();
+        if ("FRIENDS".equals(what) || "USERS".equals(what) || "USERSWAITINGMYAUTHORIZATION".equals(what)) {
+            String keyword = words.length > 2 ? words[2] : null;
+            result.append("USERS ");
+            if ("USERSWAITINGMYAUTHORIZATION".equals(what)) {
+                return result.toString();
+            }
+            for (Map.Entry<String, ConcurrentMap<String, String>> entry : users.entrySet()) {
+                String handle = entry.getKey();
+                Map<String, String> user = entry.getValue();
+                boolean matches;
+                if (keyword == null) {
+                    matches = "3".equals(user.get("BUDDYSTATUS"));
+                } else {
+                    String fullName = user.get("FULLNAME");
+                    matches = handle.contains(keyword) || (fullName != null && fullName.contains(keyword));
+                }
+                if (matches) {
+                    appendId(result, "USERS ", handle);
+                }
+            }
+        } else if (what.endsWith("CHATS")) {
+            result.append("CHATS ");
+            for (Map.Entry<String, ConcurrentMap<String, String>> entry : chats.entrySet()) {
+                if (!"BOOKMARKEDCHATS".equals(what) || "TRUE".equals(entry.getValue().get("BOOKMARKED"))) {
+                    appendId(result, "CHATS ", entry.getKey());
+                }
+            }
+        } else if ("GROUPS".equals(what)) {
+            result.append("GROUPS ");
+            String type = words.length > 2 ? words[2] : "ALL";
+            for (Map.Entry<String, ConcurrentMap<String, String>> entry : groups.entrySet()) {
+                if ("ALL".equals(type) || type.equals(entry.getValue().get("TYPE"))) {
+                    appendId(result, "GROUPS ", entry.getKey());
+                }
+            }
+        } else if ("CHATMESSAGES".equals(what) || "MISSEDCHATMESSAGES".equals(what)) {
+            result.append("CHATMESSAGES ");
+            if ("CHATMESSAGES".equals(what)) {
+                for (String id : chatMessageIds) {
+                    appendId(result, "CHATMESSAGES ", id);
+                }
+            }
+        } else {
+            return "ERROR 2 Unknown command";
+        }
+        return result.toString();
+    }
+
+    private String sendChatMessage(final String chatName, final String body) {
+        if (!chats.containsKey(chatName)) {
+            return "ERROR 105 Invalid chat name";
+        }
+        String id = createChatMessage(chatName, currentUserHandle, body, "SENDING");
+        chatMessages.get(id).put("STATUS", "SENT");
+        notify("CHATMESSAGE " + id + " STATUS SENT");
+        return "CHATMESSAGE " + id + " STATUS SENDING";
+    }
+
+    private String createChat(final String memberList) {
+        String name = addChat(memberList.split(", "));
+        return "CHAT " + name + " STATUS " + chats.get(name).get("STATUS");
+    }
+
+    private String alter(final String type, final String id, final String action) {
+        int space = action.indexOf(' ');
+        String verb = space < 0 ? action : action.substring(0, space);
+        String argument = space < 0 ? "" : action.substring(space + 1);
+        if ("CHAT".equals(type)) {
+            ConcurrentMap<String, String> chat = chats.get(id);
+            if (chat == null) {
+                return "ERROR 105 Invalid chat name";
+            }
+            if ("SETTOPIC".equals(verb)) {
+                chat.put("TOPIC", argument);
+            } else if ("ADDMEMBERS".equals(verb)) {
+                synchronized (chat) {
+                    String members = chat.get("MEMBERS");
+                    for (String handle : argument.split(", ")) {
+                        members = members + " " + handle;
+                    }
+                    chat.put("MEMBERS", members);
+                    chat.put("ACTIVEMEMBERS", members);
+                    chat.put("STATUS", "MULTI_SUBSCRIBED");
+                }
+            } else if ("LEAVE".equals(verb)) {
+                chat.put("STATUS", "UNSUBSCRIBED");
+            } else if ("BOOKMARK".equals(verb) || "UNBOOKMARK".equals(verb)) {
+                chat.put("BOOKMARKED", "BOOKMARK".equals(verb) ? "TRUE" : "FALSE");
+            }
+            return "ALTER CHAT " + verb;
+        } else if ("GROUP".equals(type)) {
+            if (!groups.containsKey(id)) {
+                return "ERROR 86 Invalid group id";
+            }
+            if ("ADDUSER".equals(verb)) {
+                addUserToGroup(id, argument);
+            }
+            return "ALTER GROUP " + id + " " + action;
+        }
+        return "ALTER " + type + " " + id + " " + action;
+    }
+
+    private String createChatMessage(final String chatName, final String fromHandle, final String body, final String status) {
+        String id = Integer.toString(nextObjectId.getAndIncrement());
+        ConcurrentMap<String, String> user = getOrCreateUser(fromHandle);
+        ConcurrentMap<String, String> message = new ConcurrentHashMap<String, String>();
+        message.put("TIMESTAMP", Long.toString(System.currentTimeMillis() / 1000));
+        message.put("FROM_HANDLE", fromHandle);
+        String fullName = user.get("FULLNAME");
+        message.put("FROM_DISPNAME", fullName == null ? fromHandle : fullName);
+        message.put("TYPE", "SAID");
+        message.put("STATUS", status);
+        message.put("LEAVEREASON", "");
+        message.put("CHATNAME", chatName);
+        message.put("USERS", "");
+        message.put("BODY", body);
+        chatMessages.put(id, message);
+        chatMessageIds.add(id);
+        if (chatMessageCount.incrementAndGet() > maxChatMessages) {
+            String oldest = chatMessageIds.poll();
+            if (oldest != null) {
+                chatMessages.remove(oldest);
+                chatMessageCount.decrementAndGet();
+            }
+        }
+        return id;
+    }
+
+    private String getChatMessageIds(final String chatName) {
+        StringBuilder ids = new StringBuilder();
+        for (String id : chatMessageIds) {
+            Map<String, String> message = chatMessages.get(id);
+            if (message != null && chatName.equals(message.get("CHATNAME"))) {
+                appendId(ids, "", id);
+            }
+        }
+        return ids.toString();
+    }
+
+    private ConcurrentMap<String, String> getOrCreateUser(final String handle) {
+        ConcurrentMap<String, String> user = users.get(handle);
+        if (user == null) {
+            ConcurrentMap<String, String> newUser = new ConcurrentHashMap<String, String>();
+            newUser.put("HANDLE", handle);
+            newUser.put("FULLNAME", "");
+            newUser.put("ONLINESTATUS", "UNKNOWN");
+            newUser.put("BUDDYSTATUS", "0");
+            newUser.put("MOOD_TEXT", "");
+            user = users.putIfAbsent(handle, newUser);
+            if (user == null) {
+                user = newUser;
+            }
+        }
+        return user;
+    }
+
+    private ConcurrentMap<String, ConcurrentMap<String, String>> getObjects(final String type) {
+        if ("USER".equals(type)) {
+            return users;
+        } else if ("CHAT".equals(type)) {
+            return chats;
+        } else if ("CHATMESSAGE".equals(type)) {
+            return chatMessages;
+        } else if ("GROUP".equals(type)) {
+            return groups;
+        }
+        return null;
+    }
+
+    private static String getInvalidIdError(final String type) {
+        if ("CHAT".equals(type)) {
+            return "ERROR 105 Invalid chat name";
+        } else if ("CHATMESSAGE".equals(type)) {
+            return "ERROR 14 Invalid message id";
+        } else if ("GROUP".equals(type)) {
+            return "ERROR 86 Invalid group id";
+        }
+        return "ERROR 26 Invalid user handle";
+    }
+
+    private static void appendId(final StringBuilder list, final String header, final String id) {
+        if (list.length() > header.length()) {
+            list.append(", ");
+        }
+        list.append(id);
+    }
+
+    private void generateNotifications(final int notificationsPerSecond, final double presenceChangeRatio) {
+        List<String> friendHandles = new ArrayList<String>();
+        for (Map.Entry<String, ConcurrentMap<String, String>> entry : users.entrySet()) {
+            if ("3".equals(entry.getValue().get("BUDDYSTATUS"))) {
+                friendHandles.add(entry.getKey());
+            }
+        }
+        List<String> chatNames = new ArrayList<String>(chats.keySet());
+        if (friendHandles.isEmpty() || chatNames.isEmpty()) {
+            return;
+        }
+        Random random = new Random();
+        long start = System.nanoTime();
+        long generated = 0;
+        long sequence = 0;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                long due = (System.nanoTime() - start) / 1000000 * notificationsPerSecond / 1000;
+                for (; generated < due; generated++) {
+                    if (random.nextDouble() < presenceChangeRatio) {
+                        String handle = friendHandles.get(random.nextInt(friendHandles.size()));
+                        setUserProperty(handle, "ONLINESTATUS", ONLINE_STATUSES[random.nextInt(ONLINE_STATUSES.length)]);
+                    } else {
+                        String chatName = chatNames.get(random.nextInt(chatNames.size()));
+                        String[] members = chats.get(chatName).get("MEMBERS").split(" ");
+                        String from = members[1 + random.nextInt(members.length - 1)];
+                        receiveChatMessage(chatName, from, "Generated message " + sequence++);
+                    }
+                }
+                Thread.sleep(1);
+            }
+        } catch (InterruptedException e) {
+            // stopped
+        }
+    }
+
+    private void deliver() {
+        try {
+            while (true) {
+                String notification = deliveries.take().notification;
+                for (Client client : clients) {
+                    try {
+                        client.Notify(notification);
+                    } catch (RuntimeException e) {
+                        ConnectorUtils.reportError("A client failed on '" + notification + "'.", e);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // disposed
+        }
+    }
+
+    private long nextDelay() {
+        long jitter = jitterNanos;
+        long delay = latencyNanos;
+        if (jitter > 0) {
+            delay += (long) (random().nextDouble() * jitter);
+        }
+        return delay;
+    }
+
+    private static void sleep(final long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final ThreadLocal<Random> RANDOM = new ThreadLocal<Random>() {
+        protected Random initialValue() {
+            return new Random();
+        }
+    };
+
+    private static Random random() {
+        return RANDOM.get();
+    }
+
+    /**
+     * A notification waiting for its delivery time.
+     */
+    private static final class Delivery implements Delayed {
+        private final String notification;
+        private final long deliveryTime;
+
+        Delivery(final String notification, final long deliveryTime) {
+            this.notification = notification;
+            this.deliveryTime = deliveryTime;
+        }
+
+        public long getDelay(final TimeUnit unit) {
+            return unit.convert(deliveryTime - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        public int compareTo(final Delayed other) {
+            long difference = deliveryTime - ((Delivery) other).deliveryTime;
+            return difference < 0 ? -1 : difference > 0 ? 1 : 0;
+        }
+    }
+}
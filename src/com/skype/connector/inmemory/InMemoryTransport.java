@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector.inmemory;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+
+import com.Skype.Client;
+import com.skype.connector.ConnectorMetrics;
+import com.skype.connector.ConnectorUtils;
+import com.skype.connector.Transport;
+import com.skype.connector.TransportListener;
+
+/**
+ * Transport to an {@link InMemorySkypeClient}.
+ * Commands are invoked by a pool of threads so the latency of the in-memory
+ * client does not serialize the commands, like the pipelined DBus calls of the
+ * Linux transport.
+ * Replies and notifications are queued in the order they are received and
+ * passed to the listener by a single thread, so the listener sees them in order.
+ */
+public final class InMemoryTransport implements Transport {
+    /** Number of threads invoking commands on the in-memory client. */
+    private static final int DEFAULT_INVOKER_COUNT = Integer.getInteger("com.skype.connector.inmemory.InMemoryTransport.invokerCount", 16);
+
+    private final InMemorySkypeClient client;
+    /** Commands accepted by {@link #send(String)} but not invoked yet. */
+    private final BlockingQueue<String> pendingCommands = new LinkedBlockingQueue<String>();
+    private volatile int invokerCount = DEFAULT_INVOKER_COUNT;
+    private Thread[] invokers;
+    /** Replies and notifications not passed to the listener yet. */
+    private final BlockingQueue<String> receivedMessages = new LinkedBlockingQueue<String>();
+    private Thread receiver;
+    private volatile TransportListener listener;
+    private volatile ConnectorMetrics metrics;
+
+    private final Client notificationReceiver = new Client() {
+        public boolean isRemote() {
+            return false;
+        }
+
+        public void Notify(String message) {
+            receivedMessages.add(message);
+        }
+    };
+
+    /**
+     * Constructor.
+     * @param client the in-memory client to talk to
+     */
+    public InMemoryTransport(final InMemorySkypeClient client) {
+        ConnectorUtils.checkNotNull("client", client);
+        this.client = client;
+    }
+
+    /**
+     * Gets the in-memory client to script the contact list, latency and errors.
+     * @return the client
+     */
+    public InMemorySkypeClient getClient() {
+        return client;
+    }
+
+    /**
+     * Sets the number of threads invoking commands, used by the next {@link #open(TransportListener, ThreadFactory, ConnectorMetrics)}.
+     * @param newInvokerCount the number of threads, at least 1
+     */
+    public void setInvokerCount(final int newInvokerCount) {
+        if (newInvokerCount < 1) {
+            throw new IllegalArgumentException("At least one invoker thread is needed.");
+        }
+        invokerCount = newInvokerCount;
+    }
+
+    /**
+     * Gets the number of threads invoking commands.
+     * @return the number of threads
+     */
+    public int getInvokerCount() {
+        return invokerCount;
+    }
+
+    /**
+     * Starts the invoker and receiver threads and registers at the in-memory client.
+     */
+    public void open(final TransportListener newListener, final ThreadFactory threadFactory, final ConnectorMetrics newMetrics) {
+        listener = newListener;
+        metrics = newMetrics;
+        client.setThreadFactory(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = threadFactory.newThread(r);
+                thread.setName("InMemorySkypeClient-" + client.getCurrentUserHandle());
+                return thread;
+            }
+        });
+        receiver = threadFactory.newThread(new Runnable() {
+            public void run() {
+                deliverMessages();
+            }
+        });
+        receiver.setName("InMemoryMessageReceiver-" + client.getCurrentUserHandle());
+        receiver.start();
+        client.addClient(notificationReceiver);
+        invokers = new Thread[invokerCount];
+        for (int i = 0; i < invokers.length; i++) {
+            invokers[i] = threadFactory.newThread(new Runnable() {
+                public void run() {
+                    invokeCommands();
+                }
+            });
+            invokers[i].setName("InMemoryCommandInvoker-" + i);
+            invokers[i].start();
+        }
+    }
+
+    /**
+     * Checks if the in-memory client is running.
+     * @return always true
+     */
+    public boolean isRunning() {
+        return true;
+    }
+
+    /**
+     * Gets the absolute path of Skype.
+     * @return null because there is no Skype client.
+     */
+    public String getInstalledPath() {
+        return null;
+    }
+
+    /**
+     * Sends a command to the in-memory client.
+     * @param command The command to send.
+     */
+    public void send(final String command) {
+        pendingCommands.add(command);
+    }
+
+    private void invokeCommands() {
+        try {
+            while (true) {
+                String command = pendingCommands.take();
+                long invokeTime = System.nanoTime();
+                String reply = client.Invoke(command);
+                metrics.transportCallCompleted(System.nanoTime() - invokeTime);
+                if (reply != null) {
+                    receivedMessages.add(reply);
+                }
+            }
+        } catch (InterruptedException e) {
+            // closed
+        }
+    }
+
+    private void deliverMessages() {
+        try {
+            while (true) {
+                listener.notificationReceived(receivedMessages.take());
+            }
+        } catch (InterruptedException e) {
+            // closed
+        }
+    }
+
+    /**
+     * Stops the invoker and receiver threads and detaches from the in-memory client.
+     */
+    public void close() {
+        client.removeClient(notificationReceiver);
+        client.stopNotificationGenerator();
+        for (Thread invoker : invokers) {
+            invoker.interrupt();
+        }
+        receiver.interrupt();
+        pendingCommands.clear();
+        receivedMessages.clear();
+    }
+}
@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector.inmemory;
+
+import com.skype.Skype;
+import com.skype.connector.Transport;
+import com.skype.connector.TransportConnector;
+import com.skype.connector.TransportProvider;
+
+/**
+ * Provides {@link InMemoryTransport}s to clients with a generated contact list, and {@link InMemoryConnector}s
+ * using them, selected with <code>-Dcom.skype.connector.Connector.transport=inmemory</code>.
+ * @see InMemorySkypeClient#createPopulated(String, int)
+ */
+public final class InMemoryTransportProvider implements TransportProvider {
+    /** The number of generated friends of the in-memory client. */
+    private static final int FRIEND_COUNT = Integer.getInteger("com.skype.connector.inmemory.InMemoryTransportProvider.friendCount", 100);
+
+    public String getName() {
+        return "inmemory";
+    }
+
+    public Transport createTransport(final String username, final String password) {
+        return new InMemoryTransport(createClient(username));
+    }
+
+    public TransportConnector createConnector(final Skype skype, final String username, final String password) {
+        return new InMemoryConnector(skype, createClient(username));
+    }
+
+    private static InMemorySkypeClient createClient(final String username) {
+        String handle = username != null ? username : "skype4java";
+        return InMemorySkypeClient.createPopulated(handle, FRIEND_COUNT);
+    }
+}
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.regex.Pattern;
+
+import com.skype.connector.ConnectorUtils;
+
+/**
+ * Reads the segments of a {@link TrafficJournal} in order, also while the journal is written.
+ * <p>
+ * Usage as grep tool: <code>java com.skype.connector.journal.JournalReader &lt;directory&gt; &lt;name&gt; [&lt;regex&gt;]</code>
+ * prints the records whose text contains a match of the regular expression, or all records.
+ * </p>
+ */
+public final class JournalReader {
+    private final File directory;
+    private final String name;
+    private final long[] sequences;
+    private int segmentIndex = -1;
+    private MappedByteBuffer segment;
+    private byte[] buffer = new byte[256];
+
+    /**
+     * Opens the segments which exist now.
+     * @param directory the directory of the segment files
+     * @param name the prefix of the segment files
+     */
+    public JournalReader(final File directory, final String name) {
+        ConnectorUtils.checkNotNull("directory", directory);
+        ConnectorUtils.checkNotNull("name", name);
+        this.directory = directory;
+        this.name = name;
+        this.sequences = TrafficJournal.listSequences(directory, name);
+    }
+
+    /**
+     * Reads the next record.
+     * @return the record, or null after the last record
+     * @throws IOException if a segment could not be read or is no journal segment
+     */
+    public JournalRecord next() throws IOException {
+        while (true) {
+            if (segment != null) {
+                JournalRecord record = read(segment);
+                if (record != null) {
+                    return record;
+                }
+            }
+            if (segmentIndex + 1 >= sequences.length) {
+                segment = null;
+                return null;
+            }
+            segmentIndex++;
+            segment = open(new File(directory, TrafficJournal.segmentName(name, sequences[segmentIndex])));
+        }
+    }
+
+    private JournalRecord read(final MappedByteBuffer in) throws IOException {
+        if (in.remaining() < TrafficJournal.RECORD_HEADER_SIZE) {
+            return null;
+        }
+        int start = in.position();
+        int length = in.getInt(start) - 1;
+        if (length < 0 || length > in.remaining() - TrafficJournal.RECORD_HEADER_SIZE) {
+            return null;
+        }
+        try {
+            in.position(start + 4);
+            byte kind = in.get();
+            long time = in.getLong();
+            if (buffer.length < length) {
+                buffer = new byte[Math.max(length, buffer.length * 2)];
+            }
+            in.get(buffer, 0, length);
+            return new JournalRecord(kind, time, new String(buffer, 0, length, "UTF-8"));
+        } catch (BufferUnderflowException e) {
+            throw new IOException("The journal segment is corrupt.");
+        }
+    }
+
+    private static MappedByteBuffer open(final File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        MappedByteBuffer segment;
+        try {
+            segment = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+        } finally {
+            in.close();
+        }
+        if (segment.remaining() < TrafficJournal.HEADER_SIZE || segment.getInt() != TrafficJournal.MAGIC) {
+            throw new IOException(file + " is no journal segment.");
+        }
+        int version = segment.getInt();
+        if (version != TrafficJournal.VERSION) {
+            throw new IOException("The journal segment version " + version + " of " + file + " is not supported.");
+        }
+        return segment;
+    }
+
+    /**
+     * Prints the records of a journal.
+     * @param args the directory, the name and optionally a regular expression the text of the printed records must contain
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage: java " + JournalReader.class.getName() + " <directory> <name> [<regex>]");
+            System.exit(2);
+            return;
+        }
+        Pattern pattern = args.length == 3 ? Pattern.compile(args[2]) : null;
+        JournalReader reader = new JournalReader(new File(args[0]), args[1]);
+        for (JournalRecord record = reader.next(); record != null; record = reader.next()) {
+            if (pattern == null || pattern.matcher(record.getText()).find()) {
+                System.out.println(record);
+            }
+        }
+    }
+}
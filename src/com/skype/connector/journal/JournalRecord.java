@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector.journal;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * A record of a {@link TrafficJournal}.
+ */
+public final class JournalRecord {
+    private final byte kind;
+    private final long time;
+    private final String text;
+
+    /**
+     * Constructor.
+     * @param kind the kind, like {@link TrafficJournal#SENT}
+     * @param time the time in milliseconds since the epoch
+     * @param text the command, notification or status
+     */
+    public JournalRecord(final byte kind, final long time, final String text) {
+        this.kind = kind;
+        this.time = time;
+        this.text = text;
+    }
+
+    /**
+     * Gets the kind of this record.
+     * @return {@link TrafficJournal#SENT}, {@link TrafficJournal#RECEIVED} or {@link TrafficJournal#STATUS}
+     */
+    public byte getKind() {
+        return kind;
+    }
+
+    /**
+     * Gets the time this record was appended.
+     * @return the time in milliseconds since the epoch
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Gets the command, notification or status.
+     * @return the text
+     */
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        String direction;
+        switch (kind) {
+        case TrafficJournal.SENT:
+            direction = " -> ";
+            break;
+        case TrafficJournal.RECEIVED:
+            direction = " <- ";
+            break;
+        case TrafficJournal.STATUS:
+            direction = " == ";
+            break;
+        default:
+            direction = " ?" + kind + " ";
+        }
+        return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date(time)) + direction + text;
+    }
+}
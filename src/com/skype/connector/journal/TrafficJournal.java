@@ -0,0 +1,457 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector.journal;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.skype.connector.ConnectorUtils;
+
+/**
+ * Append-only binary journal of the traffic of a connector, cheap enough to be always on.
+ * <p>
+ * {@link #append(byte, String)} only puts the record into a bounded ring and never blocks or does I/O;
+ * when the ring is full the record is dropped and counted. A writer thread encodes the records into
+ * memory-mapped segment files of a fixed size named <code>&lt;name&gt;-&lt;sequence&gt;.journal</code>.
+ * When a segment is full the next one is started and the oldest segments beyond the maximum count are deleted.
+ * </p>
+ * <p>
+ * A segment starts with the magic number {@link #MAGIC} and the format {@link #VERSION} as ints,
+ * followed by the records: the length of the text in UTF-8 bytes plus one as int, the kind as
+ * byte, the time in milliseconds since the epoch as long and the text. The length is written last
+ * and is at least one even for an empty text, so a zero marks the end of the written records.
+ * </p>
+ * <p>
+ * A journal cannot be replayed: it drops records rather than slowing down the connector, deletes
+ * old segments and has the times in milliseconds. Recordings for the
+ * {@link com.skype.connector.replay.ReplayTransport} are written by the
+ * {@link com.skype.connector.replay.RecordingTransport}, which keeps every record and the
+ * microseconds between them.
+ * </p>
+ * @see JournalReader
+ */
+public final class TrafficJournal {
+    /** The first four bytes of a segment, "SJRN". */
+    public static final int MAGIC = 0x534A524E;
+    /** The format version. */
+    public static final int VERSION = 2;
+
+    /** The kind of a command sent to the Skype client. */
+    public static final byte SENT = 1;
+    /** The kind of a reply or notification received from the Skype client. */
+    public static final byte RECEIVED = 2;
+    /** The kind of a connector status change. */
+    public static final byte STATUS = 3;
+
+    /** The file name extension of the segments. */
+    static final String EXTENSION = ".journal";
+    /** The size of the segment header. */
+    static final int HEADER_SIZE = 8;
+    /** The size of the fixed part of a record. */
+    static final int RECORD_HEADER_SIZE = 4 + 1 + 8;
+
+    private final File directory;
+    private final String name;
+    private final int segmentSize;
+    private final int maxSegments;
+
+    /** The ring of records waiting to be written, guarded by lock. */
+    private final String[] texts;
+    private final byte[] kinds;
+    private final long[] times;
+    private final int mask;
+    private int head;
+    private int size;
+    private boolean writerWaiting;
+    /** True while the writer writes records taken from the ring. */
+    private boolean writing;
+    private boolean closed;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition drained = lock.newCondition();
+
+    /** The records taken from the ring by the writer, only used by the writer thread. */
+    private final String[] batchTexts;
+    private final byte[] batchKinds;
+    private final long[] batchTimes;
+    /** The UTF-8 encoding of the record being written, only used by the writer thread. */
+    private byte[] encoded = new byte[1024];
+
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private Thread writer;
+    /** Creates the writer thread. */
+    private volatile ThreadFactory threadFactory = new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "SkypeTrafficJournal-" + name);
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+    private long sequence;
+    private MappedByteBuffer segment;
+
+    /**
+     * Creates a journal with 8 segments of 16 MB and room for 8192 unwritten records.
+     * @param directory the directory of the segment files
+     * @param name the prefix of the segment files
+     */
+    public TrafficJournal(final File directory, final String name) {
+        this(directory, name, 16 * 1024 * 1024, 8, 8192);
+    }
+
+    /**
+     * Creates a journal.
+     * @param directory the directory of the segment files
+     * @param name the prefix of the segment files
+     * @param segmentSize the size of a segment file in bytes
+     * @param maxSegments the number of segment files kept
+     * @param capacity the number of records waiting to be written before further records are dropped, rounded up to a power of two
+     */
+    public TrafficJournal(final File directory, final String name, final int segmentSize, final int maxSegments, final int capacity) {
+        ConnectorUtils.checkNotNull("directory", directory);
+        ConnectorUtils.checkNotNull("name", name);
+        if (segmentSize < 1024) {
+            throw new IllegalArgumentException("The segment size must be at least 1024 bytes.");
+        }
+        if (maxSegments < 1 || capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("The segment count and the capacity must be positive.");
+        }
+        this.directory = directory;
+        this.name = name;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        int ringSize = Integer.highestOneBit(capacity);
+        if (ringSize < capacity) {
+            ringSize <<= 1;
+        }
+        texts = new String[ringSize];
+        kinds = new byte[ringSize];
+        times = new long[ringSize];
+        mask = ringSize - 1;
+        batchTexts = new String[ringSize];
+        batchKinds = new byte[ringSize];
+        batchTimes = new long[ringSize];
+    }
+
+    /**
+     * Gets the directory of the segment files.
+     * @return the directory
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Gets the prefix of the segment files.
+     * @return the prefix
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Sets the thread factory used for the writer thread by the next {@link #start()}.
+     * @param newThreadFactory the thread factory
+     */
+    public void setThreadFactory(final ThreadFactory newThreadFactory) {
+        ConnectorUtils.checkNotNull("newThreadFactory", newThreadFactory);
+        threadFactory = newThreadFactory;
+    }
+
+    /**
+     * Opens a new segment after the existing ones and starts the writer thread.
+     * @throws IOException if the segment could not be created
+     */
+    public void start() throws IOException {
+        lock.lock();
+        try {
+            if (writer != null) {
+                return;
+            }
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("The journal directory " + directory + " could not be created.");
+            }
+            long[] existing = listSequences(directory, name);
+            sequence = existing.length == 0 ? 0 : existing[existing.length - 1] + 1;
+            openSegment();
+            closed = false;
+            writer = threadFactory.newThread(new Runnable() {
+                public void run() {
+                    writeRecords();
+                }
+            });
+            writer.start();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a record without blocking. The record is dropped if the writer is behind or the journal is not started.
+     * @param kind the kind, like {@link #SENT}
+     * @param text the command, notification or status
+     */
+    public void append(final byte kind, final String text) {
+        long time = System.currentTimeMillis();
+        lock.lock();
+        try {
+            if (writer == null || closed || size == texts.length) {
+                droppedCount.incrementAndGet();
+                return;
+            }
+            int index = (head + size) & mask;
+            texts[index] = text;
+            kinds[index] = kind;
+            times[index] = time;
+            size++;
+            if (writerWaiting) {
+                notEmpty.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until all appended records have been written to the segment.
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void flush() throws InterruptedException {
+        lock.lock();
+        try {
+            while ((size > 0 || writing) && writer != null) {
+                drained.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the remaining records, forces the segment to the disk and stops the writer thread.
+     * The journal can be started again.
+     */
+    public void close() {
+        Thread currentWriter;
+        lock.lock();
+        try {
+            if (writer == null) {
+                return;
+            }
+            closed = true;
+            currentWriter = writer;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            currentWriter.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the number of records written to the segments.
+     * @return the number of records
+     */
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    /**
+     * Gets the number of records dropped because the writer was behind, the journal was not started or a record was larger than a segment.
+     * @return the number of records
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    private void writeRecords() {
+        try {
+            while (true) {
+                int count;
+                lock.lock();
+                try {
+                    writing = false;
+                    while (size == 0 && !closed) {
+                        drained.signalAll();
+                        writerWaiting = true;
+                        notEmpty.awaitUninterruptibly();
+                        writerWaiting = false;
+                    }
+                    if (size == 0) {
+                        break;
+                    }
+                    count = size;
+                    for (int i = 0; i < count; i++) {
+                        int index = (head + i) & mask;
+                        batchTexts[i] = texts[index];
+                        batchKinds[i] = kinds[index];
+                        batchTimes[i] = times[index];
+                        texts[index] = null;
+                    }
+                    head = (head + count) & mask;
+                    size = 0;
+                    writing = true;
+                } finally {
+                    lock.unlock();
+                }
+                for (int i = 0; i < count; i++) {
+                    write(batchKinds[i], batchTimes[i], batchTexts[i]);
+                    batchTexts[i] = null;
+                }
+            }
+        } catch (IOException e) {
+            ConnectorUtils.reportError("The traffic journal " + name + " could not be written, journaling stopped.", e);
+        } finally {
+            lock.lock();
+            try {
+                if (segment != null) {
+                    segment.force();
+                    segment = null;
+                }
+                droppedCount.addAndGet(size);
+                Arrays.fill(texts, null);
+                size = 0;
+                writing = false;
+                writer = null;
+                drained.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void write(final byte kind, final long time, final String text) throws IOException {
+        int length = encodeUtf8(text);
+        if (HEADER_SIZE + RECORD_HEADER_SIZE + length > segmentSize) {
+            droppedCount.incrementAndGet();
+            return;
+        }
+        if (segment.remaining() < RECORD_HEADER_SIZE + length) {
+            segment.force();
+            sequence++;
+            openSegment();
+        }
+        int start = segment.position();
+        segment.position(start + 4);
+        segment.put(kind);
+        segment.putLong(time);
+        segment.put(encoded, 0, length);
+        segment.putInt(start, length + 1);
+        writtenCount.incrementAndGet();
+    }
+
+    private void openSegment() throws IOException {
+        RandomAccessFile file = new RandomAccessFile(new File(directory, segmentName(name, sequence)), "rw");
+        try {
+            file.setLength(segmentSize);
+            segment = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        } finally {
+            file.close();
+        }
+        segment.putInt(MAGIC);
+        segment.putInt(VERSION);
+        long[] existing = listSequences(directory, name);
+        for (int i = 0; i < existing.length - maxSegments; i++) {
+            new File(directory, segmentName(name, existing[i])).delete();
+        }
+    }
+
+    /**
+     * Encodes into the reused buffer, unpaired surrogates are written as the three byte sequence of the surrogate.
+     * @return the number of bytes
+     */
+    private int encodeUtf8(final String text) {
+        int n = text.length();
+        if (encoded.length < n * 3) {
+            encoded = new byte[Math.max(n * 3, encoded.length * 2)];
+        }
+        byte[] buffer = encoded;
+        int length = 0;
+        for (int i = 0; i < n; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                buffer[length++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[length++] = (byte) (0xC0 | (c >> 6));
+                buffer[length++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                buffer[length++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[length++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                buffer[length++] = (byte) (0xE0 | (c >> 12));
+                buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[length++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return length;
+    }
+
+    static String segmentName(final String name, final long sequence) {
+        return name + "-" + String.format("%08d", sequence) + EXTENSION;
+    }
+
+    /**
+     * Lists the sequence numbers of the segments of a journal in ascending order.
+     */
+    static long[] listSequences(final File directory, final String name) {
+        final String prefix = name + "-";
+        String[] files = directory.list(new FilenameFilter() {
+            public boolean accept(File dir, String fileName) {
+                return fileName.startsWith(prefix) && fileName.endsWith(EXTENSION);
+            }
+        });
+        if (files == null) {
+            return new long[0];
+        }
+        long[] sequences = new long[files.length];
+        int count = 0;
+        for (String file : files) {
+            try {
+                sequences[count] = Long.parseLong(file.substring(prefix.length(), file.length() - EXTENSION.length()));
+                count++;
+            } catch (NumberFormatException e) {
+                // not a segment of this journal
+            }
+        }
+        sequences = Arrays.copyOf(sequences, count);
+        Arrays.sort(sequences);
+        return sequences;
+    }
+}
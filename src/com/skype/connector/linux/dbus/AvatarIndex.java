@@ -0,0 +1,425 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector.linux.dbus;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.skype.connector.AvatarCallback;
+
+/**
+ * Index of the avatar images stored in the Skype user database (.dbb) files.
+ * <p>
+ * Every dbb file is read into memory and scanned once: the JPEG image of each
+ * <code>l33l</code> block (or the lack of one) is registered under the Skype
+ * id of the block's owner, the NUL terminated string of the block's first
+ * <code>0x03 0x10</code> record. A lookup is thus a hash map hit plus a slice
+ * of the read file. A file is read and scanned again only when its
+ * modification time or size changes.
+ * </p>
+ * <p>
+ * The files are read rather than memory-mapped because Skype truncates them
+ * while they are in use, and touching a truncated mapping fails with an
+ * {@link InternalError} at some later point of the reading thread.
+ * </p>
+ * <p>
+ * Ids which are not the owner of any block (e.g. because the block's records
+ * are laid out differently) are resolved by a scan of the read file, whose
+ * result is cached until the file changes.
+ * </p>
+ */
+final class AvatarIndex {
+    /** The Skype files that make up the user database, in lookup order. */
+    static final String[] DBBs = new String[]{/*"user256.dbb",*/ "user1024.dbb", "user4096.dbb", "user16384.dbb", "user32768.dbb", "user65536.dbb"};
+
+    /** Marker which (appears to) separate user entries in .dbb files. */
+    static final ByteSearcher L33L_MARKER = new ByteSearcher(new byte[] { 'l', '3', '3', 'l' });
+
+    /** JPEG start of image marker. */
+    static final ByteSearcher JPG_START_MARKER = new ByteSearcher(new byte[] { (byte)0xFF, (byte)0xD8 });
+
+    /** JPEG end of image marker. */
+    static final ByteSearcher JPG_END_MARKER = new ByteSearcher(new byte[] { (byte)0xFF, (byte)0xD9 });
+
+    /** Whether several changed files are scanned by one thread each. */
+    private static final boolean PARALLEL = !"false".equals(System.getProperty("com.skype.connector.linux.dbus.AvatarIndex.parallel"));
+
+    /** Record which holds the Skype id of the owner of a block. */
+    static final ByteSearcher USER_ID_MARKER = new ByteSearcher(new byte[] { 0x03, 0x10 });
+
+    /** The minimal interval between two checks of the files for changes in milliseconds. */
+    private static final long CHECK_INTERVAL = 1000;
+
+    /** The longest Skype id which is indexed. */
+    private static final int MAX_USER_ID_LENGTH = 256;
+
+    /** The time in seconds an idle indexing thread is kept. */
+    private static final long INDEXER_KEEP_ALIVE = 60;
+
+    /** The cached result of a scan which found no avatar. */
+    private static final Slice NO_AVATAR = new Slice(0, 0);
+
+    /** The position and length of an avatar in a read file. */
+    private static final class Slice {
+        final int offset;
+        final int length;
+
+        Slice(final int offset, final int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /** The index of a single dbb file. */
+    private static final class FileIndex {
+        final long lastModified;
+        final long length;
+        final ByteBuffer buffer;
+        final Map<String, Slice> avatars = new ConcurrentHashMap<String, Slice>();
+        final ConcurrentMap<String, Slice> scanned = new ConcurrentHashMap<String, Slice>();
+
+        FileIndex(final long lastModified, final long length, final ByteBuffer buffer) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.buffer = buffer;
+        }
+    }
+
+    private final File[] files;
+    private final FileIndex[] indexes;
+    private long lastCheck;
+
+    private ThreadFactory threadFactory = new ThreadFactory() {
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+    /** Scans changed files in parallel, created on first use. */
+    private ThreadPoolExecutor indexer;
+
+    /**
+     * Constructor.
+     * 
+     * @param directory the profile directory containing the dbb files.
+     */
+    AvatarIndex(final File directory) {
+        files = new File[DBBs.length];
+        for(int i = 0; i < DBBs.length; i++) {
+            files[i] = new File(directory, DBBs[i]);
+        }
+        indexes = new FileIndex[files.length];
+    }
+
+    /**
+     * Sets the factory of the threads which index changed files in parallel.
+     * 
+     * @param newThreadFactory the thread factory.
+     */
+    synchronized void setThreadFactory(final ThreadFactory newThreadFactory) {
+        threadFactory = newThreadFactory;
+    }
+
+    /**
+     * Stops the threads which index changed files in parallel.
+     */
+    synchronized void dispose() {
+        if(indexer != null) {
+            indexer.shutdownNow();
+            indexer = null;
+        }
+    }
+
+    /**
+     * Gets the avatar of a user.
+     * 
+     * @param userId the Skype id of the user.
+     * @return the JPEG image as read-only buffer or <code>null</code> if the user has no avatar.
+     * @throws IOException if a dbb file could not be read.
+     */
+    ByteBuffer getAvatar(final String userId) throws IOException {
+        final FileIndex[] current = refresh();
+        for(int i = 0; i < current.length; i++) {
+            final FileIndex index = current[i];
+            if(index == null) {
+                continue;
+            }
+            Slice slice = index.avatars.get(userId);
+            if(slice == null) {
+                slice = index.scanned.get(userId);
+                if(slice == null) {
+                    slice = scan(index.buffer, userId);
+                    index.scanned.putIfAbsent(userId, slice);
+                }
+            }
+            if(slice != NO_AVATAR) {
+                return slice(index.buffer, slice);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the avatars of many users.
+     * <p>
+     * Unlike {@link #getAvatar(String)}, ids which are not the owner of any
+     * block are skipped rather than searched, so each changed file is scanned
+     * exactly once however many users are asked for.
+     * </p>
+     * 
+     * @param userIds the Skype ids of the users.
+     * @param callback receives the avatars in the calling thread.
+     * @throws IOException if a dbb file could not be read.
+     */
+    void forEachAvatar(final Collection<String> userIds, final AvatarCallback callback) throws IOException {
+        final FileIndex[] current = refresh();
+        for(final String userId: userIds) {
+            for(int i = 0; i < current.length; i++) {
+                final FileIndex index = current[i];
+                if(index == null) {
+                    continue;
+                }
+                Slice slice = index.avatars.get(userId);
+                if(slice == null) {
+                    slice = index.scanned.get(userId);
+                }
+                if(slice != null && slice != NO_AVATAR) {
+                    callback.avatarRead(userId, slice(index.buffer, slice));
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads and indexes the files which have changed since the last check.
+     * 
+     * @return the current indexes.
+     * @throws IOException if a changed file could not be read.
+     */
+    private synchronized FileIndex[] refresh() throws IOException {
+        final long now = System.currentTimeMillis();
+        if(now - lastCheck < CHECK_INTERVAL && lastCheck != 0) {
+            return indexes.clone();
+        }
+        lastCheck = now;
+        final List<Integer> changed = new ArrayList<Integer>();
+        final long[] lastModified = new long[files.length];
+        final long[] length = new long[files.length];
+        for(int i = 0; i < files.length; i++) {
+            lastModified[i] = files[i].lastModified();
+            length[i] = files[i].length();
+            final FileIndex index = indexes[i];
+            if(lastModified[i] == 0 || length[i] == 0) {
+                indexes[i] = null;
+            } else if(index == null || index.lastModified != lastModified[i] || index.length != length[i]) {
+                changed.add(i);
+            }
+        }
+        if(changed.size() > 1 && PARALLEL) {
+            indexInParallel(changed, lastModified, length);
+        } else {
+            for(final int i: changed) {
+                indexes[i] = index(lastModified[i], length[i], read(files[i]));
+            }
+        }
+        return indexes.clone();
+    }
+
+    /**
+     * Reads and indexes files by one thread each.
+     */
+    private void indexInParallel(final List<Integer> changed, final long[] lastModified, final long[] length) throws IOException {
+        if(indexer == null) {
+            final ThreadFactory factory = threadFactory;
+            indexer = new ThreadPoolExecutor(files.length, files.length, INDEXER_KEEP_ALIVE, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                public Thread newThread(final Runnable r) {
+                    final Thread thread = factory.newThread(r);
+                    thread.setName("SkypeAvatarIndex-" + count.incrementAndGet());
+                    return thread;
+                }
+            });
+            indexer.allowCoreThreadTimeOut(true);
+        }
+        final List<Future<FileIndex>> results = new ArrayList<Future<FileIndex>>();
+        try {
+            for(final int i: changed) {
+                results.add(indexer.submit(new Callable<FileIndex>() {
+                    public FileIndex call() throws IOException {
+                        return index(lastModified[i], length[i], read(files[i]));
+                    }
+                }));
+            }
+            for(int j = 0; j < changed.size(); j++) {
+                try {
+                    indexes[changed.get(j)] = results.get(j).get();
+                } catch(ExecutionException e) {
+                    if(e.getCause() instanceof IOException) {
+                        throw (IOException)e.getCause();
+                    }
+                    throw new IOException("Indexing " + files[changed.get(j)] + " failed: " + e.getCause());
+                } catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while indexing " + files[changed.get(j)]);
+                }
+            }
+        } finally {
+            for(final Future<FileIndex> result: results) {
+                result.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Reads a file up to its current end, which may move while it is read.
+     */
+    private static ByteBuffer read(final File file) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = raf.getChannel();
+            final ByteBuffer buffer = ByteBuffer.allocate((int)Math.min(channel.size(), Integer.MAX_VALUE));
+            while(buffer.hasRemaining() && channel.read(buffer) != -1) {
+                // read on
+            }
+            buffer.flip();
+            return buffer;
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static FileIndex index(final long lastModified, final long length, final ByteBuffer buffer) {
+        final FileIndex index = new FileIndex(lastModified, length, buffer);
+        final int limit = buffer.limit();
+        int blockStart = L33L_MARKER.indexOf(buffer, 0, limit);
+        while(blockStart != -1) {
+            final int next = L33L_MARKER.indexOf(buffer, blockStart + L33L_MARKER.length(), limit);
+            final int blockEnd = next == -1? limit: next;
+            final int jpgStart = JPG_START_MARKER.indexOf(buffer, blockStart, blockEnd);
+            final String owner = getOwner(buffer, blockStart + L33L_MARKER.length(), jpgStart == -1? blockEnd: jpgStart);
+            if(owner != null && !index.avatars.containsKey(owner)) {
+                if(jpgStart == -1) {
+                    // the owner of a block without image has no avatar
+                    index.avatars.put(owner, NO_AVATAR);
+                } else {
+                    final int jpgEnd = JPG_END_MARKER.indexOf(buffer, jpgStart, blockEnd);
+                    if(jpgEnd != -1) {
+                        index.avatars.put(owner, new Slice(jpgStart, jpgEnd + JPG_END_MARKER.length() - jpgStart));
+                    }
+                }
+            }
+            blockStart = next;
+        }
+        return index;
+    }
+
+    /**
+     * Reads the Skype id of the owner of a block from its user id record.
+     * 
+     * @return the id or <code>null</code> if the range has no user id record.
+     */
+    private static String getOwner(final ByteBuffer buffer, final int from, final int to) {
+        int record = USER_ID_MARKER.indexOf(buffer, from, to);
+        while(record != -1) {
+            final int idStart = record + USER_ID_MARKER.length();
+            final int idLimit = Math.min(to, idStart + MAX_USER_ID_LENGTH + 1);
+            int idEnd = idStart;
+            while(idEnd < idLimit && isPrintable(buffer.get(idEnd))) {
+                idEnd++;
+            }
+            if(idEnd > idStart && idEnd < idLimit && buffer.get(idEnd) == 0) {
+                return toString(buffer, idStart, idEnd - idStart);
+            }
+            record = USER_ID_MARKER.indexOf(buffer, record + 1, to);
+        }
+        return null;
+    }
+
+    private static boolean isPrintable(final byte b) {
+        return 0x21 <= b && b <= 0x7E;
+    }
+
+    private static String toString(final ByteBuffer buffer, final int offset, final int length) {
+        final char[] chars = new char[length];
+        for(int i = 0; i < length; i++) {
+            chars[i] = (char)buffer.get(offset + i);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Searches the first block which contains the given id anywhere.
+     */
+    private static Slice scan(final ByteBuffer buffer, final String userId) {
+        final byte[] key = userId.getBytes();
+        if(key.length == 0) {
+            return NO_AVATAR;
+        }
+        final ByteSearcher searcher = new ByteSearcher(key);
+        final int limit = buffer.limit();
+        int blockStart = L33L_MARKER.indexOf(buffer, 0, limit);
+        while(blockStart != -1) {
+            final int next = L33L_MARKER.indexOf(buffer, blockStart + L33L_MARKER.length(), limit);
+            final int blockEnd = next == -1? limit: next;
+            if(searcher.indexOf(buffer, blockStart, blockEnd) != -1) {
+                final int jpgStart = JPG_START_MARKER.indexOf(buffer, blockStart, blockEnd);
+                if(jpgStart == -1) {
+                    return NO_AVATAR;
+                }
+                final int jpgEnd = JPG_END_MARKER.indexOf(buffer, jpgStart, blockEnd);
+                if(jpgEnd != -1) {
+                    return new Slice(jpgStart, jpgEnd + JPG_END_MARKER.length() - jpgStart);
+                }
+            }
+            blockStart = next;
+        }
+        return NO_AVATAR;
+    }
+
+    private static ByteBuffer slice(final ByteBuffer buffer, final Slice slice) {
+        final ByteBuffer duplicate = buffer.asReadOnlyBuffer();
+        duplicate.position(slice.offset);
+        duplicate.limit(slice.offset + slice.length);
+        return duplicate.slice();
+    }
+}
@@ -17,90 +17,79 @@
  */
 package com.skype.connector.linux.dbus;
 
-import java.io.DataInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collection;
+import java.util.concurrent.ThreadFactory;
+
+import com.skype.connector.AvatarCallback;
 
 public class AvatarReader {
 
+    private final AvatarIndex index;
+
+    public AvatarReader(final String aUser) {
+        index = new AvatarIndex(new File(System.getProperty("user.home") + File.separator + ".Skype" + File.separator + aUser));
+    }
+
     /**
-     * The Skype files that make up the user database
+     * Sets the factory of the threads which scan changed database files in parallel.
+     * 
+     * @param threadFactory the thread factory.
      */
-    private static final String[] DBBs = new String[]{/*"user256.dbb",*/ "user1024.dbb", "user4096.dbb", "user16384.dbb", "user32768.dbb", "user65536.dbb"};
+    public void setThreadFactory(final ThreadFactory threadFactory) {
+        index.setThreadFactory(threadFactory);
+    }
 
     /**
-     * JPG Magic markers
+     * Stops the threads which scan changed database files.
      */
-    private static final byte[] JPG_START_MARKER = new byte[]{(byte) 0xFF, (byte) 0xD8};
-    private static final byte[] JPG_END_MARKER = new byte[]{(byte) 0xFF, (byte) 0xD9};
-    
+    public void dispose() {
+        index.dispose();
+    }
+
     /**
-     * Marker which (appears to) separate user entries in .dbb files
+     * Gets the avatar of a user from the Skype user database.
+     * 
+     * @param userId the Skype id of the user.
+     * @return the JPEG image as read-only buffer or <code>null</code> if the user has no avatar.
+     * @throws IOException if the database could not be read.
      */
-    private static final byte[] L33L_MARKER = "l33l".getBytes();
-
-    private final String profilePath;
+    public ByteBuffer getAvatar(final String userId) throws IOException {
+        return index.getAvatar(userId);
+    }
 
-    public AvatarReader(final String aUser) {
-        profilePath = System.getProperty("user.home") + File.separator + ".Skype" + File.separator + aUser;
+    /**
+     * Gets the avatars of many users from the Skype user database.
+     * Each changed database file is scanned once, in parallel unless disabled
+     * by the <code>com.skype.connector.linux.dbus.AvatarIndex.parallel</code> property.
+     * 
+     * @param userIds the Skype ids of the users.
+     * @param callback receives the avatars in the calling thread.
+     * @throws IOException if the database could not be read.
+     */
+    public void forEachAvatar(final Collection<String> userIds, final AvatarCallback callback) throws IOException {
+        index.forEachAvatar(userIds, callback);
     }
 
     public void readAvatarToFile(final String userId, final String path) {
         try {
-            for(int i = 0; i < DBBs.length; i++) {
-                File file = new File(profilePath + File.separator + DBBs[i]);
-                if(file != null && file.exists()) {
-                    // read dbb file into a byte[]
-                    final DataInputStream stream = new DataInputStream(new FileInputStream(file));
-                    final byte[] bytes = new byte[stream.available()];
-                    stream.read(bytes);
-
-                    int pos = 0;
-                    while(pos != bytes.length - 1) {
-                        int l33l1 = indexOf(bytes, L33L_MARKER, pos);
-                        if(l33l1 == -1) {
-                            break;
-                        }
-                        
-                        int l33l2 = indexOf(bytes, L33L_MARKER, l33l1 + 1);
-                        if(l33l2 == -1) { // end of file
-                            l33l2 = bytes.length - 1;
-                        }
-                        
-                        // is userid owner of current l33l block?
-                        int user = indexOf(bytes, userId.getBytes(), l33l1, l33l2);
-                        if(user != -1) { // current l33l block is user we are looking for
-                            
-                            int jpgStart = indexOf(bytes, JPG_START_MARKER, l33l1, l33l2);
-                            if(jpgStart != -1) { // l33l block contains jpg image
-
-                                int jpgEnd = indexOf(bytes, JPG_END_MARKER, jpgStart, l33l2);
-                                if(jpgEnd != -1) { // might happen as well
-                                    
-                                    // slice off jpg from dbb
-                                    byte[] bs = Arrays.copyOfRange(bytes, jpgStart, jpgEnd + 2);
-                                    
-                                    // write to temp file
-                                    FileOutputStream fos = new FileOutputStream(path);
-                                    fos.write(bs);
-                                    fos.close();
-                                    
-                                    return;
-                                }
-                            } else {
-                                break;
-                            }
-                        }
-                        
-                        // advance to the next l33l marker
-                        pos = l33l2;
+            final ByteBuffer avatar = index.getAvatar(userId);
+            if(avatar != null) {
+                final FileOutputStream fos = new FileOutputStream(path);
+                try {
+                    final FileChannel channel = fos.getChannel();
+                    while(avatar.hasRemaining()) {
+                        channel.write(avatar);
                     }
-                }    
+                } finally {
+                    fos.close();
+                }
+                return;
             }
 
             // write dummy file
@@ -115,35 +104,8 @@ public class AvatarReader {
             in.close();
             out.close();
 
-        } catch(FileNotFoundException e) {
-            e.printStackTrace();
         } catch(IOException e) {
             e.printStackTrace();
         }
     }
-
-    /**
-     * @param bytes Where to search in
-     * @param key The key to search for
-     * @param from Must be < bytes.length
-     * @return The first occurrence of the given key in bytes
-     */
-    private int indexOf(byte[] bytes, byte[] key, int from, int to) {
-        OUTER: for(int i = from; i < to; i++) {
-            // try to match first byte
-            if(bytes[i] == key[0]) {
-                for(int j = 0; j < key.length; j++) {
-                    if(key[j] != bytes[i + j]) {
-                        continue OUTER;
-                    }
-                }
-                return i;
-            }
-        }
-        return -1;
-    }
-
-    private int indexOf(byte[] bytes, byte[] key, int from) {
-        return indexOf(bytes, key, from, bytes.length);
-    }
 }
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector.linux.dbus;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Searches a fixed byte pattern in buffers, like the markers and user ids of the dbb files.
+ * <p>
+ * Short patterns are found by a filter which reads eight bytes at a time and
+ * flags the positions where both the first and the last byte of the pattern
+ * match, using bit tricks on <code>long</code> words; only flagged positions
+ * are compared completely. Long patterns are searched with the
+ * Boyer-Moore-Horspool algorithm, which skips up to the pattern length per
+ * mismatch. A searcher is immutable and can be shared.
+ * </p>
+ */
+final class ByteSearcher {
+    /** The shortest pattern for which skipping beats the filter. */
+    private static final int MIN_SKIP_LENGTH = 16;
+
+    private final byte[] pattern;
+    /** The skip distance by the value of the byte aligned with the last pattern byte. */
+    private final int[] shifts = new int[256];
+    private final long firstBytes;
+    private final long lastBytes;
+
+    /**
+     * Constructor.
+     * 
+     * @param pattern the bytes to search for, not empty.
+     */
+    ByteSearcher(final byte[] pattern) {
+        if(pattern.length == 0) {
+            throw new IllegalArgumentException("The pattern must not be empty.");
+        }
+        this.pattern = pattern.clone();
+        final int last = pattern.length - 1;
+        for(int i = 0; i < shifts.length; i++) {
+            shifts[i] = pattern.length;
+        }
+        for(int i = 0; i < last; i++) {
+            shifts[pattern[i] & 0xFF] = last - i;
+        }
+        firstBytes = (pattern[0] & 0xFFL) * 0x0101010101010101L;
+        lastBytes = (pattern[last] & 0xFFL) * 0x0101010101010101L;
+    }
+
+    /**
+     * Gets the length of the pattern.
+     * 
+     * @return the number of bytes.
+     */
+    int length() {
+        return pattern.length;
+    }
+
+    /**
+     * Searches the pattern in a range of a buffer.
+     * The buffer's position and limit are neither used nor changed.
+     * 
+     * @param buffer where to search in.
+     * @param from the first position to search at.
+     * @param to the end of the range, exclusive; the pattern has to fit in completely.
+     * @return the position of the first occurrence or -1.
+     */
+    int indexOf(final ByteBuffer buffer, final int from, final int to) {
+        return pattern.length >= MIN_SKIP_LENGTH? skipSearch(buffer, from, to): filterSearch(buffer, from, to);
+    }
+
+    /**
+     * Searches with Boyer-Moore-Horspool.
+     */
+    int skipSearch(final ByteBuffer buffer, final int from, final int to) {
+        final int last = pattern.length - 1;
+        final byte lastByte = pattern[last];
+        int i = Math.max(from, 0);
+        final int end = to - pattern.length;
+        while(i <= end) {
+            final byte b = buffer.get(i + last);
+            if(b == lastByte && matches(buffer, i, last)) {
+                return i;
+            }
+            i += shifts[b & 0xFF];
+        }
+        return -1;
+    }
+
+    /**
+     * Searches with the first and last byte filter.
+     */
+    int filterSearch(final ByteBuffer buffer, final int from, final int to) {
+        final int last = pattern.length - 1;
+        final int end = to - pattern.length;
+        final boolean bigEndian = buffer.order() == ByteOrder.BIG_ENDIAN;
+        int i = Math.max(from, 0);
+        for(; i + 7 <= end; i += 8) {
+            long candidates = zeroBytes(buffer.getLong(i) ^ firstBytes) & zeroBytes(buffer.getLong(i + last) ^ lastBytes);
+            while(candidates != 0) {
+                final int k;
+                if(bigEndian) {
+                    k = Long.numberOfLeadingZeros(candidates) >>> 3;
+                    candidates &= ~(0x8000000000000000L >>> (k << 3));
+                } else {
+                    k = Long.numberOfTrailingZeros(candidates) >>> 3;
+                    candidates &= candidates - 1;
+                }
+                if(matches(buffer, i + k, pattern.length)) {
+                    return i + k;
+                }
+            }
+        }
+        for(; i <= end; i++) {
+            if(buffer.get(i) == pattern[0] && matches(buffer, i, pattern.length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sets the high bit of every zero byte of a word. Bytes next to a zero
+     * byte may be flagged as well, which costs a comparison but misses nothing.
+     */
+    private static long zeroBytes(final long word) {
+        return (word - 0x0101010101010101L) & ~word & 0x8080808080808080L;
+    }
+
+    private boolean matches(final ByteBuffer buffer, final int offset, final int count) {
+        for(int j = 0; j < count; j++) {
+            if(buffer.get(offset + j) != pattern[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
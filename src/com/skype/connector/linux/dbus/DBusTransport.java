@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector.linux.dbus;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.concurrent.ThreadFactory;
+
+import com.skype.connector.AvatarCallback;
+import com.skype.connector.AvatarProvider;
+import com.skype.connector.ConnectorException;
+import com.skype.connector.ConnectorMetrics;
+import com.skype.connector.Transport;
+import com.skype.connector.TransportListener;
+
+/**
+ * Transport to the Skype client on the DBus session bus.
+ * Avatars are read from the Skype user database because the AVATAR commands fail over DBus.
+ */
+public final class DBusTransport implements Transport, AvatarProvider {
+
+	private final String pass;
+	private final String user;
+	private final AvatarReader avatarReader;
+
+	private volatile SkypeFramework skypeFramework;
+	private volatile int maxInFlightCommands = SkypeFramework.DEFAULT_MAX_IN_FLIGHT_COMMANDS;
+	private SkypeFrameworkListener frameworkListener;
+
+    /**
+     * Constructor.
+     */
+    public DBusTransport(final String aUsername, final String aPassword) {
+    	user = aUsername;
+    	pass = aPassword;
+    	avatarReader = new AvatarReader(user);
+    }
+
+    /**
+     * Sets the maximum number of commands which are pipelined to Skype without having received their reply.
+     * Threads sending commands block while the window is full.
+     * @param newMaxInFlightCommands the window size, at least 1
+     * @throws IllegalArgumentException if the window size is less than 1
+     */
+    public void setMaxInFlightCommands(final int newMaxInFlightCommands) {
+        if (newMaxInFlightCommands < 1) {
+            throw new IllegalArgumentException("The in-flight window must be at least 1.");
+        }
+        maxInFlightCommands = newMaxInFlightCommands;
+        final SkypeFramework framework = skypeFramework;
+        if (framework != null) {
+            framework.setMaxInFlightCommands(newMaxInFlightCommands);
+        }
+    }
+
+    /**
+     * Gets the maximum number of commands which are pipelined to Skype without having received their reply.
+     * @return the window size
+     */
+    public int getMaxInFlightCommands() {
+        return maxInFlightCommands;
+    }
+
+    /**
+     * Starts Skype if needed and connects to it on the DBus session bus.
+     */
+    public void open(final TransportListener listener, final ThreadFactory threadFactory, final ConnectorMetrics metrics) throws ConnectorException {
+    	skypeFramework = new SkypeFramework(user, pass);
+    	skypeFramework.setMaxInFlightCommands(maxInFlightCommands);
+    	skypeFramework.setMetrics(metrics);
+    	skypeFramework.setThreadFactory(threadFactory);
+    	avatarReader.setThreadFactory(threadFactory);
+    	skypeFramework.init(new ProcessListener() {
+            public void processTerminated() {
+                listener.transportClosed();
+            }
+    	});
+    	frameworkListener = new SkypeFrameworkListener() {
+            public void notificationReceived(String notificationString) {
+                listener.notificationReceived(notificationString);
+            }
+
+            public void commandFailed(String command, ConnectorException cause) {
+                listener.commandFailed(command, cause);
+            }
+        };
+    	skypeFramework.addSkypeFrameworkListener(frameworkListener);
+    }
+
+    public boolean isRunning() throws ConnectorException {
+        return skypeFramework.isRunning();
+    }
+
+    /**
+     * Gets the absolute path of Skype.
+     * 
+     * @return the absolute path of Skype.
+     */
+    public String getInstalledPath() {
+        File application = new File("/usr/bin/skype");
+        if(application.exists()) {
+            return application.getAbsolutePath();
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Gets the avatar of a user from the Skype user database.
+     * @param userId the Skype id of the user.
+     * @return the JPEG image, or null if the user has no avatar.
+     * @throws ConnectorException if the database could not be read.
+     */
+    public ByteBuffer getAvatar(final String userId) throws ConnectorException {
+        try {
+            return avatarReader.getAvatar(userId);
+        } catch(IOException e) {
+            throw new ConnectorException("Reading the avatar of " + userId + " failed.", e);
+        }
+    }
+
+    /**
+     * Reads the avatars of many users with a single pass over each changed file of the Skype user database.
+     * @param userIds the Skype ids of the users.
+     * @param callback receives the avatars.
+     * @throws ConnectorException if the database could not be read.
+     */
+    public void forEachAvatar(final Collection<String> userIds, final AvatarCallback callback) throws ConnectorException {
+        try {
+            avatarReader.forEachAvatar(userIds, callback);
+        } catch(IOException e) {
+            throw new ConnectorException("Reading the avatars failed.", e);
+        }
+    }
+
+    /**
+     * Sends a command to the Skype client.
+     * 
+     * @param command The command to send.
+     */
+    public void send(final String command) {
+        // using dbus to receive a user avatar fails with a general syntax error, thus
+        // read the avatar from the skype .dbb files directly; the Skype API classes
+        // use getAvatar(String) instead, this is left for applications sending the command
+        if(command.toLowerCase().contains("avatar")) {
+            final String[] split = command.split(" ");
+            final String userId = split[2];
+            final String path = split[5];
+            avatarReader.readAvatarToFile(userId, path);
+            skypeFramework.fireNotificationReceived("USER " + userId + " AVATAR 1 ");
+        } else {
+        	skypeFramework.sendCommand(command);
+        }
+    }
+
+    /**
+     * Disconnects from DBus.
+     */
+    public void close() {
+        skypeFramework.removeSkypeFrameworkListener(frameworkListener);
+        skypeFramework.dispose();
+        avatarReader.dispose();
+    }
+}
@@ -21,144 +21,37 @@
  ******************************************************************************/
 package com.skype.connector.linux.dbus;
 
-import java.io.File;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-
 import com.skype.Skype;
-import com.skype.connector.Connector;
-import com.skype.connector.ConnectorException;
+import com.skype.connector.TransportConnector;
 
 /**
  * Implementation of the connector for Linux
  */
-public final class LinuxDBusConnector extends Connector {
-
-	private final String pass;
-	private final String user;
-	private final AvatarReader avatarReader;
-
-	private SkypeFramework skypeFramework;
+public final class LinuxDBusConnector extends TransportConnector {
 
-    private SkypeFrameworkListener listener = new SkypeFrameworkListener() {
-        public void notificationReceived(String notificationString) {
-            fireMessageReceived(notificationString);
-        }
-    };
-    
     /**
      * Constructor.
      */
     public LinuxDBusConnector(final Skype skype, final String aUsername, final String aPassword) {
-    	super(skype);
-    	user = aUsername;
-    	pass = aPassword;
-    	avatarReader = new AvatarReader(user);
-    }
-
-    public boolean isRunning() throws ConnectorException {
-        return skypeFramework.isRunning();
-    }
-
-    /**
-     * Gets the absolute path of Skype.
-     * 
-     * @return the absolute path of Skype.
-     */
-    public String getInstalledPath() {
-        File application = new File("/usr/bin/skype");
-        if(application.exists()) {
-            return application.getAbsolutePath();
-        } else {
-            return null;
-        }
-    }
-
-    /**
-     * Initializes this connector.
-     */
-    protected void initializeImpl() throws ConnectorException {
-    	skypeFramework = new SkypeFramework(user, pass);
-    	skypeFramework.init(new ProcessListener() {
-            public void processTerminated() {
-                LinuxDBusConnector.this.setStatus(Status.NOT_RUNNING);
-            }
-    	});
-    	skypeFramework.addSkypeFrameworkListener(listener);
-    }
-
-    /**
-     * Connects to Skype client.
-     * 
-     * @param timeout the maximum time in milliseconds to connect.
-     * @return Status the status after connecting.
-     * @throws ConnectorException when connection can not be established.
-     */
-    protected Status connect(int timeout) throws ConnectorException {
-        if(!skypeFramework.isRunning()) {
-            setStatus(Status.NOT_RUNNING);
-            return getStatus();
-        }
-        try {
-            final BlockingQueue<String> queue = new LinkedBlockingQueue<String>();
-            SkypeFrameworkListener initListener = new SkypeFrameworkListener() {
-                public void notificationReceived(String notification) {
-                    if("OK".equals(notification) || "CONNSTATUS OFFLINE".equals(notification) || "ERROR 68".equals(notification)) {
-                        try {
-                            queue.put(notification);
-                        } catch(InterruptedException e) {
-                            Thread.currentThread().interrupt();
-                        }
-                    }
-                }
-            };
-            setStatus(Status.PENDING_AUTHORIZATION);
-            skypeFramework.addSkypeFrameworkListener(initListener);
-            skypeFramework.sendCommand("NAME " + getApplicationName());
-            String result = queue.take();
-            skypeFramework.removeSkypeFrameworkListener(initListener);
-            if("OK".equals(result)) {
-                setStatus(Status.ATTACHED);
-            } else if("CONNSTATUS OFFLINE".equals(result)) {
-                setStatus(Status.NOT_AVAILABLE);
-            } else if("ERROR 68".equals(result)) {
-                setStatus(Status.REFUSED);
-            } else {
-            	setStatus(Status.NOT_AVAILABLE);
-            }
-            return getStatus();
-        } catch(InterruptedException e) {
-            throw new ConnectorException("Trying to connect was interrupted.", e);
-        }
+    	super(skype, new DBusTransport(aUsername, aPassword));
     }
 
     /**
-     * Sends a command to the Skype client.
-     * 
-     * @param command The command to send.
+     * Sets the maximum number of commands which are pipelined to Skype without having received their reply.
+     * Threads sending commands block while the window is full.
+     * @param newMaxInFlightCommands the window size, at least 1
+     * @throws IllegalArgumentException if the window size is less than 1
+     * @see DBusTransport#setMaxInFlightCommands(int)
      */
-    protected void sendCommand(final String command) {
-    	if(isDisposed()) {
-    		return;
-    	}
-        // using dbus to receive a user avatar fails with a general syntax error, thus
-        // read the avatar from the skype .dbb files directly
-        if(command.toLowerCase().contains("avatar")) {
-            final String[] split = command.split(" ");
-            final String userId = split[2];
-            final String path = split[5];
-            avatarReader.readAvatarToFile(userId, path);
-            skypeFramework.fireNotificationReceived("USER " + userId + " AVATAR 1 ");
-        } else {
-        	skypeFramework.sendCommand(command);
-        }
+    public void setMaxInFlightCommands(final int newMaxInFlightCommands) {
+        ((DBusTransport) getTransport()).setMaxInFlightCommands(newMaxInFlightCommands);
     }
 
     /**
-     * Cleans up the connector and the native library.
+     * Gets the maximum number of commands which are pipelined to Skype without having received their reply.
+     * @return the window size
      */
-    protected void disposeImpl() {
-        skypeFramework.removeSkypeFrameworkListener(listener);
-        skypeFramework.dispose();
+    public int getMaxInFlightCommands() {
+        return ((DBusTransport) getTransport()).getMaxInFlightCommands();
     }
 }
@@ -22,21 +22,50 @@
 package com.skype.connector.linux.dbus;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.freedesktop.DBus;
+import org.freedesktop.dbus.CallbackHandler;
 import org.freedesktop.dbus.DBusConnection;
 import org.freedesktop.dbus.UInt32;
 import org.freedesktop.dbus.exceptions.DBusException;
+import org.freedesktop.dbus.exceptions.DBusExecutionException;
 
 import com.Skype.API;
 import com.Skype.Client;
 import com.skype.connector.ConnectorException;
+import com.skype.connector.ConnectorMetrics;
+import com.skype.connector.ConnectorUtils;
 
 public class SkypeFramework {
-    private static final boolean DEBUG = Boolean.getBoolean("com.skype.connector.linux.dbus.SkypeFramework.debug");
+    /**
+     * Default maximum number of commands whose DBus reply is outstanding.
+     */
+    static final int DEFAULT_MAX_IN_FLIGHT_COMMANDS = Integer.getInteger("com.skype.connector.linux.dbus.SkypeFramework.maxInFlightCommands", 32);
+
+    /**
+     * Time in milliseconds after which a DBus call without reply fails and frees its slot of the window.
+     * It also bounds how long a sender waits for a free slot.
+     */
+    private static final long CALL_TIMEOUT = Long.getLong("com.skype.connector.linux.dbus.SkypeFramework.callTimeout", 10000);
+
+    /**
+     * Interval in milliseconds in which the command writer checks for calls without reply.
+     */
+    private static final long EXPIRY_CHECK_INTERVAL = 500;
 
     private static final String SERVER_PATH = "/com/Skype";
 	private static final String CLIENT_PATH = "/com/Skype/Client";
@@ -54,9 +83,6 @@ public class SkypeFramework {
 		}
 
 		public void Notify(String message) {
-		    if(DEBUG) {
-		        System.out.println("<= fireListenerNotify: " + message);
-		    }
 		    fw.fireNotificationReceived(message);
 		}
 	}
@@ -71,6 +97,43 @@ public class SkypeFramework {
 
     private ProcessHelper processHelper;
 
+    /**
+     * Commands accepted by {@link #sendCommand(String)} but not yet written to DBus.
+     */
+    private final BlockingQueue<String> pendingCommands = new LinkedBlockingQueue<String>();
+    /**
+     * Guards the in-flight window.
+     */
+    private final Lock windowLock = new ReentrantLock();
+    private final Condition windowNotFull = windowLock.newCondition();
+    /**
+     * Number of commands queued or written whose DBus reply has not been received yet.
+     */
+    private int inFlightCommands;
+    /**
+     * Calls written to DBus in write order, until they are finished or expired by the command writer.
+     */
+    private final Queue<InFlightCall> inFlightCalls = new ConcurrentLinkedQueue<InFlightCall>();
+    private volatile int maxInFlightCommands = DEFAULT_MAX_IN_FLIGHT_COMMANDS;
+    private volatile boolean disposed;
+    private Thread commandWriter;
+    /**
+     * Replies, notifications and failures in the order they were received, passed to the
+     * listeners by the receiver thread.
+     */
+    private final BlockingQueue<Runnable> receivedEvents = new LinkedBlockingQueue<Runnable>();
+    private Thread receiver;
+    /** Receives the DBus call latencies, or null. */
+    private volatile ConnectorMetrics metrics;
+    /** Creates the command writer and receiver threads. */
+    private ThreadFactory threadFactory = new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
 	private ProcessListener processListener;
 	private int pid;
 
@@ -86,6 +149,9 @@ public class SkypeFramework {
             pid = processHelper.getSkypeProcess(aProcessListener, user, pass);
             
             conn = DBusConnection.getConnection(DBusConnection.SESSION);
+            // one worker runs the reply callbacks and the Notify calls in the order they arrive,
+            // they only hand them over to the receiver thread
+            conn.changeThreadCount((byte) 1);
             source = getDBusAddressByPid(pid);
             
             // get handle for server
@@ -93,6 +159,21 @@ public class SkypeFramework {
             
             // add generic client listener for the given skype name
             conn.exportObject(CLIENT_PATH, source, new SkypeDBusNotify(this));
+
+            receiver = threadFactory.newThread(new Runnable() {
+                public void run() {
+                    deliverEvents();
+                }
+            });
+            receiver.setName("SkypeMessageReceiver-" + user);
+            receiver.start();
+            commandWriter = threadFactory.newThread(new Runnable() {
+                public void run() {
+                    writeCommands();
+                }
+            });
+            commandWriter.setName("SkypeCommandWriter-" + user);
+            commandWriter.start();
         } catch (DBusException e) {
             throw new ConnectorException(e.getMessage(), e);
         } catch(IOException e) {
@@ -146,36 +227,264 @@ public class SkypeFramework {
 		return conn != null;
 	}
 
+    /**
+     * A command written to DBus whose call has not finished yet.
+     */
+    private static final class InFlightCall {
+        final String command;
+        final long writeTime = System.nanoTime();
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        InFlightCall(final String command) {
+            this.command = command;
+        }
+
+        /**
+         * @return true for the first call only, so the slot is freed once
+         */
+        boolean finish() {
+            return finished.compareAndSet(false, true);
+        }
+
+        boolean isFinished() {
+            return finished.get();
+        }
+    }
+
+    /**
+     * Sends the command to Skype.
+     * The command is handed over to the command writer which pipelines it with the other
+     * pending commands, the response is fired as a notification when the DBus reply arrives.
+     * If the in-flight window is full, the calling thread blocks until a reply has been received,
+     * at most for the call timeout; then the command fails. A PING is never held back, because
+     * it checks whether Skype is alive while the window may be full of stalled calls.
+     */
 	void sendCommand(String command) {
-	    if(DEBUG) {
-	        System.err.println("=> sendcommand: " + command);
-	    }
-	    String response = skypeDBus.Invoke(command);
-	    if((response == null || "".equals(response))) {
-	    	if(command.startsWith("GET GROUP")) {
-	    		response = command.substring(4);
-	    	} else {
-	    		response = "";
-	    	}
-	    }
-		fireNotificationReceived(response);
+        final boolean isPing = "PING".equals(command);
+        ConnectorException failure = null;
+        windowLock.lock();
+        try {
+            long remaining = TimeUnit.MILLISECONDS.toNanos(CALL_TIMEOUT);
+            while (!isPing && inFlightCommands >= maxInFlightCommands && !disposed && failure == null) {
+                if (remaining <= 0) {
+                    failure = new ConnectorException("No free slot in the DBus in-flight window within " + CALL_TIMEOUT + " ms.");
+                } else {
+                    try {
+                        remaining = windowNotFull.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        failure = new ConnectorException("Waiting for a free slot in the DBus in-flight window was interrupted.", e);
+                    }
+                }
+            }
+            if (disposed) {
+                return;
+            }
+            if (failure == null) {
+                inFlightCommands++;
+            }
+        } finally {
+            windowLock.unlock();
+        }
+        if (failure != null) {
+            fireCommandFailed(command, failure);
+        } else {
+            pendingCommands.add(command);
+        }
 	}
-	
+
+    /**
+     * Writes the pending commands back-to-back without waiting for their replies.
+     * Runs on the command writer thread until this framework is disposed.
+     */
+    private void writeCommands() {
+        final List<String> commands = new ArrayList<String>();
+        while (!disposed) {
+            try {
+                final String command = pendingCommands.poll(EXPIRY_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+                if (command != null) {
+                    commands.add(command);
+                    pendingCommands.drainTo(commands);
+                }
+            } catch(InterruptedException e) {
+                // disposed
+                break;
+            }
+            for (final String command : commands) {
+                writeCommand(command);
+            }
+            commands.clear();
+            expireCalls();
+        }
+    }
+
+    private void writeCommand(final String command) {
+        final InFlightCall call = new InFlightCall(command);
+        inFlightCalls.add(call);
+        try {
+            conn.callWithCallback(skypeDBus, "Invoke", new CallbackHandler<String>() {
+                public void handle(String response) {
+                    if (!finish(call)) {
+                        // expired, the command has failed already
+                        return;
+                    }
+                    if((response == null || "".equals(response))) {
+                        if(command.startsWith("GET GROUP")) {
+                            response = command.substring(4);
+                        } else {
+                            response = "";
+                        }
+                    }
+                    fireNotificationReceived(response);
+                }
+
+                public void handleError(DBusExecutionException e) {
+                    if (finish(call)) {
+                        fireCommandFailed(command, new ConnectorException("The '" + command + "' command failed: " + e.getMessage(), e));
+                    }
+                }
+            }, command);
+        } catch(RuntimeException e) {
+            if (finish(call)) {
+                fireCommandFailed(command, new ConnectorException("The '" + command + "' command failed: " + e.getMessage(), e));
+            }
+        }
+    }
+
+    /**
+     * Fails the calls which got no reply within the call timeout, so their slots are freed
+     * and their commands do not wait for a response which will never arrive.
+     * Runs on the command writer thread, the only one removing calls.
+     */
+    private void expireCalls() {
+        final long expiryTime = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(CALL_TIMEOUT);
+        for (InFlightCall call = inFlightCalls.peek(); call != null; call = inFlightCalls.peek()) {
+            if (!call.isFinished() && call.writeTime - expiryTime > 0) {
+                break;
+            }
+            inFlightCalls.poll();
+            if (finish(call)) {
+                fireCommandFailed(call.command, new ConnectorException("No DBus reply to the '" + call.command + "' command within " + CALL_TIMEOUT + " ms."));
+            }
+        }
+    }
+
+    /**
+     * Finishes a call and frees its slot of the in-flight window.
+     * @return false if the call has been finished already
+     */
+    private boolean finish(final InFlightCall call) {
+        if (!call.finish()) {
+            return false;
+        }
+        final ConnectorMetrics currentMetrics = metrics;
+        if (currentMetrics != null) {
+            currentMetrics.transportCallCompleted(System.nanoTime() - call.writeTime);
+        }
+        windowLock.lock();
+        try {
+            inFlightCommands--;
+            windowNotFull.signal();
+        } finally {
+            windowLock.unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Sets the factory of the command writer and receiver threads. Must be called before {@link #init(ProcessListener)}.
+     * @param newThreadFactory the thread factory
+     */
+    void setThreadFactory(final ThreadFactory newThreadFactory) {
+        threadFactory = newThreadFactory;
+    }
+
+    /**
+     * Sets the receiver of the DBus call latencies.
+     * @param newMetrics the metrics or null
+     */
+    void setMetrics(final ConnectorMetrics newMetrics) {
+        metrics = newMetrics;
+    }
+
+    /**
+     * Sets the maximum number of commands whose DBus reply is outstanding.
+     * @param newMaxInFlightCommands the window size, at least 1
+     */
+    void setMaxInFlightCommands(final int newMaxInFlightCommands) {
+        if (newMaxInFlightCommands < 1) {
+            throw new IllegalArgumentException("The in-flight window must be at least 1.");
+        }
+        windowLock.lock();
+        try {
+            maxInFlightCommands = newMaxInFlightCommands;
+            windowNotFull.signalAll();
+        } finally {
+            windowLock.unlock();
+        }
+    }
+
 	String sendCommndWithResponse(String command) {
 	    return skypeDBus.Invoke(command);
 	}
 
-	void fireNotificationReceived(String notificationString) {
-	    if(DEBUG) {
-	        System.out
-	        .println("<= fireNotificationReceived: " + notificationString);
-	    }
-		for (SkypeFrameworkListener listener : listeners) {
-			listener.notificationReceived(notificationString);
-		}
+    /**
+     * Passes the received events to the listeners one after the other.
+     * Runs on the receiver thread until this framework is disposed, so the DBus
+     * worker is never held up by the listeners and the order is kept.
+     */
+    private void deliverEvents() {
+        try {
+            while (true) {
+                Runnable event = receivedEvents.take();
+                try {
+                    event.run();
+                } catch (RuntimeException e) {
+                    // keep delivering the following events
+                    ConnectorUtils.reportError("A listener failed on a Skype message.", e);
+                }
+            }
+        } catch (InterruptedException e) {
+            // disposed
+        }
+    }
+
+	void fireNotificationReceived(final String notificationString) {
+		receivedEvents.add(new Runnable() {
+			public void run() {
+				for (SkypeFrameworkListener listener : listeners) {
+					listener.notificationReceived(notificationString);
+				}
+			}
+		});
+	}
+
+	private void fireCommandFailed(final String command, final ConnectorException cause) {
+		receivedEvents.add(new Runnable() {
+			public void run() {
+				for (SkypeFrameworkListener listener : listeners) {
+					listener.commandFailed(command, cause);
+				}
+			}
+		});
 	}
 
 	void dispose() {
+        windowLock.lock();
+        try {
+            disposed = true;
+            windowNotFull.signalAll();
+        } finally {
+            windowLock.unlock();
+        }
+        if (commandWriter != null) {
+            commandWriter.interrupt();
+        }
+        if (receiver != null) {
+            receiver.interrupt();
+        }
+        pendingCommands.clear();
+        receivedEvents.clear();
 		conn.unExportObject(CLIENT_PATH, source);
 		conn.disconnect();
 		conn = null; 
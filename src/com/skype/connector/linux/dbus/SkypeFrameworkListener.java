@@ -23,6 +23,13 @@ package com.skype.connector.linux.dbus;
 
 import java.util.EventListener;
 
+import com.skype.connector.ConnectorException;
+
 interface SkypeFrameworkListener extends EventListener {
     void notificationReceived(String notification);
+
+    /**
+     * Called when the DBus call of a command failed or got no reply in time.
+     */
+    void commandFailed(String command, ConnectorException cause);
 }
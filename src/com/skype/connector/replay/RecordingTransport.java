@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector.replay;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ThreadFactory;
+
+import com.skype.connector.ConnectorException;
+import com.skype.connector.ConnectorMetrics;
+import com.skype.connector.ConnectorUtils;
+import com.skype.connector.Transport;
+import com.skype.connector.TransportListener;
+
+/**
+ * Transport which logs the traffic of another transport to a {@link TrafficLogWriter traffic log},
+ * to replay it later with the {@link ReplayTransport}.
+ */
+public final class RecordingTransport implements Transport {
+    private final Transport delegate;
+    private final File file;
+    private volatile TrafficLogWriter writer;
+
+    /**
+     * Constructor.
+     * @param delegate the transport to record
+     * @param file the traffic log, created when this transport is opened
+     */
+    public RecordingTransport(final Transport delegate, final File file) {
+        ConnectorUtils.checkNotNull("delegate", delegate);
+        ConnectorUtils.checkNotNull("file", file);
+        this.delegate = delegate;
+        this.file = file;
+    }
+
+    /**
+     * Gets the recorded transport.
+     * @return the transport
+     */
+    public Transport getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Creates the traffic log and opens the recorded transport.
+     */
+    public void open(final TransportListener listener, final ThreadFactory threadFactory, final ConnectorMetrics metrics) throws ConnectorException {
+        try {
+            writer = new TrafficLogWriter(file);
+        } catch (IOException e) {
+            throw new ConnectorException("The traffic log " + file + " could not be created.", e);
+        }
+        delegate.open(new TransportListener() {
+            public void notificationReceived(String notification) {
+                TrafficLogWriter currentWriter = writer;
+                if (currentWriter != null) {
+                    try {
+                        currentWriter.writeNotification(notification);
+                    } catch (IOException e) {
+                        recordingFailed(e);
+                    }
+                }
+                listener.notificationReceived(notification);
+            }
+
+            public void commandFailed(String command, ConnectorException cause) {
+                listener.commandFailed(command, cause);
+            }
+
+            public void transportClosed() {
+                listener.transportClosed();
+            }
+        }, threadFactory, metrics);
+    }
+
+    public boolean isRunning() throws ConnectorException {
+        return delegate.isRunning();
+    }
+
+    public String getInstalledPath() {
+        return delegate.getInstalledPath();
+    }
+
+    public void send(final String command) {
+        TrafficLogWriter currentWriter = writer;
+        if (currentWriter != null) {
+            try {
+                currentWriter.writeCommand(command);
+            } catch (IOException e) {
+                recordingFailed(e);
+            }
+        }
+        delegate.send(command);
+    }
+
+    /**
+     * Closes the recorded transport and the traffic log.
+     */
+    public void close() throws ConnectorException {
+        try {
+            delegate.close();
+        } finally {
+            TrafficLogWriter currentWriter = writer;
+            writer = null;
+            if (currentWriter != null) {
+                try {
+                    currentWriter.close();
+                } catch (IOException e) {
+                    throw new ConnectorException("The traffic log " + file + " could not be written.", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops recording, the traffic still passes through.
+     */
+    private void recordingFailed(final IOException e) {
+        writer = null;
+        ConnectorUtils.reportError("The traffic log " + file + " could not be written, recording stopped.", e);
+    }
+}
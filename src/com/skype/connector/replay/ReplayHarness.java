@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector.replay;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.skype.connector.CommandFuture;
+import com.skype.connector.Connector;
+import com.skype.connector.ConnectorException;
+import com.skype.connector.InMemoryConnectorMetrics;
+import com.skype.connector.LatencyHistogram;
+import com.skype.connector.TransportConnector;
+
+/**
+ * Replays the commands of a traffic log through a connector over a {@link ReplayTransport}
+ * and reports the throughput and the latency per command, to compare library versions on
+ * recorded workloads.
+ * <p>
+ * Usage: <code>java com.skype.connector.replay.ReplayHarness &lt;traffic log&gt; [&lt;speed&gt;|max]</code>
+ * </p>
+ */
+public final class ReplayHarness {
+    private final File file;
+    private final double speed;
+
+    /**
+     * Constructor.
+     * @param file the traffic log
+     * @param speed the factor the recorded delays are divided by, {@link ReplayTransport#MAX_SPEED} for no delays
+     */
+    public ReplayHarness(final File file, final double speed) {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("The speed must be positive.");
+        }
+        this.file = file;
+        this.speed = speed;
+    }
+
+    /**
+     * Replays the traffic log and prints the report.
+     * The commands are sent at their recorded times divided by the speed, without waiting for the replies.
+     * @param out receives the report
+     * @throws IOException if the traffic log could not be read
+     * @throws ConnectorException if the connector could not attach
+     */
+    public void run(final PrintStream out) throws IOException, ConnectorException {
+        ReplayScript script = ReplayScript.read(file);
+        ReplayTransport transport = new ReplayTransport(script, speed);
+        TransportConnector connector = new TransportConnector(null, transport);
+        InMemoryConnectorMetrics metrics = new InMemoryConnectorMetrics();
+        connector.setMetrics(metrics);
+        try {
+            long start = System.nanoTime();
+            Connector.Status status = connector.connect();
+            if (status != Connector.Status.ATTACHED) {
+                throw new ConnectorException("The replay could not attach: " + status);
+            }
+
+            List<CommandFuture> futures = new ArrayList<CommandFuture>();
+            int skipped = 0;
+            long sendStart = System.nanoTime();
+            long firstTime = -1;
+            for (ReplayScript.Command command : script.getCommands()) {
+                if (command.reply == null || command.isConnectorCommand()) {
+                    skipped++;
+                    continue;
+                }
+                if (firstTime == -1) {
+                    firstTime = command.time;
+                }
+                if (speed != ReplayTransport.MAX_SPEED) {
+                    sleepUntil(sendStart + (long) ((command.time - firstTime) / speed));
+                }
+                String responseHeader = command.reply.startsWith(command.responseHeader) || command.reply.startsWith("ERROR ") ? command.responseHeader : command.reply;
+                if (command.withId) {
+                    futures.add(connector.executeWithIdAsync(command.command, responseHeader));
+                } else {
+                    futures.add(connector.executeAsync(command.command, responseHeader));
+                }
+            }
+
+            int failed = 0;
+            for (CommandFuture future : futures) {
+                try {
+                    future.get(connector.getCommandTimeout(), TimeUnit.MILLISECONDS);
+                } catch (ExecutionException e) {
+                    failed++;
+                } catch (TimeoutException e) {
+                    failed++;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ConnectorException("The replay was interrupted.", e);
+                }
+            }
+            while (transport.getPendingDeliveryCount() > 0 && !Thread.currentThread().isInterrupted()) {
+                sleepUntil(System.nanoTime() + 1000000);
+            }
+            double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+            long received = metrics.getReceivedMessageCount();
+
+            out.println("Replayed " + file + " at " + (speed == ReplayTransport.MAX_SPEED ? "max" : speed + "x") + " speed in " + format(seconds) + "s");
+            out.println("Commands: " + futures.size() + " sent, " + failed + " failed, " + skipped + " skipped, " + format(futures.size() / seconds) + "/s");
+            out.println("Messages: " + received + " received, " + format(received / seconds) + "/s");
+            out.println("Latency by command:");
+            Map<String, LatencyHistogram> latencies = new TreeMap<String, LatencyHistogram>(metrics.getCommandLatencies());
+            for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+                out.println("  " + entry.getKey() + ": " + entry.getValue());
+            }
+            out.println("Event delivery: " + metrics.getEventDeliveryTime());
+        } finally {
+            connector.dispose();
+        }
+    }
+
+    /**
+     * Replays a traffic log.
+     * @param args the traffic log and optionally the speed, a factor like "10" or "max"
+     */
+    public static void main(final String[] args) throws Exception {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: java " + ReplayHarness.class.getName() + " <traffic log> [<speed>|max]");
+            System.exit(2);
+            return;
+        }
+        double speed = args.length == 2 ? parseSpeed(args[1]) : 1;
+        new ReplayHarness(new File(args[0]), speed).run(System.out);
+    }
+
+    /**
+     * Parses a replay speed.
+     * @param speed a factor like "10", or "max"
+     * @return the speed
+     */
+    static double parseSpeed(final String speed) {
+        if ("max".equalsIgnoreCase(speed)) {
+            return ReplayTransport.MAX_SPEED;
+        }
+        return Double.parseDouble(speed);
+    }
+
+    private static String format(final double value) {
+        return String.format("%.1f", value);
+    }
+
+    private static void sleepUntil(final long time) {
+        long delay = time - System.nanoTime();
+        if (delay > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
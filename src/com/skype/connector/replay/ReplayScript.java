@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector.replay;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A traffic log with the commands paired with their recorded replies.
+ * <p>
+ * Commands with a "#N" command ID are paired with the reply carrying the same ID.
+ * Other commands are paired with the first following notification starting with
+ * their expected response header (like "USER echo123 FULLNAME" for
+ * "GET USER echo123 FULLNAME") or with an ERROR. All notifications which are
+ * no reply are kept in order to be replayed on their own.
+ * </p>
+ */
+final class ReplayScript {
+    /** Number of unanswered commands without command ID which are still paired with later notifications. */
+    private static final int MAX_PENDING_COMMANDS = 1000;
+
+    /**
+     * A recorded command and its reply.
+     */
+    static final class Command {
+        /** The time since the start of the recording in nanoseconds. */
+        final long time;
+        /** The command without command ID. */
+        final String command;
+        /** True if the command was sent with a command ID. */
+        final boolean withId;
+        /** The expected start of the reply. */
+        final String responseHeader;
+        /** The reply without command ID, or null if the command was not answered. */
+        String reply;
+        /** The time from sending the command to receiving the reply in nanoseconds. */
+        long replyDelay;
+
+        Command(final long time, final String command, final boolean withId) {
+            this.time = time;
+            this.command = command;
+            this.withId = withId;
+            this.responseHeader = toResponseHeader(command);
+        }
+
+        /**
+         * Checks if this command is sent by the connector itself while attaching or checking the Skype client.
+         * @return true for NAME, PROTOCOL and PING
+         */
+        boolean isConnectorCommand() {
+            return command.startsWith("NAME ") || command.startsWith("PROTOCOL ") || "PING".equals(command);
+        }
+    }
+
+    private final List<Command> commands = new ArrayList<Command>();
+    private final List<TrafficRecord> notifications = new ArrayList<TrafficRecord>();
+    private final Map<String, Command> pendingById = new HashMap<String, Command>();
+    private final LinkedList<Command> pendingWithoutId = new LinkedList<Command>();
+
+    /**
+     * Reads a traffic log.
+     * @param file the traffic log
+     * @return the script
+     * @throws IOException if reading failed
+     */
+    static ReplayScript read(final File file) throws IOException {
+        ReplayScript script = new ReplayScript();
+        TrafficLogReader reader = new TrafficLogReader(file);
+        try {
+            for (TrafficRecord record = reader.read(); record != null; record = reader.read()) {
+                script.add(record);
+            }
+        } finally {
+            reader.close();
+        }
+        script.pendingById.clear();
+        script.pendingWithoutId.clear();
+        return script;
+    }
+
+    /**
+     * Gets the recorded commands in the order they were sent.
+     * @return the commands
+     */
+    List<Command> getCommands() {
+        return commands;
+    }
+
+    /**
+     * Gets the notifications which are no reply to a command, in the order they were received.
+     * @return the notifications
+     */
+    List<TrafficRecord> getNotifications() {
+        return notifications;
+    }
+
+    private void add(final TrafficRecord record) {
+        String text = record.getText();
+        String commandId = null;
+        if (text.startsWith("#")) {
+            int space = text.indexOf(' ');
+            if (space > 0) {
+                commandId = text.substring(0, space);
+                text = text.substring(space + 1);
+            }
+        }
+        if (record.getDirection() == TrafficRecord.Direction.COMMAND) {
+            Command command = new Command(record.getTime(), text, commandId != null);
+            commands.add(command);
+            if (commandId != null) {
+                pendingById.put(commandId, command);
+            } else {
+                pendingWithoutId.add(command);
+                if (pendingWithoutId.size() > MAX_PENDING_COMMANDS) {
+                    pendingWithoutId.removeFirst();
+                }
+            }
+            return;
+        }
+        if (commandId != null) {
+            Command command = pendingById.remove(commandId);
+            if (command != null) {
+                command.reply = text;
+                command.replyDelay = record.getTime() - command.time;
+                return;
+            }
+        } else {
+            for (Iterator<Command> i = pendingWithoutId.iterator(); i.hasNext();) {
+                Command command = i.next();
+                if (text.startsWith(command.responseHeader) || text.startsWith("ERROR ")) {
+                    i.remove();
+                    command.reply = text;
+                    command.replyDelay = record.getTime() - command.time;
+                    return;
+                }
+            }
+        }
+        notifications.add(record);
+    }
+
+    /**
+     * Guesses the start of the reply to a command, ending at a token boundary.
+     */
+    private static String toResponseHeader(final String command) {
+        if (command.startsWith("GET ")) {
+            return command.substring(4);
+        } else if (command.startsWith("SET ")) {
+            String[] words = command.substring(4).split(" ");
+            if (words.length >= 4 && isObjectType(words[0])) {
+                return words[0] + " " + words[1] + " " + words[2];
+            }
+            return words[0];
+        } else if ("PING".equals(command)) {
+            return "PONG";
+        } else if (command.startsWith("NAME ")) {
+            return "OK";
+        } else if (command.startsWith("SEARCH ")) {
+            String what = command.substring(7).split(" ")[0];
+            if (what.contains("USERS") || "FRIENDS".equals(what)) {
+                return "USERS";
+            } else if (what.endsWith("CHATS")) {
+                return "CHATS";
+            } else if (what.endsWith("CHATMESSAGES")) {
+                return "CHATMESSAGES";
+            } else if (what.endsWith("CALLS")) {
+                return "CALLS";
+            }
+            return what;
+        } else if (command.startsWith("CHAT CREATE ")) {
+            return "CHAT";
+        } else if (command.startsWith("CREATE GROUP ")) {
+            return "GROUP";
+        } else if (command.startsWith("DELETE GROUP ")) {
+            return "DELETED GROUP";
+        }
+        int space = command.indexOf(' ');
+        return space < 0 ? command : command.substring(0, space);
+    }
+
+    private static boolean isObjectType(final String word) {
+        return "USER".equals(word) || "CHAT".equals(word) || "CHATMESSAGE".equals(word) || "GROUP".equals(word)
+            || "CALL".equals(word) || "VOICEMAIL".equals(word) || "CHATMEMBER".equals(word);
+    }
+}
@@ -0,0 +1,259 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector.replay;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.skype.connector.ConnectorException;
+import com.skype.connector.ConnectorMetrics;
+import com.skype.connector.ConnectorUtils;
+import com.skype.connector.Transport;
+import com.skype.connector.TransportListener;
+
+/**
+ * Transport which plays back a traffic log written by the {@link RecordingTransport} without a Skype client.
+ * <p>
+ * When opened, the recorded notifications which are no reply to a command are delivered at their recorded
+ * times divided by the speed. Commands are answered with the recorded reply to the same command after the
+ * recorded delay divided by the speed; commands sent more often than recorded get the last recorded reply,
+ * unknown commands an ERROR.
+ * </p>
+ * @see ReplayHarness
+ */
+public final class ReplayTransport implements Transport {
+    /** The speed to replay without delays. */
+    public static final double MAX_SPEED = Double.POSITIVE_INFINITY;
+
+    private final File file;
+    private final double speed;
+    private ReplayScript script;
+    /** The recorded replies by command without command ID. */
+    private final Map<String, Replies> replies = new HashMap<String, Replies>();
+    private final DelayQueue<Delivery> deliveries = new DelayQueue<Delivery>();
+    private final AtomicLong sequence = new AtomicLong();
+    private Thread deliveryThread;
+    private volatile TransportListener listener;
+
+    /**
+     * Constructor.
+     * @param file the traffic log, read when this transport is opened
+     * @param speed the factor the recorded delays are divided by, {@link #MAX_SPEED} for no delays
+     */
+    public ReplayTransport(final File file, final double speed) {
+        ConnectorUtils.checkNotNull("file", file);
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("The speed must be positive.");
+        }
+        this.file = file;
+        this.speed = speed;
+    }
+
+    ReplayTransport(final ReplayScript script, final double speed) {
+        this(new File(""), speed);
+        this.script = script;
+    }
+
+    /**
+     * Reads the traffic log and starts delivering the recorded notifications.
+     */
+    public void open(final TransportListener newListener, final ThreadFactory threadFactory, final ConnectorMetrics metrics) throws ConnectorException {
+        if (script == null) {
+            try {
+                script = ReplayScript.read(file);
+            } catch (IOException e) {
+                throw new ConnectorException("The traffic log " + file + " could not be read.", e);
+            }
+        }
+        Map<String, List<String>> recordedReplies = new HashMap<String, List<String>>();
+        Map<String, Long> recordedDelays = new HashMap<String, Long>();
+        for (ReplayScript.Command command : script.getCommands()) {
+            if (command.reply != null) {
+                List<String> list = recordedReplies.get(command.command);
+                if (list == null) {
+                    list = new ArrayList<String>();
+                    recordedReplies.put(command.command, list);
+                    recordedDelays.put(command.command, command.replyDelay);
+                }
+                list.add(command.reply);
+            }
+        }
+        for (Map.Entry<String, List<String>> entry : recordedReplies.entrySet()) {
+            replies.put(entry.getKey(), new Replies(entry.getValue().toArray(new String[0]), recordedDelays.get(entry.getKey())));
+        }
+
+        listener = newListener;
+        deliveryThread = threadFactory.newThread(new Runnable() {
+            public void run() {
+                deliver();
+            }
+        });
+        deliveryThread.setName("ReplayTransport-" + file.getName());
+        long start = System.nanoTime();
+        for (TrafficRecord notification : script.getNotifications()) {
+            schedule(notification.getText(), start + scale(notification.getTime()));
+        }
+        deliveryThread.start();
+    }
+
+    /**
+     * Checks if the traffic log is being replayed.
+     * @return always true
+     */
+    public boolean isRunning() {
+        return true;
+    }
+
+    /**
+     * Gets the absolute path of Skype.
+     * @return null because there is no Skype client.
+     */
+    public String getInstalledPath() {
+        return null;
+    }
+
+    /**
+     * Answers a command with its recorded reply.
+     * @param command The command to answer.
+     */
+    public void send(final String command) {
+        String commandId = "";
+        String text = command;
+        if (command.startsWith("#")) {
+            int space = command.indexOf(' ');
+            if (space > 0) {
+                commandId = command.substring(0, space + 1);
+                text = command.substring(space + 1);
+            }
+        }
+        Replies recorded = replies.get(text);
+        String reply;
+        long delay = 0;
+        if (recorded != null) {
+            reply = recorded.next();
+            delay = recorded.delay;
+        } else if ("PING".equals(text)) {
+            reply = "PONG";
+        } else if (text.startsWith("NAME ")) {
+            reply = "OK";
+        } else if (text.startsWith("PROTOCOL ")) {
+            reply = "PROTOCOL 8";
+        } else {
+            reply = "ERROR 2 Unknown command";
+        }
+        schedule(commandId + reply, System.nanoTime() + scale(delay));
+    }
+
+    /**
+     * Gets the number of notifications and replies waiting for their delivery.
+     * @return the number of deliveries
+     */
+    int getPendingDeliveryCount() {
+        return deliveries.size();
+    }
+
+    /**
+     * Stops delivering.
+     */
+    public void close() {
+        if (deliveryThread != null) {
+            deliveryThread.interrupt();
+        }
+        deliveries.clear();
+    }
+
+    private long scale(final long nanos) {
+        return speed == MAX_SPEED ? 0 : (long) (nanos / speed);
+    }
+
+    private void schedule(final String notification, final long deliveryTime) {
+        deliveries.put(new Delivery(notification, deliveryTime, sequence.getAndIncrement()));
+    }
+
+    private void deliver() {
+        try {
+            while (true) {
+                listener.notificationReceived(deliveries.take().notification);
+            }
+        } catch (InterruptedException e) {
+            // closed
+        }
+    }
+
+    /**
+     * The recorded replies to one command, used in turn.
+     */
+    private static final class Replies {
+        private final String[] replies;
+        private final long delay;
+        private final AtomicInteger next = new AtomicInteger();
+
+        Replies(final String[] replies, final long delay) {
+            this.replies = replies;
+            this.delay = delay;
+        }
+
+        String next() {
+            int index = next.getAndIncrement();
+            return replies[index < replies.length && index >= 0 ? index : replies.length - 1];
+        }
+    }
+
+    /**
+     * A notification waiting for its delivery time.
+     */
+    private static final class Delivery implements Delayed {
+        private final String notification;
+        private final long deliveryTime;
+        private final long sequence;
+
+        Delivery(final String notification, final long deliveryTime, final long sequence) {
+            this.notification = notification;
+            this.deliveryTime = deliveryTime;
+            this.sequence = sequence;
+        }
+
+        public long getDelay(final TimeUnit unit) {
+            return unit.convert(deliveryTime - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        public int compareTo(final Delayed other) {
+            Delivery delivery = (Delivery) other;
+            long difference = deliveryTime - delivery.deliveryTime;
+            if (difference == 0) {
+                difference = sequence - delivery.sequence;
+            }
+            return difference < 0 ? -1 : difference > 0 ? 1 : 0;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector.replay;
+
+import java.io.File;
+
+import com.skype.Skype;
+import com.skype.connector.Transport;
+import com.skype.connector.TransportConnector;
+import com.skype.connector.TransportProvider;
+
+/**
+ * Provides {@link ReplayTransport}s, selected with <code>-Dcom.skype.connector.Connector.transport=replay</code>.
+ * The traffic log is named by the system property <code>com.skype.connector.replay.ReplayTransportProvider.file</code>,
+ * "skype-traffic.log" by default, and the speed by <code>com.skype.connector.replay.ReplayTransportProvider.speed</code>,
+ * a factor like "10" or "max", "1" by default.
+ */
+public final class ReplayTransportProvider implements TransportProvider {
+    public String getName() {
+        return "replay";
+    }
+
+    public Transport createTransport(final String username, final String password) {
+        String file = System.getProperty("com.skype.connector.replay.ReplayTransportProvider.file", "skype-traffic.log");
+        String speed = System.getProperty("com.skype.connector.replay.ReplayTransportProvider.speed", "1");
+        return new ReplayTransport(new File(file), ReplayHarness.parseSpeed(speed));
+    }
+
+    public TransportConnector createConnector(final Skype skype, final String username, final String password) {
+        return new TransportConnector(skype, createTransport(username, password));
+    }
+}
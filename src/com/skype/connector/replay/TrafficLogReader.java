@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector.replay;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads a traffic log written by {@link TrafficLogWriter}.
+ */
+public final class TrafficLogReader {
+    private final InputStream in;
+    private long time;
+    private byte[] buffer = new byte[256];
+
+    /**
+     * Opens a log file.
+     * @param file the file
+     * @throws IOException if the file could not be opened or is no traffic log
+     */
+    public TrafficLogReader(final File file) throws IOException {
+        this(new FileInputStream(file));
+    }
+
+    /**
+     * Reads a log from a stream.
+     * @param in the stream, closed with this reader
+     * @throws IOException if the stream is no traffic log
+     */
+    public TrafficLogReader(final InputStream in) throws IOException {
+        this.in = new BufferedInputStream(in, 64 * 1024);
+        int magic = (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+        if (magic != TrafficLogWriter.MAGIC) {
+            close();
+            throw new IOException("The stream is no traffic log.");
+        }
+        int version = readByte();
+        if (version != TrafficLogWriter.VERSION) {
+            close();
+            throw new IOException("The traffic log version " + version + " is not supported.");
+        }
+    }
+
+    /**
+     * Reads the next record.
+     * @return the record, or null at the end of the log
+     * @throws IOException if reading failed or the log is truncated
+     */
+    public TrafficRecord read() throws IOException {
+        int direction = in.read();
+        if (direction == -1) {
+            return null;
+        }
+        if (direction != TrafficLogWriter.COMMAND && direction != TrafficLogWriter.NOTIFICATION) {
+            throw new IOException("The traffic log is corrupt.");
+        }
+        time += readVarLong() * 1000;
+        long length = readVarLong();
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("The traffic log is corrupt.");
+        }
+        if (buffer.length < length) {
+            buffer = new byte[Math.max((int) length, buffer.length * 2)];
+        }
+        int offset = 0;
+        while (offset < length) {
+            int count = in.read(buffer, offset, (int) length - offset);
+            if (count == -1) {
+                throw new EOFException("The traffic log is truncated.");
+            }
+            offset += count;
+        }
+        String text = new String(buffer, 0, (int) length, "UTF-8");
+        return new TrafficRecord(direction == TrafficLogWriter.COMMAND ? TrafficRecord.Direction.COMMAND : TrafficRecord.Direction.NOTIFICATION, time, text);
+    }
+
+    /**
+     * Closes the log.
+     * @throws IOException if closing failed
+     */
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private int readByte() throws IOException {
+        int value = in.read();
+        if (value == -1) {
+            throw new EOFException("The traffic log is truncated.");
+        }
+        return value;
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("The traffic log is corrupt.");
+    }
+}
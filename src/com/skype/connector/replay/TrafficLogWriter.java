@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector.replay;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes a traffic log.
+ * <p>
+ * The log starts with the magic number {@link #MAGIC} and the format {@link #VERSION},
+ * followed by one entry per record: the direction (1 for a command, 2 for a notification),
+ * the microseconds since the previous record as unsigned variable length integer,
+ * the length of the UTF-8 text as unsigned variable length integer and the text.
+ * </p>
+ * <p>
+ * Unlike a {@link com.skype.connector.journal.TrafficJournal}, the writer never drops a
+ * record, since a replay with a missing reply stalls.
+ * </p>
+ * @see TrafficLogReader
+ */
+public final class TrafficLogWriter {
+    /** The first four bytes of a traffic log, "S4JT". */
+    public static final int MAGIC = 0x53344A54;
+    /** The format version. */
+    public static final int VERSION = 1;
+
+    static final int COMMAND = 1;
+    static final int NOTIFICATION = 2;
+
+    private final OutputStream out;
+    private final long startTime = System.nanoTime();
+    private long lastTime;
+    private byte[] buffer = new byte[256];
+    private boolean closed;
+
+    /**
+     * Creates a log file, replacing an existing file.
+     * @param file the file
+     * @throws IOException if the file could not be created
+     */
+    public TrafficLogWriter(final File file) throws IOException {
+        this(new FileOutputStream(file));
+    }
+
+    /**
+     * Writes a log to a stream.
+     * @param out the stream, closed with this writer
+     * @throws IOException if the header could not be written
+     */
+    public TrafficLogWriter(final OutputStream out) throws IOException {
+        this.out = new BufferedOutputStream(out, 64 * 1024);
+        writeInt(MAGIC);
+        this.out.write(VERSION);
+    }
+
+    /**
+     * Logs a command sent to the Skype client.
+     * @param command the command
+     * @throws IOException if writing failed
+     */
+    public void writeCommand(final String command) throws IOException {
+        write(COMMAND, command);
+    }
+
+    /**
+     * Logs a reply or notification received from the Skype client.
+     * @param notification the notification
+     * @throws IOException if writing failed
+     */
+    public void writeNotification(final String notification) throws IOException {
+        write(NOTIFICATION, notification);
+    }
+
+    private synchronized void write(final int direction, final String text) throws IOException {
+        if (closed) {
+            throw new IOException("The traffic log is closed.");
+        }
+        long time = (System.nanoTime() - startTime) / 1000;
+        byte[] bytes = text.getBytes("UTF-8");
+        out.write(direction);
+        writeVarLong(Math.max(time - lastTime, 0));
+        writeVarLong(bytes.length);
+        out.write(bytes);
+        lastTime = Math.max(time, lastTime);
+    }
+
+    /**
+     * Writes the buffered records to the file.
+     * @throws IOException if writing failed
+     */
+    public synchronized void flush() throws IOException {
+        if (!closed) {
+            out.flush();
+        }
+    }
+
+    /**
+     * Writes the buffered records and closes the file.
+     * @throws IOException if writing failed
+     */
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            out.close();
+        }
+    }
+
+    private void writeInt(final int value) throws IOException {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        int length = 0;
+        while ((value & ~0x7FL) != 0) {
+            buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[length++] = (byte) value;
+        out.write(buffer, 0, length);
+    }
+}
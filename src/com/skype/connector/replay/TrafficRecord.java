@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector.replay;
+
+/**
+ * A command sent to or a message received from the Skype client in a traffic log.
+ */
+public final class TrafficRecord {
+    /**
+     * The direction of a record.
+     */
+    public enum Direction {
+        /** A command sent to the Skype client. */
+        COMMAND,
+        /** A reply or notification received from the Skype client. */
+        NOTIFICATION;
+    }
+
+    private final Direction direction;
+    private final long time;
+    private final String text;
+
+    /**
+     * Constructor.
+     * @param direction the direction
+     * @param time the time since the start of the recording in nanoseconds
+     * @param text the command or notification
+     */
+    public TrafficRecord(final Direction direction, final long time, final String text) {
+        this.direction = direction;
+        this.time = time;
+        this.text = text;
+    }
+
+    /**
+     * Gets the direction of this record.
+     * @return the direction
+     */
+    public Direction getDirection() {
+        return direction;
+    }
+
+    /**
+     * Gets the time since the start of the recording.
+     * @return the time in nanoseconds, with a resolution of microseconds
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Gets the command or notification.
+     * @return the text
+     */
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return time / 1000 + "us " + (direction == Direction.COMMAND ? "-> " : "<- ") + text;
+    }
+}
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.skype.connector.ConnectorException;
+import com.skype.connector.inmemory.InMemoryConnector;
+
+public class SkypeTest {
+    private Skype skype;
+    private InMemoryConnector connector;
+
+    @Before
+    public void setUp() throws ConnectorException {
+        System.setProperty("com.skype.connector.Connector.transport", "inmemory");
+        skype = new Skype("me", null);
+        connector = (InMemoryConnector)skype.getConnector();
+        connector.getClient().setLatency(0, 0);
+        connector.connect();
+    }
+
+    @After
+    public void tearDown() throws ConnectorException {
+        connector.dispose();
+        connector.getClient().dispose();
+    }
+
+    @Test
+    public void avatarReplyWithoutPathKeepsCachedAvatar() throws InterruptedException {
+        byte[] image = new byte[] { 1, 2, 3 };
+        skype.getAvatarCache().put("friend0", image);
+        skype.getAvatarCache().put("friend1", image);
+        // the Linux connector replies without the path of the avatar file
+        connector.getClient().notify("USER friend0 AVATAR 1 ");
+        connector.getClient().notify("USER friend1 AVATAR 2");
+        // notifications are handled in order, so the reply has been handled once friend1 is gone
+        while (skype.getAvatarCache().get("friend1") != null) {
+            Thread.sleep(10);
+        }
+        assertArrayEquals(image, skype.getAvatarCache().get("friend0"));
+    }
+
+    @Test
+    public void avatarReplyWithPathKeepsCachedAvatar() throws InterruptedException {
+        byte[] image = new byte[] { 1, 2, 3 };
+        skype.getAvatarCache().put("friend0", image);
+        skype.getAvatarCache().put("friend1", image);
+        connector.getClient().notify("USER friend0 AVATAR 1 /tmp/friend0.jpg");
+        connector.getClient().notify("USER friend1 AVATAR 2");
+        while (skype.getAvatarCache().get("friend1") != null) {
+            Thread.sleep(10);
+        }
+        assertArrayEquals(image, skype.getAvatarCache().get("friend0"));
+        assertNull(skype.getAvatarCache().get("friend1"));
+    }
+}
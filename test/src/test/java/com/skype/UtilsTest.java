@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.skype.connector.ConnectorException;
+import com.skype.connector.inmemory.InMemoryConnector;
+import com.skype.connector.inmemory.InMemorySkypeClient;
+
+public class UtilsTest {
+    private InMemoryConnector connector;
+
+    @Before
+    public void setUp() throws ConnectorException {
+        InMemorySkypeClient client = InMemorySkypeClient.createPopulated("me", 3);
+        client.setLatency(0, 0);
+        client.failCommands("GET USER bad.user ", "ERROR 26 Invalid user handle");
+        connector = new InMemoryConnector(null, client);
+        connector.connect();
+    }
+
+    @After
+    public void tearDown() throws ConnectorException {
+        connector.dispose();
+        connector.getClient().dispose();
+    }
+
+    @Test
+    public void fetchPropertiesLeavesOutObjectsWithErrorReplies() throws SkypeException {
+        Map<String, PropertySnapshot> snapshots = Utils.fetchProperties(connector, "USER", Arrays.asList("friend0", "bad.user", "friend2"), "FULLNAME", "ONLINESTATUS");
+        assertEquals(Arrays.asList("friend0", "friend2"), Arrays.asList(snapshots.keySet().toArray()));
+        assertEquals("Friend 0", snapshots.get("friend0").getString("FULLNAME"));
+        assertEquals("Friend 2", snapshots.get("friend2").getString("FULLNAME"));
+    }
+
+    @Test
+    public void fetchPropertiesOfOneObjectFailsOnErrorReply() throws SkypeException {
+        try {
+            Utils.fetchProperties(connector, "USER", "bad.user", "FULLNAME");
+            fail();
+        } catch (CommandFailedException e) {
+            assertEquals(26, e.getCode());
+        }
+    }
+
+    @Test
+    public void unsolicitedErrorDoesNotFailPendingGets() throws Exception {
+        connector.getClient().setLatency(500, 0);
+        Future<String> fullName = Utils.getPropertyAsync(connector, "USER", "friend1", "FULLNAME");
+        // the GET is in flight, the error arrives before its reply
+        Thread.sleep(100);
+        connector.getClient().setLatency(0, 0);
+        connector.getClient().notify("ERROR 68 Access denied");
+        assertEquals("Friend 1", Utils.getResult(fullName));
+    }
+
+    @Test
+    public void concurrentSetsGetTheirOwnErrorReplies() throws SkypeException {
+        connector.getClient().failCommands("SET USER bad.user ", "ERROR 26 Invalid user handle");
+        Future<Void> bad = Utils.setPropertyAsync(connector, "USER", "bad.user", "DISPLAYNAME", "Bad");
+        Future<Void> good = Utils.setPropertyAsync(connector, "USER", "friend1", "DISPLAYNAME", "Good");
+        Utils.getResult(good);
+        try {
+            Utils.getResult(bad);
+            fail();
+        } catch (CommandFailedException e) {
+            assertEquals(26, e.getCode());
+        }
+    }
+}
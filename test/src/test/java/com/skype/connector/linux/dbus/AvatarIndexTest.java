@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2006-2007 Koji Hisano <hisano@gmail.com> - UBION Inc. Developer
+ * Copyright (c) 2006-2007 UBION Inc. <http://www.ubion.co.jp/>
+ * Copyright (c) 2011 Markus Alexander Kuppe.
+ * 
+ * Copyright (c) 2006-2007 Skype Technologies S.A. <http://www.skype.com/>
+ * 
+ * Skype4Java is licensed under either the Apache License, Version 2.0 or
+ * the Eclipse Public License v1.0.
+ * You may use it freely in commercial and non-commercial products.
+ * You may obtain a copy of the licenses at
+ *
+ *   the Apache License - http://www.apache.org/licenses/LICENSE-2.0
+ *   the Eclipse Public License - http://www.eclipse.org/legal/epl-v10.html
+ *
+ * If it is possible to cooperate with the publicity of Skype4Java, please add
+ * links to the Skype4Java web site <https://developer.skype.com/wiki/Java_API> 
+ * in your web site or documents.
+ * 
+ * Contributors:
+ * Koji Hisano - initial API and implementation
+ ******************************************************************************/
+package com.skype.connector.linux.dbus;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.skype.connector.AvatarCallback;
+
+public class AvatarIndexTest {
+    private static final byte[] IMAGE = new byte[] { (byte)0xFF, (byte)0xD8, 'a', 'b', 'c', (byte)0xFF, (byte)0xD9 };
+
+    private File directory;
+    private AvatarIndex index;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("skype", "");
+        directory.delete();
+        directory.mkdir();
+        index = new AvatarIndex(directory);
+    }
+
+    @After
+    public void tearDown() {
+        index.dispose();
+        for(final File file: directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void indexesOnlyTheOwnersOfBlocks() throws IOException {
+        final ByteArrayOutputStream dbb = new ByteArrayOutputStream();
+        writeBlock(dbb, "alice", "Smith", IMAGE);
+        writeBlock(dbb, "bob", "Jones", null);
+        write(dbb);
+        final Map<String, byte[]> avatars = new LinkedHashMap<String, byte[]>();
+        index.forEachAvatar(Arrays.asList("alice", "Smith", "bob", "Jones"), new AvatarCallback() {
+            public void avatarRead(final String userId, final ByteBuffer avatar) {
+                final byte[] bytes = new byte[avatar.remaining()];
+                avatar.get(bytes);
+                avatars.put(userId, bytes);
+            }
+        });
+        assertEquals(Arrays.asList("alice"), Arrays.asList(avatars.keySet().toArray()));
+        assertArrayEquals(IMAGE, avatars.get("alice"));
+    }
+
+    @Test
+    public void keepsTheReadImagesWhenSkypeTruncatesAFile() throws IOException {
+        final ByteArrayOutputStream dbb = new ByteArrayOutputStream();
+        writeBlock(dbb, "bob", "Jones", new byte[64 * 1024]);
+        writeBlock(dbb, "alice", "Smith", IMAGE);
+        write(dbb);
+        assertArrayEquals(IMAGE, toBytes(index.getAvatar("alice")));
+        // alice's image is now beyond the end of the file, the index is only checked again a second later
+        dbb.reset();
+        writeBlock(dbb, "carol", "Brown", null);
+        write(dbb);
+        assertArrayEquals(IMAGE, toBytes(index.getAvatar("alice")));
+    }
+
+    private static void writeBlock(final ByteArrayOutputStream dbb, final String userId, final String fullName, final byte[] image) throws IOException {
+        dbb.write(new byte[] { 'l', '3', '3', 'l', 1, 2, 3, 0x03, 0x10 });
+        dbb.write(userId.getBytes("US-ASCII"));
+        dbb.write(0);
+        dbb.write(new byte[] { 0x03, 0x14 });
+        dbb.write(fullName.getBytes("US-ASCII"));
+        dbb.write(0);
+        if(image != null) {
+            dbb.write(image);
+        }
+        dbb.write(new byte[8]);
+    }
+
+    private void write(final ByteArrayOutputStream dbb) throws IOException {
+        final FileOutputStream out = new FileOutputStream(new File(directory, AvatarIndex.DBBs[0]));
+        try {
+            dbb.writeTo(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static byte[] toBytes(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}